@@ -0,0 +1,131 @@
+package dev.danvega.posts.reactive.controller;
+
+import dev.danvega.posts.reactive.data.Post;
+import dev.danvega.posts.reactive.data.PostCursor;
+import dev.danvega.posts.reactive.data.PostPage;
+import dev.danvega.posts.reactive.exception.PostNotFoundException;
+import dev.danvega.posts.reactive.exception.PreconditionFailedException;
+import dev.danvega.posts.reactive.repository.PostRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * The blocking application's {@code /api/posts} contract on WebFlux. List endpoints return a
+ * {@link Flux} that the codec writes as rows arrive: a JSON array by default, one post per line with
+ * {@code Accept: application/x-ndjson}. Rows are requested from the database only as fast as the
+ * client reads them, so a slow client holds back the query rather than buffering the table.
+ */
+@RestController
+@RequestMapping("/api/posts")
+public class PostController {
+
+    private final PostRepository postRepository;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    public PostController(PostRepository postRepository,
+                          @Value("${posts.pagination.default-size:20}") int defaultPageSize,
+                          @Value("${posts.pagination.max-size:100}") int maxPageSize) {
+        this.postRepository = postRepository;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+    }
+
+    @GetMapping(value = "", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Mono<ResponseEntity<Flux<Post>>> findAll(ServerWebExchange exchange) {
+        return postRepository.findWatermark()
+                .map(watermark -> "W/\"" + watermark + "\"")
+                .map(etag -> exchange.checkNotModified(etag)
+                        ? ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).<Flux<Post>>build()
+                        : ResponseEntity.ok().eTag(etag).body(postRepository.streamAll()));
+    }
+
+    @GetMapping("/page")
+    public Mono<PostPage> findPage(@RequestParam(required = false) String cursor,
+                                   @RequestParam(required = false) Integer size) {
+        int limit = size == null ? defaultPageSize : Math.clamp(size, 1, maxPageSize);
+        // one extra row tells us whether there is a next page without a count query
+        return postRepository.findPageAfter(PostCursor.decode(cursor).afterId(), limit + 1)
+                .collectList()
+                .map(rows -> {
+                    if (rows.size() <= limit) {
+                        return new PostPage(rows, null);
+                    }
+                    List<Post> page = rows.subList(0, limit);
+                    return new PostPage(page, new PostCursor(page.getLast().id()).encode());
+                });
+    }
+
+    @GetMapping(value = "/stream", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<Post> streamAll() {
+        return postRepository.streamAll();
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<Post>> findById(@PathVariable Integer id, ServerWebExchange exchange) {
+        return postRepository.findById(id)
+                .switchIfEmpty(Mono.error(PostNotFoundException::new))
+                .map(post -> {
+                    String etag = PostETags.of(post);
+                    if (etag != null && exchange.checkNotModified(etag)) {
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+                    }
+                    return ResponseEntity.ok().eTag(etag).body(post);
+                });
+    }
+
+    @PostMapping("")
+    public Mono<ResponseEntity<Post>> create(@RequestBody @Validated Post post) {
+        return postRepository.save(post)
+                .map(saved -> ResponseEntity.status(HttpStatus.CREATED).body(saved));
+    }
+
+    @PutMapping("{id}")
+    public Mono<ResponseEntity<Post>> update(@PathVariable Integer id,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                             @RequestBody @Validated Post post) {
+        Integer requiredVersion = PostETags.requiredVersion(ifMatch);
+        if (requiredVersion != null && post.userid() != null) {
+            // the client already holds the current version: write conditionally without reading first
+            return postRepository.save(new Post(id, post.userid(), post.title(), post.body(), requiredVersion))
+                    .onErrorMap(OptimisticLockingFailureException.class, e -> new PreconditionFailedException())
+                    .map(saved -> ResponseEntity.ok().eTag(PostETags.of(saved)).body(saved));
+        }
+        return postRepository.findById(id)
+                .switchIfEmpty(Mono.error(PostNotFoundException::new))
+                .flatMap(existing -> {
+                    if (requiredVersion != null && !requiredVersion.equals(existing.version())) {
+                        return Mono.error(new PreconditionFailedException());
+                    }
+                    return postRepository.save(new Post(
+                            existing.id(), existing.userid(), post.title(), post.body(), existing.version()));
+                })
+                .map(saved -> ResponseEntity.ok().eTag(PostETags.of(saved)).body(saved));
+    }
+
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @DeleteMapping("{id}")
+    public Mono<Void> delete(@PathVariable Integer id,
+                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Integer requiredVersion = PostETags.requiredVersion(ifMatch);
+        if (requiredVersion != null) {
+            // DELETE ... WHERE id = ? AND version = ?, no read needed
+            return postRepository.deleteByIdAndVersion(id, requiredVersion)
+                    .flatMap(deleted -> deleted == 0 ? Mono.error(new PreconditionFailedException()) : Mono.empty());
+        }
+        return postRepository.findById(id)
+                .switchIfEmpty(Mono.error(PostNotFoundException::new))
+                .flatMap(existing -> postRepository.deleteById(id));
+    }
+}
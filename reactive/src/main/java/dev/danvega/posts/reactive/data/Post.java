@@ -0,0 +1,18 @@
+package dev.danvega.posts.reactive.data;
+
+import jakarta.validation.constraints.NotEmpty;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+
+public record Post(
+        @Id
+        Integer id,
+
+        Integer userid,
+        @NotEmpty
+        String title,
+        @NotEmpty
+        String body,
+        @Version Integer version
+) {
+}
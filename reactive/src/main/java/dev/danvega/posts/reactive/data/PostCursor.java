@@ -0,0 +1,36 @@
+package dev.danvega.posts.reactive.data;
+
+import dev.danvega.posts.reactive.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor over {@link Post#id()}. Clients only ever see the encoded form.
+ */
+public record PostCursor(Integer afterId) {
+
+    private static final String PREFIX = "id:";
+
+    public static final PostCursor START = new PostCursor(0);
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + afterId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PostCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return START;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!value.startsWith(PREFIX)) {
+                throw new InvalidCursorException();
+            }
+            return new PostCursor(Integer.valueOf(value.substring(PREFIX.length())));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException();
+        }
+    }
+}
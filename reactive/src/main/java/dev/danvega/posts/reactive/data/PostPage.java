@@ -0,0 +1,6 @@
+package dev.danvega.posts.reactive.data;
+
+import java.util.List;
+
+public record PostPage(List<Post> posts, String nextCursor) {
+}
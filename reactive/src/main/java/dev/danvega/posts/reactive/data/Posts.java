@@ -0,0 +1,6 @@
+package dev.danvega.posts.reactive.data;
+
+import java.util.List;
+
+public record Posts(List<Post> posts) {
+}
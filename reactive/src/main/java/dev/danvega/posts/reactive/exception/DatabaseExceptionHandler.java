@@ -0,0 +1,23 @@
+package dev.danvega.posts.reactive.exception;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Turns stale {@code @Version} writes into 409, as the blocking application does. There is no
+ * pool-saturation handler: a request waiting for an R2DBC connection holds no thread, so it simply
+ * waits in the pool's queue until {@code spring.r2dbc.pool.max-acquire-time}.
+ */
+@RestControllerAdvice
+public class DatabaseExceptionHandler {
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ProblemDetail> handleVersionConflict(OptimisticLockingFailureException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, "Post was modified concurrently"));
+    }
+}
@@ -0,0 +1,8 @@
+package dev.danvega.posts.reactive.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class PostNotFoundException extends RuntimeException{
+}
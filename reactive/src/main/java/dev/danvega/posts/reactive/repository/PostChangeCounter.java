@@ -0,0 +1,37 @@
+package dev.danvega.posts.reactive.repository;
+
+import dev.danvega.posts.reactive.data.Post;
+import org.reactivestreams.Publisher;
+import org.springframework.data.r2dbc.mapping.OutboundRow;
+import org.springframework.data.r2dbc.mapping.event.AfterSaveCallback;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Raises {@code post_change}, the counter behind {@link PostRepository#findWatermark()}, after every
+ * save; deletes raise it in {@link PostDeleteRepositoryImpl}. The blocking application raises the same
+ * row, so both hand out the same tags for the same table. The counter moves after the write rather than
+ * with it: a reader in between gets the old tag with the new rows, and its next request a 200.
+ */
+@Component
+class PostChangeCounter implements AfterSaveCallback<Post> {
+
+    static final String INCREMENT_SQL = "UPDATE post_change SET seq = seq + 1 WHERE id = 1";
+
+    private final DatabaseClient databaseClient;
+
+    PostChangeCounter(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    @Override
+    public Publisher<Post> onAfterSave(Post entity, OutboundRow outboundRow, SqlIdentifier table) {
+        return databaseClient.sql(INCREMENT_SQL).then().thenReturn(entity);
+    }
+
+    static Mono<Void> increment(DatabaseClient databaseClient) {
+        return databaseClient.sql(INCREMENT_SQL).then();
+    }
+}
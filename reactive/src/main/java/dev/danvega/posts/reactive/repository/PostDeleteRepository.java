@@ -0,0 +1,17 @@
+package dev.danvega.posts.reactive.repository;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Deletes that also raise {@code post_change}; R2DBC has no callback after a delete to hang that on.
+ */
+public interface PostDeleteRepository {
+
+    Mono<Void> deleteById(Integer id);
+
+    /**
+     * Deletes the post only if it still has the given version and returns the rows deleted. Unlike
+     * Spring Data JDBC, {@code delete(entity)} on R2DBC does not check {@code @Version}.
+     */
+    Mono<Integer> deleteByIdAndVersion(Integer id, Integer version);
+}
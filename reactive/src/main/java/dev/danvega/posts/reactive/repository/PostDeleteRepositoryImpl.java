@@ -0,0 +1,32 @@
+package dev.danvega.posts.reactive.repository;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+
+class PostDeleteRepositoryImpl implements PostDeleteRepository {
+
+    private final DatabaseClient databaseClient;
+
+    PostDeleteRepositoryImpl(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    @Override
+    public Mono<Void> deleteById(Integer id) {
+        return delete(databaseClient.sql("DELETE FROM Post WHERE id = :id").bind("id", id)).then();
+    }
+
+    @Override
+    public Mono<Integer> deleteByIdAndVersion(Integer id, Integer version) {
+        return delete(databaseClient.sql("DELETE FROM Post WHERE id = :id AND version = :version")
+                .bind("id", id)
+                .bind("version", version));
+    }
+
+    private Mono<Integer> delete(DatabaseClient.GenericExecuteSpec statement) {
+        return statement.fetch().rowsUpdated()
+                .flatMap(deleted -> deleted == 0
+                        ? Mono.just(0)
+                        : PostChangeCounter.increment(databaseClient).thenReturn(deleted.intValue()));
+    }
+}
@@ -0,0 +1,23 @@
+package dev.danvega.posts.reactive.repository;
+
+import dev.danvega.posts.reactive.data.Post;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Repository
+public interface PostRepository extends R2dbcRepository<Post, Integer>, PostStreamingRepository,
+        PostDeleteRepository {
+
+    @Query("SELECT * FROM Post WHERE id > :afterId ORDER BY id LIMIT :limit")
+    Flux<Post> findPageAfter(Integer afterId, int limit);
+
+    /**
+     * The {@code post_change} counter, used as the collection ETag; the same query as the blocking
+     * application's, so both hand out the same tags. See {@link PostChangeCounter}.
+     */
+    @Query("SELECT CAST(seq AS VARCHAR(20)) FROM post_change WHERE id = 1")
+    Mono<String> findWatermark();
+}
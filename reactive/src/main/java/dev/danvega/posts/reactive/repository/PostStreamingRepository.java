@@ -0,0 +1,13 @@
+package dev.danvega.posts.reactive.repository;
+
+import dev.danvega.posts.reactive.data.Post;
+import reactor.core.publisher.Flux;
+
+/**
+ * The whole table in id order, fetched {@code posts.stream.fetch-size} rows at a time as the
+ * subscriber requests them, so a slow reader slows the query down instead of filling memory.
+ */
+public interface PostStreamingRepository {
+
+    Flux<Post> streamAll();
+}
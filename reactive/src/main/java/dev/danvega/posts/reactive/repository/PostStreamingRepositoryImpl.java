@@ -0,0 +1,31 @@
+package dev.danvega.posts.reactive.repository;
+
+import dev.danvega.posts.reactive.data.Post;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.r2dbc.convert.R2dbcConverter;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+class PostStreamingRepositoryImpl implements PostStreamingRepository {
+
+    private final DatabaseClient databaseClient;
+    private final R2dbcConverter converter;
+    private final int fetchSize;
+
+    PostStreamingRepositoryImpl(DatabaseClient databaseClient,
+                                R2dbcConverter converter,
+                                @Value("${posts.stream.fetch-size:500}") int fetchSize) {
+        this.databaseClient = databaseClient;
+        this.converter = converter;
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public Flux<Post> streamAll() {
+        // PostgreSQL turns the fetch size into a portal read in chunks; H2 ignores it
+        return databaseClient.sql("SELECT id, userid, title, body, version FROM Post ORDER BY id")
+                .filter(statement -> statement.fetchSize(fetchSize))
+                .map((row, metadata) -> converter.read(Post.class, row, metadata))
+                .all();
+    }
+}
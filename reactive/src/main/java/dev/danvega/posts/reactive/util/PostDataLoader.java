@@ -0,0 +1,66 @@
+package dev.danvega.posts.reactive.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.danvega.posts.reactive.data.Posts;
+import dev.danvega.posts.reactive.repository.PostRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Seeds an empty Post table from the same {@code {"posts": [...]}} document as the blocking
+ * application. Startup waits for the load; the seed file is small, and the bulk loader with its
+ * checkpoints stays with the blocking application.
+ */
+@Component
+class PostDataLoader implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(PostDataLoader.class);
+    private final ObjectMapper objectMapper;
+    private final PostRepository postRepository;
+    private final ResourceLoader resourceLoader;
+    private final boolean enabled;
+    private final String location;
+
+    public PostDataLoader(ObjectMapper objectMapper,
+                          PostRepository postRepository,
+                          ResourceLoader resourceLoader,
+                          @Value("${posts.loader.enabled:true}") boolean enabled,
+                          @Value("${posts.loader.location:classpath:/data/posts.json}") String location) {
+        this.objectMapper = objectMapper;
+        this.postRepository = postRepository;
+        this.resourceLoader = resourceLoader;
+        this.enabled = enabled;
+        this.location = location;
+    }
+
+    @Override
+    public void run(String... args) throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Long existing = postRepository.count().block();
+        if (existing != null && existing > 0) {
+            log.info("Post table already holds {} posts, skipping {}", existing, location);
+            return;
+        }
+        Resource resource = resourceLoader.getResource(location);
+        Posts posts;
+        try (InputStream inputStream = resource.getInputStream()) {
+            posts = objectMapper.readValue(inputStream, Posts.class);
+        }
+        Long loaded = Flux.fromIterable(posts.posts())
+                .concatMap(postRepository::save)
+                .count()
+                .block();
+        log.info("Loaded {} posts from {}", loaded, location);
+    }
+}
@@ -0,0 +1,188 @@
+package dev.danvega.posts.reactive.controller;
+
+import dev.danvega.posts.reactive.data.Post;
+import dev.danvega.posts.reactive.data.PostCursor;
+import dev.danvega.posts.reactive.repository.PostRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@WebFluxTest(PostController.class)
+public class PostControllerTests {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private PostRepository postRepository;
+
+    private List<Post> posts;
+
+    @BeforeEach
+    void setup() {
+        posts = List.of(new Post(1, 1, "Hello, World!", "This is my first post.", 0),
+                new Post(2, 1, "Second Post", "This is my second post.", 0));
+    }
+
+    @Test
+    void shouldFindAllPostsAsJsonArray() {
+        when(postRepository.findWatermark()).thenReturn(Mono.just("2-3-0"));
+        when(postRepository.streamAll()).thenReturn(Flux.fromIterable(posts));
+
+        webTestClient.get().uri("/api/posts")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "W/\"2-3-0\"")
+                .expectBodyList(Post.class).isEqualTo(posts);
+    }
+
+    @Test
+    void shouldStreamPostsAsNdjson() {
+        when(postRepository.streamAll()).thenReturn(Flux.fromIterable(posts));
+
+        String body = webTestClient.get().uri("/api/posts/stream")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class).returnResult().getResponseBody();
+
+        assertThat(body.lines()).hasSize(2).first().asString().startsWith("{\"id\":1,");
+    }
+
+    @Test
+    void shouldAnswerNotModifiedForCurrentWatermark() {
+        when(postRepository.findWatermark()).thenReturn(Mono.just("2-3-0"));
+        when(postRepository.streamAll()).thenReturn(Flux.fromIterable(posts));
+
+        webTestClient.get().uri("/api/posts")
+                .header("If-None-Match", "W/\"2-3-0\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    void shouldReturnPageWithCursorToNextPage() {
+        when(postRepository.findPageAfter(0, 2)).thenReturn(Flux.fromIterable(posts));
+
+        webTestClient.get().uri("/api/posts/page?size=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.posts.length()").isEqualTo(1)
+                .jsonPath("$.nextCursor").isEqualTo(new PostCursor(1).encode());
+    }
+
+    @Test
+    void shouldFindPostWithValidIdAndETag() {
+        when(postRepository.findById(1)).thenReturn(Mono.just(posts.getFirst()));
+
+        webTestClient.get().uri("/api/posts/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"0\"")
+                .expectBody(Post.class).isEqualTo(posts.getFirst());
+    }
+
+    @Test
+    void shouldNotFindPostWithInvalidId() {
+        when(postRepository.findById(999)).thenReturn(Mono.empty());
+
+        webTestClient.get().uri("/api/posts/999")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void shouldCreateNewPost() {
+        Post post = new Post(3, 1, "New Title", "New Body", null);
+        when(postRepository.save(post)).thenReturn(Mono.just(new Post(3, 1, "New Title", "New Body", 0)));
+
+        webTestClient.post().uri("/api/posts")
+                .bodyValue(post)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody().jsonPath("$.version").isEqualTo(0);
+    }
+
+    @Test
+    void shouldNotCreatePostWhenPostIsInvalid() {
+        webTestClient.post().uri("/api/posts")
+                .bodyValue(new Post(3, 1, "", "", null))
+                .exchange()
+                .expectStatus().isBadRequest();
+        verify(postRepository, never()).save(any());
+    }
+
+    @Test
+    void shouldUpdateWithIfMatchWithoutReadingFirst() {
+        Post updated = new Post(1, 1, "New Title", "New Body", 1);
+        when(postRepository.save(new Post(1, 1, "New Title", "New Body", 0))).thenReturn(Mono.just(updated));
+
+        webTestClient.put().uri("/api/posts/1")
+                .header("If-Match", "\"0\"")
+                .bodyValue(new Post(1, 1, "New Title", "New Body", null))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"1\"")
+                .expectBody(Post.class).isEqualTo(updated);
+        verify(postRepository, never()).findById(any(Integer.class));
+    }
+
+    @Test
+    void shouldRejectUpdateWithStaleIfMatch() {
+        when(postRepository.save(any(Post.class))).thenReturn(Mono.error(new OptimisticLockingFailureException("stale")));
+
+        webTestClient.put().uri("/api/posts/1")
+                .header("If-Match", "\"0\"")
+                .bodyValue(new Post(1, 1, "New Title", "New Body", null))
+                .exchange()
+                .expectStatus().isEqualTo(412);
+    }
+
+    @Test
+    void shouldReportConcurrentUpdateWithoutIfMatchAsConflict() {
+        when(postRepository.findById(1)).thenReturn(Mono.just(posts.getFirst()));
+        when(postRepository.save(any(Post.class))).thenReturn(Mono.error(new OptimisticLockingFailureException("stale")));
+
+        webTestClient.put().uri("/api/posts/1")
+                .bodyValue(new Post(1, 1, "New Title", "New Body", null))
+                .exchange()
+                .expectStatus().isEqualTo(409);
+    }
+
+    @Test
+    void shouldDeletePostWhenGivenValidId() {
+        when(postRepository.findById(1)).thenReturn(Mono.just(posts.getFirst()));
+        when(postRepository.deleteById(1)).thenReturn(Mono.empty());
+
+        webTestClient.delete().uri("/api/posts/1")
+                .exchange()
+                .expectStatus().isNoContent();
+        verify(postRepository).deleteById(1);
+    }
+
+    @Test
+    void shouldRejectDeleteWithStaleIfMatch() {
+        when(postRepository.deleteByIdAndVersion(1, 0)).thenReturn(Mono.just(0));
+
+        webTestClient.delete().uri("/api/posts/1")
+                .header("If-Match", "\"0\"")
+                .exchange()
+                .expectStatus().isEqualTo(412);
+    }
+}
@@ -0,0 +1,65 @@
+package dev.danvega.posts.reactive.load;
+
+import dev.danvega.posts.reactive.ReactiveApplication;
+import dev.danvega.posts.reactive.data.PostCursor;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.PoolMetrics;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The blocking application's {@code ConcurrencyLoadTests} against the reactive stack: the same
+ * clients, requests and pool size, logging throughput, latency and peak platform threads, heap and
+ * pool connections in use. Set the client count with {@code -Dload.clients} (default 10000; every
+ * client costs two file descriptors in this JVM). Runs on embedded H2 with {@code -Pload-test}.
+ */
+@Tag("load")
+public class ConcurrencyLoadTests {
+
+    private static final Logger log = LoggerFactory.getLogger(ConcurrencyLoadTests.class);
+
+    private static final int CLIENTS = Integer.getInteger("load.clients", 10_000);
+    private static final Duration PAUSE = Duration.ofSeconds(5);
+    private static final Duration WARMUP = Duration.ofSeconds(5);
+    private static final Duration DURATION = Duration.ofSeconds(20);
+
+    @Test
+    void measureResourcesUnderConcurrentClients() throws Exception {
+        try (ConfigurableApplicationContext context = SpringApplication.run(ReactiveApplication.class,
+                "--server.port=0",
+                "--spring.docker.compose.enabled=false")) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            String baseUrl = "http://localhost:" + port;
+            PoolMetrics pool = ((ConnectionPool) context.getBean(ConnectionFactory.class)).getMetrics().orElseThrow();
+            LoadGenerator generator = new LoadGenerator();
+            generator.run(baseUrl, CLIENTS, WARMUP, PAUSE, Map.of(), ConcurrencyLoadTests::randomPage);
+            LoadGenerator.Result result;
+            ResourceSampler.Peaks peaks;
+            try (ResourceSampler sampler = new ResourceSampler(pool::acquiredSize)) {
+                result = generator.run(baseUrl, CLIENTS, DURATION, PAUSE, Map.of(), ConcurrencyLoadTests::randomPage);
+                peaks = sampler.peaks();
+            }
+
+            log.info("reactive, {} clients: {}", CLIENTS, result);
+            log.info("reactive, {} clients: {}", CLIENTS, peaks);
+            assertThat(result.errors()).isZero();
+        }
+    }
+
+    private static String randomPage(int sequence) {
+        int afterId = ThreadLocalRandom.current().nextInt(0, 90);
+        return "/api/posts/page?size=10&cursor=" + new PostCursor(afterId).encode();
+    }
+}
@@ -0,0 +1,83 @@
+package dev.danvega.posts.reactive.repository;
+
+import dev.danvega.posts.reactive.data.Post;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.r2dbc.DataR2dbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.stream.IntStream;
+
+@DataR2dbcTest
+@Import(PostChangeCounter.class)
+public class PostRepositoryTests {
+
+    @Autowired
+    PostRepository postRepository;
+
+    @BeforeEach
+    void setup() {
+        // ids 1001..1030; the seed loader is not part of this slice, but keep clear of its ids anyway
+        postRepository.deleteAll()
+                .thenMany(Flux.fromStream(IntStream.rangeClosed(1001, 1030).boxed())
+                        .concatMap(id -> postRepository.save(new Post(id, id % 3 + 1, "title " + id, "body " + id, null))))
+                .blockLast();
+    }
+
+    @AfterEach
+    void cleanup() {
+        postRepository.deleteAll().block();
+    }
+
+    @Test
+    void shouldPageInIdOrder() {
+        StepVerifier.create(postRepository.findPageAfter(1010, 3).map(Post::id))
+                .expectNext(1011, 1012, 1013)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldStreamWholeTableInIdOrderOnDemand() {
+        StepVerifier.create(postRepository.streamAll().map(Post::id), 0)
+                .thenRequest(2)
+                .expectNext(1001, 1002)
+                .thenRequest(Long.MAX_VALUE)
+                .expectNextCount(28)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldChangeWatermarkWhenPostIsUpdated() {
+        String before = postRepository.findWatermark().block();
+
+        postRepository.findById(1005)
+                .flatMap(post -> postRepository.save(new Post(post.id(), post.userid(), "new", post.body(), post.version())))
+                .block();
+
+        StepVerifier.create(postRepository.findWatermark())
+                .expectNextMatches(after -> !after.equals(before))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldRejectUpdateOfStaleVersion() {
+        postRepository.save(new Post(1005, 3, "first", "body", 0)).block();
+
+        StepVerifier.create(postRepository.save(new Post(1005, 3, "second", "body", 0)))
+                .verifyError(OptimisticLockingFailureException.class);
+    }
+
+    @Test
+    void shouldDeleteOnlyCurrentVersion() {
+        postRepository.save(new Post(1005, 3, "first", "body", 0)).block();
+
+        StepVerifier.create(postRepository.deleteByIdAndVersion(1005, 0)).expectNext(0).verifyComplete();
+        StepVerifier.create(postRepository.deleteByIdAndVersion(1005, 1)).expectNext(1).verifyComplete();
+        StepVerifier.create(postRepository.existsById(1005)).expectNext(false).verifyComplete();
+    }
+}
@@ -0,0 +1,46 @@
+package dev.danvega.posts.benchmark;
+
+import dev.danvega.posts.Application;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Starts the application against embedded H2 with the seed data loaded, for benchmarks that need
+ * real beans. Docker Compose and devtools are switched off so runs are reproducible.
+ * <p>
+ * To run against another database, pass its JDBC settings to the forked JVM, for example
+ * {@code -jvmArgsAppend "-Dbenchmark.datasource.url=jdbc:postgresql://localhost:5432/blog
+ * -Dbenchmark.datasource.username=blog -Dbenchmark.datasource.password=secret_password"}.
+ */
+final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(WebApplicationType type, String... properties) {
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        SpringApplication application = new SpringApplication(Application.class);
+        application.setWebApplicationType(type);
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.docker.compose.enabled=false",
+                "--spring.datasource.url=" + System.getProperty("benchmark.datasource.url",
+                        "jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"),
+                "--spring.sql.init.mode=always",
+                "--server.port=0",
+                "--logging.level.root=WARN"));
+        for (String credential : List.of("username", "password")) {
+            String value = System.getProperty("benchmark.datasource." + credential);
+            if (value != null) {
+                args.add("--spring.datasource." + credential + "=" + value);
+            }
+        }
+        for (String property : properties) {
+            args.add("--" + property);
+        }
+        return application.run(args.toArray(String[]::new));
+    }
+}
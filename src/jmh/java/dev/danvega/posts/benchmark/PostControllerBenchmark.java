@@ -0,0 +1,56 @@
+package dev.danvega.posts.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Full {@code DispatcherServlet} dispatch of the read endpoints through MockMvc: handler lookup,
+ * argument resolution, repository call and JSON rendering, without the network.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PostControllerBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkApplication.start(WebApplicationType.SERVLET);
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public MvcResult findById() throws Exception {
+        return mockMvc.perform(get("/api/posts/" + ThreadLocalRandom.current().nextInt(1, 101))).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult findAll() throws Exception {
+        return mockMvc.perform(get("/api/posts")).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult findPage() throws Exception {
+        return mockMvc.perform(get("/api/posts/page").param("size", "20")).andReturn();
+    }
+}
@@ -0,0 +1,104 @@
+package dev.danvega.posts.benchmark;
+
+import dev.danvega.posts.cache.PostCacheConfig;
+import dev.danvega.posts.data.Post;
+import dev.danvega.posts.repository.PostRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PostRepository} against embedded H2 with the 100 seed posts. Writes use ids from
+ * {@link #FIRST_WRITE_ID} up, which are removed after every iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PostRepositoryBenchmark {
+
+    private static final int FIRST_WRITE_ID = 1_000_000;
+    private static final int BATCH_SIZE = 100;
+
+    private ConfigurableApplicationContext context;
+    private PostRepository postRepository;
+    private JdbcTemplate jdbcTemplate;
+    private Cache cache;
+    private int nextId;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkApplication.start(WebApplicationType.NONE);
+        postRepository = context.getBean(PostRepository.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        cache = context.getBean(CacheManager.class).getCache(PostCacheConfig.POSTS_CACHE);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetWrites() {
+        jdbcTemplate.update("DELETE FROM Post WHERE id >= ?", FIRST_WRITE_ID);
+        nextId = FIRST_WRITE_ID;
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<Post> findByIdCached() {
+        return postRepository.findById(randomSeedId());
+    }
+
+    @Benchmark
+    public Optional<Post> findByIdUncached() {
+        int id = randomSeedId();
+        cache.evict(id);
+        return postRepository.findById(id);
+    }
+
+    @Benchmark
+    public List<Post> findAll() {
+        return postRepository.findAll();
+    }
+
+    @Benchmark
+    public List<Post> findPage() {
+        return postRepository.findPageAfter(randomSeedId(), 20);
+    }
+
+    @Benchmark
+    public Post saveNew() {
+        return postRepository.save(newPost());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public Object insertAllBatched() {
+        List<Post> posts = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            posts.add(newPost());
+        }
+        return postRepository.insertAll(posts);
+    }
+
+    private Post newPost() {
+        int id = nextId++;
+        return new Post(id, id % 10, "benchmark title " + id, "benchmark body " + id, null);
+    }
+
+    private static int randomSeedId() {
+        return ThreadLocalRandom.current().nextInt(1, 101);
+    }
+}
@@ -0,0 +1,86 @@
+package dev.danvega.posts.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.danvega.posts.codec.PostPayloadHttpMessageConverter;
+import dev.danvega.posts.data.Post;
+import dev.danvega.posts.data.Posts;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson cost of a single {@link Post} and of the full seed list, both directions, and of a
+ * long post written through {@link PostPayloadHttpMessageConverter} against plain Jackson.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PostSerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private Post post;
+    private List<Post> posts;
+    private byte[] postJson;
+    private byte[] postsJson;
+    private Post longPost;
+    private PostPayloadHttpMessageConverter payloadConverter;
+
+    @Setup
+    public void setup() throws IOException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        try (InputStream inputStream = getClass().getResourceAsStream("/data/posts.json")) {
+            posts = objectMapper.readValue(inputStream, Posts.class).posts();
+        }
+        post = posts.getFirst();
+        postJson = objectMapper.writeValueAsBytes(post);
+        postsJson = objectMapper.writeValueAsBytes(posts);
+        longPost = new Post(1, 1, post.title(), post.body().repeat(50), 0);
+        payloadConverter = new PostPayloadHttpMessageConverter(objectMapper,
+                new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class),
+                DataSize.ofMegabytes(64), DataSize.ofKilobytes(2));
+    }
+
+    @Benchmark
+    public byte[] serializePost() throws IOException {
+        return objectMapper.writeValueAsBytes(post);
+    }
+
+    @Benchmark
+    public byte[] serializePostList() throws IOException {
+        return objectMapper.writeValueAsBytes(posts);
+    }
+
+    @Benchmark
+    public Post deserializePost() throws IOException {
+        return objectMapper.readValue(postJson, Post.class);
+    }
+
+    @Benchmark
+    public Post[] deserializePostList() throws IOException {
+        return objectMapper.readValue(postsJson, Post[].class);
+    }
+
+    @Benchmark
+    public byte[] serializeLongPost() throws IOException {
+        return objectMapper.writeValueAsBytes(longPost);
+    }
+
+    @Benchmark
+    public byte[] writeLongPostFromPayloadCache() throws IOException {
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        payloadConverter.write(longPost, MediaType.APPLICATION_JSON, message);
+        return message.getBodyAsBytes();
+    }
+}
@@ -0,0 +1,84 @@
+package dev.danvega.posts.benchmark;
+
+import jakarta.servlet.Filter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.filter.ServerHttpObservationFilter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Cost of tracing on the read endpoints, dispatched as in {@link PostControllerBenchmark} plus the
+ * filter that opens the request observation:
+ * <ul>
+ *     <li>{@code off}: {@code posts.tracing.enabled=false} and no tracer, the request timers only</li>
+ *     <li>{@code 0.1}, {@code 1.0}: every layer observed, that share of requests sampled and the
+ *     sampled spans written to a file by {@link dev.danvega.posts.tracing.FileSpanExporter}</li>
+ * </ul>
+ * The slow query threshold is left at its default, so no statement is explained.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TracingOverheadBenchmark {
+
+    @Param({"off", "0.1", "1.0"})
+    public String tracing;
+
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+    private Path spans;
+
+    @Setup
+    public void setup() throws IOException {
+        spans = Files.createTempFile("spans", ".ndjson");
+        context = tracing.equals("off")
+                ? BenchmarkApplication.start(WebApplicationType.SERVLET,
+                "posts.tracing.enabled=false", "management.tracing.enabled=false")
+                : BenchmarkApplication.start(WebApplicationType.SERVLET,
+                "management.tracing.sampling.probability=" + tracing, "posts.tracing.export.file=" + spans);
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context)
+                .addFilters(observationFilter())
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.close();
+        System.out.printf("%n%s: %d bytes of spans written%n", tracing, Files.size(spans));
+        Files.deleteIfExists(spans);
+    }
+
+    @Benchmark
+    public MvcResult findById() throws Exception {
+        return mockMvc.perform(get("/api/posts/" + ThreadLocalRandom.current().nextInt(1, 101))).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult findPage() throws Exception {
+        return mockMvc.perform(get("/api/posts/page").param("size", "20")).andReturn();
+    }
+
+    private Filter observationFilter() {
+        return context.getBeansOfType(FilterRegistrationBean.class).values().stream()
+                .map(FilterRegistrationBean::getFilter)
+                .filter(ServerHttpObservationFilter.class::isInstance)
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,85 @@
+package dev.danvega.posts.benchmark;
+
+import dev.danvega.posts.data.Post;
+import dev.danvega.posts.data.PostSummary;
+import dev.danvega.posts.repository.PostRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-user keyset pages over {@link #POSTS} posts spread across {@link #USERS} users, with and
+ * without {@code post_userid_id_idx}. The query plan for each case is printed once per fork.
+ * Runs on H2 by default; see {@link BenchmarkApplication} for pointing it at PostgreSQL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserPostQueryBenchmark {
+
+    private static final int FIRST_ID = 1_000_000;
+    private static final int POSTS = 100_000;
+    private static final int USERS = 1_000;
+    private static final String PAGE_QUERY =
+            "SELECT id, title FROM Post WHERE userid = 500 AND id > 0 ORDER BY id LIMIT 20";
+
+    @Param({"true", "false"})
+    public boolean indexed;
+
+    private ConfigurableApplicationContext context;
+    private PostRepository postRepository;
+    private JdbcTemplate jdbcTemplate;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkApplication.start(WebApplicationType.NONE);
+        postRepository = context.getBean(PostRepository.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        List<Post> posts = new ArrayList<>(POSTS);
+        for (int id = FIRST_ID; id < FIRST_ID + POSTS; id++) {
+            posts.add(new Post(id, id % USERS, "benchmark title " + id, "benchmark body ".repeat(20), null));
+        }
+        postRepository.insertAll(posts);
+        if (!indexed) {
+            jdbcTemplate.execute("DROP INDEX IF EXISTS post_userid_id_idx");
+        }
+        jdbcTemplate.execute("ANALYZE");
+        List<String> plan = jdbcTemplate.queryForList("EXPLAIN " + PAGE_QUERY, String.class);
+        System.out.printf("%nindexed=%s:%n%s%n", indexed, String.join(System.lineSeparator(), plan));
+    }
+
+    @TearDown
+    public void tearDown() {
+        jdbcTemplate.update("DELETE FROM Post WHERE id >= ?", FIRST_ID);
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS post_userid_id_idx ON Post (userId, id)");
+        context.close();
+    }
+
+    @Benchmark
+    public List<Post> findPageByUser() {
+        return postRepository.findPageByUserAfter(randomUser(), 0, 20);
+    }
+
+    @Benchmark
+    public List<PostSummary> findSummaryPageByUser() {
+        return postRepository.findSummaryPageByUserAfter(randomUser(), 0, 20);
+    }
+
+    @Benchmark
+    public List<PostSummary> findSummaryPageByUserFromMiddle() {
+        return postRepository.findSummaryPageByUserAfter(randomUser(), FIRST_ID + POSTS / 2, 20);
+    }
+
+    private static int randomUser() {
+        return ThreadLocalRandom.current().nextInt(USERS);
+    }
+}
@@ -0,0 +1,82 @@
+package dev.danvega.posts.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import dev.danvega.posts.data.Post;
+import dev.danvega.posts.data.Posts;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The seed list encoded as JSON, Smile and CBOR, with and without gzip, as the list endpoints send it.
+ * Payload sizes for each format are printed once per fork so the throughput numbers can be read
+ * against bytes on the wire.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    @Param({"json", "smile", "cbor"})
+    public String format;
+
+    private ObjectMapper objectMapper;
+    private List<Post> posts;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() throws IOException {
+        ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+        try (InputStream inputStream = getClass().getResourceAsStream("/data/posts.json")) {
+            posts = json.readValue(inputStream, Posts.class).posts();
+        }
+        objectMapper = Jackson2ObjectMapperBuilder.json().factory(factory(format)).build();
+        encoded = objectMapper.writeValueAsBytes(posts);
+        System.out.printf("%n%s: %d posts, %d bytes, %d bytes gzipped%n",
+                format, posts.size(), encoded.length, gzip(encoded).length);
+    }
+
+    @Benchmark
+    public byte[] serializePostList() throws IOException {
+        return objectMapper.writeValueAsBytes(posts);
+    }
+
+    @Benchmark
+    public Post[] deserializePostList() throws IOException {
+        return objectMapper.readValue(encoded, Post[].class);
+    }
+
+    @Benchmark
+    public byte[] serializeAndGzipPostList() throws IOException {
+        return gzip(objectMapper.writeValueAsBytes(posts));
+    }
+
+    private static JsonFactory factory(String format) {
+        return switch (format) {
+            case "smile" -> new SmileFactory();
+            case "cbor" -> new CBORFactory();
+            default -> new JsonFactory();
+        };
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+}
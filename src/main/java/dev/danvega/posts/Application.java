@@ -2,8 +2,10 @@ package dev.danvega.posts;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 @SpringBootApplication
+@ImportRuntimeHints(PostsRuntimeHints.class)
 public class Application {
 
 	public static void main(String[] args) {
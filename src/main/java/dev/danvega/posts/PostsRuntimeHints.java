@@ -0,0 +1,30 @@
+package dev.danvega.posts;
+
+import dev.danvega.posts.feed.PostChange;
+import dev.danvega.posts.tracing.SlowQuery;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * What a native image cannot discover by itself: the seed data read through a {@code classpath:}
+ * location, types Jackson writes that are not part of a controller method signature, and the JDBC
+ * proxies tracing wraps connections and statements in.
+ */
+class PostsRuntimeHints implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        hints.resources().registerPattern("data/*.json");
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(), PostChange.class, SlowQuery.class);
+        for (Class<?> type : List.of(Connection.class, Statement.class, PreparedStatement.class, CallableStatement.class)) {
+            hints.proxies().registerJdkProxy(type);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package dev.danvega.posts.admission;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admission control for {@code /api/posts/**}, applied before a request reaches a controller or asks
+ * the pool for a connection:
+ * <ol>
+ *     <li>each client gets one {@link TokenBucket} for reads ({@code GET}, {@code HEAD}) and one for
+ *     writes; an empty bucket answers 429 with a {@code Retry-After} of when the next token arrives</li>
+ *     <li>once {@code posts.load-shedding.max-concurrent} requests are in flight, further ones answer
+ *     503 at once instead of queueing for one of the pool's connections</li>
+ * </ol>
+ * Clients are told apart by {@code posts.rate-limit.client-header} when it is set and present, by
+ * remote address otherwise; behind a proxy, set {@code server.forward-headers-strategy} so that is the
+ * caller's address. Buckets of clients idle for {@code idle-timeout} are dropped.
+ * <p>
+ * The change feed is rate limited on connect only: an open event stream holds no database work and
+ * does not count as in flight. Streamed responses count until the last byte is written.
+ * <p>
+ * Rejections are counted as {@code posts.admission.rejected}, tagged by reason ({@code rate-limit},
+ * {@code overload}) and access ({@code read}, {@code write}); {@code posts.admission.in-flight} is the
+ * current number of admitted requests.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class PostAdmissionFilter extends OncePerRequestFilter {
+
+    private static final String POSTS_PATH = "/api/posts";
+    private static final String CHANGES_PATH = "/api/posts/changes";
+
+    private record ClientBuckets(TokenBucket read, TokenBucket write) {
+    }
+
+    private final boolean rateLimitEnabled;
+    private final String clientHeader;
+    private final double readRate;
+    private final int readBurst;
+    private final double writeRate;
+    private final int writeBurst;
+    private final Cache<String, ClientBuckets> buckets;
+    private final int maxConcurrent;
+    private final String overloadRetryAfter;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    public PostAdmissionFilter(ObjectMapper objectMapper,
+                               ObjectProvider<MeterRegistry> meterRegistry,
+                               @Value("${posts.rate-limit.enabled:true}") boolean rateLimitEnabled,
+                               @Value("${posts.rate-limit.client-header:}") String clientHeader,
+                               @Value("${posts.rate-limit.read.rate:200}") double readRate,
+                               @Value("${posts.rate-limit.read.burst:400}") int readBurst,
+                               @Value("${posts.rate-limit.write.rate:50}") double writeRate,
+                               @Value("${posts.rate-limit.write.burst:100}") int writeBurst,
+                               @Value("${posts.rate-limit.idle-timeout:10m}") Duration idleTimeout,
+                               @Value("${posts.rate-limit.max-clients:100000}") long maxClients,
+                               @Value("${posts.load-shedding.max-concurrent:64}") int maxConcurrent,
+                               @Value("${posts.datasource.retry-after:1s}") Duration retryAfter) {
+        this.objectMapper = objectMapper;
+        // web slice tests have no registry; the global one is a no-op there
+        this.meterRegistry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        this.rateLimitEnabled = rateLimitEnabled;
+        this.clientHeader = clientHeader;
+        this.readRate = readRate;
+        this.readBurst = readBurst;
+        this.writeRate = writeRate;
+        this.writeBurst = writeBurst;
+        this.buckets = Caffeine.newBuilder()
+                .expireAfterAccess(idleTimeout)
+                .maximumSize(maxClients)
+                .build();
+        this.maxConcurrent = maxConcurrent;
+        this.overloadRetryAfter = String.valueOf(Math.max(1, retryAfter.toSeconds()));
+        this.meterRegistry.gauge("posts.admission.in-flight", inFlight);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = path(request);
+        return !(path.equals(POSTS_PATH) || path.startsWith(POSTS_PATH + "/"));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String access = isRead(request) ? "read" : "write";
+        if (rateLimitEnabled) {
+            long waitNanos = bucket(request, access).tryAcquire(System.nanoTime());
+            if (waitNanos > 0) {
+                long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+                reject(response, HttpStatus.TOO_MANY_REQUESTS, String.valueOf(retryAfter),
+                        "Rate limit exceeded, retry later", "rate-limit", access);
+                return;
+            }
+        }
+        if (maxConcurrent <= 0 || path(request).equals(CHANGES_PATH)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (inFlight.incrementAndGet() > maxConcurrent) {
+            inFlight.decrementAndGet();
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, overloadRetryAfter,
+                    "Too many requests in flight, retry later", "overload", access);
+            return;
+        }
+        boolean async = false;
+        try {
+            chain.doFilter(request, response);
+            async = request.isAsyncStarted();
+        } finally {
+            if (async) {
+                // StreamingResponseBody: still writing rows after the filter chain returns
+                request.getAsyncContext().addListener(new ReleaseOnComplete());
+            } else {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    private ClientBuckets bucketsFor(String client) {
+        return buckets.get(client, key -> new ClientBuckets(
+                new TokenBucket(readRate, readBurst), new TokenBucket(writeRate, writeBurst)));
+    }
+
+    private TokenBucket bucket(HttpServletRequest request, String access) {
+        String client = StringUtils.hasText(clientHeader) ? request.getHeader(clientHeader) : null;
+        ClientBuckets clientBuckets = bucketsFor(client != null ? client : request.getRemoteAddr());
+        return access.equals("read") ? clientBuckets.read() : clientBuckets.write();
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private static boolean isRead(HttpServletRequest request) {
+        String method = request.getMethod();
+        return HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method);
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, String retryAfter, String detail,
+                        String reason, String access) throws IOException {
+        meterRegistry.counter("posts.admission.rejected", "reason", reason, "access", access).increment();
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+        response.setContentType(MediaType.APPLICATION_PROBLEM_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), ProblemDetail.forStatusAndDetail(status, detail));
+    }
+
+    private class ReleaseOnComplete implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            inFlight.decrementAndGet();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package dev.danvega.posts.admission;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket holding up to {@code burst} tokens and refilled at {@code ratePerSecond}. The state is
+ * a single timestamp, the instant at which the bucket would be full again (the GCRA form of the same
+ * algorithm), so taking a token is one compare-and-set: no lock, no refill thread, and nothing to do
+ * for clients that have gone quiet.
+ */
+final class TokenBucket {
+
+    private final long nanosPerToken;
+    private final long burstNanos;
+    private final AtomicLong fullAt = new AtomicLong(Long.MIN_VALUE);
+
+    TokenBucket(double ratePerSecond, int burst) {
+        if (ratePerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("rate and burst must be positive");
+        }
+        this.nanosPerToken = Math.max(1, (long) (1_000_000_000L / ratePerSecond));
+        this.burstNanos = nanosPerToken * burst;
+    }
+
+    /**
+     * Takes one token at {@code now} (a {@link System#nanoTime()} reading).
+     *
+     * @return 0 if a token was taken, otherwise how many nanoseconds until one will be available
+     */
+    long tryAcquire(long now) {
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, now) + nanosPerToken;
+            long wait = next - now - burstNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
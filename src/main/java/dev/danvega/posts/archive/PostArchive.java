@@ -0,0 +1,213 @@
+package dev.danvega.posts.archive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.danvega.posts.data.Post;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Read side of {@code post_archive}, where {@link PostArchiver} keeps cold posts. Each row holds one
+ * block of consecutive ids as a gzipped JSON array, so a few thousand small posts cost one row, one
+ * index entry and a fraction of their raw size. Archived posts are read-only, and no new post can be
+ * created with an id inside an archived block.
+ * <p>
+ * A lookup finds the block covering the id through the primary key and decodes it; the last
+ * {@code posts.archive.cache-size} decoded blocks are kept on the heap.
+ */
+@Component
+@ConditionalOnProperty(name = "posts.archive.enabled", havingValue = "true")
+public class PostArchive {
+
+    /**
+     * Set to {@code excluded} on responses that list live posts only while archiving is enabled.
+     */
+    public static final String ARCHIVED_POSTS_HEADER = "X-Archived-Posts";
+
+    private record Block(long firstId, long lastId) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectWriter writer;
+    private final ObjectReader reader;
+    // decoded blocks in id order, so a block can be listed as well as looked up
+    private final Cache<Long, NavigableMap<Integer, Post>> blocks;
+
+    public PostArchive(JdbcTemplate jdbcTemplate,
+                       ObjectMapper objectMapper,
+                       @Value("${posts.archive.cache-size:100}") long cacheSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.writer = objectMapper.writerFor(Post[].class);
+        this.reader = objectMapper.readerForListOf(Post.class);
+        this.blocks = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                // another instance may have merged late posts into a block since it was decoded
+                .expireAfterWrite(Duration.ofMinutes(10))
+                .build();
+    }
+
+    public Optional<Post> findById(Integer id) {
+        Block block = blockOf(id);
+        if (block == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(blocks.get(block.firstId(), this::load).get(id));
+    }
+
+    public boolean contains(Integer id) {
+        return findById(id).isPresent();
+    }
+
+    /**
+     * Whether the id lies in an archived block, whether or not a post with that id was archived. A new
+     * post there would be overwritten by the archived one, or hide it, so it cannot be created.
+     */
+    public boolean covers(Integer id) {
+        return blockOf(id) != null;
+    }
+
+    /**
+     * The ids that lie in an archived block, read with one query for the whole list.
+     */
+    public Set<Integer> covered(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return Set.of();
+        }
+        int min = ids.stream().mapToInt(Integer::intValue).min().orElseThrow();
+        int max = ids.stream().mapToInt(Integer::intValue).max().orElseThrow();
+        NavigableMap<Long, Long> lastIds = new TreeMap<>();
+        jdbcTemplate.query("SELECT first_id, last_id FROM post_archive WHERE first_id <= ? AND last_id >= ?",
+                rs -> {
+                    lastIds.put(rs.getLong(1), rs.getLong(2));
+                }, max, min);
+        return ids.stream()
+                .filter(id -> {
+                    Map.Entry<Long, Long> block = lastIds.floorEntry(id.longValue());
+                    return block != null && block.getValue() >= id;
+                })
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Archived posts with {@code after < id <= to}, optionally of one user only, in id order. Null
+     * {@code userid} or {@code to} leave that side unfiltered. Blocks are read and decoded one at a time
+     * as the stream reaches them, without going through the block cache.
+     */
+    public Stream<Post> posts(Integer userid, long after, Long to) {
+        List<Long> firstIds = jdbcTemplate.queryForList(
+                "SELECT first_id FROM post_archive WHERE last_id > ? AND first_id <= ? ORDER BY first_id",
+                Long.class, after, to == null ? Long.MAX_VALUE : to);
+        return firstIds.stream()
+                .flatMap(firstId -> block(firstId).stream())
+                .filter(post -> post.id() > after && (to == null || post.id() <= to)
+                        && (userid == null || userid.equals(post.userid())));
+    }
+
+    /**
+     * Every archived post, in id order, with blocks taken from and kept in the block cache, so that
+     * repeated full listings decode each block once while it stays cached. With more blocks than
+     * {@code posts.archive.cache-size}, each listing still decodes the ones that do not fit.
+     */
+    public Stream<Post> all() {
+        return jdbcTemplate.queryForList("SELECT first_id FROM post_archive ORDER BY first_id", Long.class).stream()
+                .flatMap(firstId -> blocks.get(firstId, this::load).values().stream());
+    }
+
+    /**
+     * Hands {@code action} the posts {@code live} streams and the {@code archived} ones, merged into id
+     * order. Both must already be in id order.
+     */
+    public static void merge(Stream<Post> archived, Consumer<Consumer<Post>> live, Consumer<Post> action) {
+        Iterator<Post> iterator = archived.iterator();
+        Post[] pending = {iterator.hasNext() ? iterator.next() : null};
+        live.accept(post -> {
+            while (pending[0] != null && pending[0].id() < post.id()) {
+                action.accept(pending[0]);
+                pending[0] = iterator.hasNext() ? iterator.next() : null;
+            }
+            action.accept(post);
+        });
+        if (pending[0] != null) {
+            action.accept(pending[0]);
+            iterator.forEachRemaining(action);
+        }
+    }
+
+    /**
+     * The posts archived in the block starting at {@code firstId}, or an empty list.
+     */
+    List<Post> block(long firstId) {
+        List<byte[]> payload = jdbcTemplate.query("SELECT payload FROM post_archive WHERE first_id = ?",
+                (rs, row) -> rs.getBytes(1), firstId);
+        return payload.isEmpty() ? List.of() : decode(payload.getFirst());
+    }
+
+    void evict(long firstId) {
+        blocks.invalidate(firstId);
+    }
+
+    // blocks never overlap, so the nearest block starting at or below the id is the only candidate
+    private Block blockOf(Integer id) {
+        List<Block> candidates = jdbcTemplate.query(
+                "SELECT first_id, last_id FROM post_archive WHERE first_id <= ? ORDER BY first_id DESC LIMIT 1",
+                (rs, row) -> new Block(rs.getLong(1), rs.getLong(2)), id);
+        if (candidates.isEmpty() || candidates.getFirst().lastId() < id) {
+            return null;
+        }
+        return candidates.getFirst();
+    }
+
+    private NavigableMap<Integer, Post> load(long firstId) {
+        return block(firstId).stream()
+                .collect(Collectors.toMap(Post::id, Function.identity(), (first, second) -> second, TreeMap::new));
+    }
+
+    // archived once and read rarely, so spend the extra CPU on the best ratio
+    byte[] encode(List<Post> posts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            writer.writeValue(gzip, posts.toArray(Post[]::new));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    List<Post> decode(byte[] payload) {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(payload))) {
+            return reader.readValue(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
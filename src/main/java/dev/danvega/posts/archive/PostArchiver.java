@@ -0,0 +1,182 @@
+package dev.danvega.posts.archive;
+
+import dev.danvega.posts.cache.PostCacheConfig;
+import dev.danvega.posts.data.Post;
+import dev.danvega.posts.repository.PostChangeCounter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.DataClassRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves cold posts out of {@code Post} into {@link PostArchive}, every {@code posts.archive.interval}.
+ * <p>
+ * Posts are archived in blocks of {@code posts.archive.block-size} consecutive ids, aligned to
+ * multiples of the block size, and only once the whole block lies more than
+ * {@code posts.archive.hot-posts} ids below the highest id: ids are handed out in increasing order,
+ * so the lowest ones are the oldest. A run archives at most {@code max-blocks-per-run} blocks. Each
+ * block is one transaction that locks the block's rows, writes the archive row and deletes them from
+ * {@code Post}. The API refuses to create posts inside an archived block, but one that gets there anyway,
+ * through the seed loader or by racing with the move, is merged into the block on the next run. Should
+ * its id already be archived, the archived post is kept and the newer row is logged and discarded.
+ * <p>
+ * Archiving is not a delete as far as the API is concerned: no {@code PostChangedEvent} is published,
+ * the post stays readable through {@code GET /api/posts/{id}}, the full listings ({@code GET /api/posts},
+ * {@code /page}, {@code /stream} and {@code /export}) merge archived posts back in, and only writes to
+ * it are refused. Per-user pages and search cover live posts only; see their controllers. With
+ * range partitioning, emptied partitions are dropped by {@code PostPartitionMaintainer}.
+ * {@code block-size} must not change once posts have been archived. Archived posts are counted as
+ * {@code posts.archive.archived}.
+ */
+@Component
+@ConditionalOnProperty(name = "posts.archive.enabled", havingValue = "true")
+class PostArchiver implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(PostArchiver.class);
+    private static final RowMapper<Post> POST_ROW_MAPPER = new DataClassRowMapper<>(Post.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PostArchive archive;
+    private final Cache postCache;
+    private final Counter archived;
+    private final long blockSize;
+    private final long hotPosts;
+    private final int maxBlocksPerRun;
+    private final Duration interval;
+    private ScheduledExecutorService scheduler;
+
+    PostArchiver(JdbcTemplate jdbcTemplate,
+                 PlatformTransactionManager transactionManager,
+                 PostArchive archive,
+                 CacheManager cacheManager,
+                 ObjectProvider<MeterRegistry> meterRegistry,
+                 @Value("${posts.archive.block-size:1000}") long blockSize,
+                 @Value("${posts.archive.hot-posts:100000}") long hotPosts,
+                 @Value("${posts.archive.max-blocks-per-run:100}") int maxBlocksPerRun,
+                 @Value("${posts.archive.interval:1h}") Duration interval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.archive = archive;
+        this.postCache = cacheManager.getCache(PostCacheConfig.POSTS_CACHE);
+        this.archived = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry).counter("posts.archive.archived");
+        this.blockSize = blockSize;
+        this.hotPosts = hotPosts;
+        this.maxBlocksPerRun = maxBlocksPerRun;
+        this.interval = interval;
+    }
+
+    /**
+     * Archives the cold blocks, lowest first, and returns the number of posts moved.
+     */
+    synchronized long archive() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM Post", Long.class);
+        if (maxId == null) {
+            return 0;
+        }
+        long boundary = maxId - hotPosts;
+        long moved = 0;
+        Long next = jdbcTemplate.queryForObject("SELECT MIN(id) FROM Post", Long.class);
+        for (int blocks = 0; blocks < maxBlocksPerRun && next != null; blocks++) {
+            long firstId = Math.floorDiv(next, blockSize) * blockSize;
+            long lastId = firstId + blockSize - 1;
+            if (lastId > boundary) {
+                break;
+            }
+            moved += archiveBlock(firstId, lastId);
+            next = jdbcTemplate.queryForObject("SELECT MIN(id) FROM Post WHERE id > ?", Long.class, lastId);
+        }
+        if (moved > 0) {
+            log.info("Archived {} posts below id {}", moved, boundary + 1);
+        }
+        return moved;
+    }
+
+    private int archiveBlock(long firstId, long lastId) {
+        List<Post> posts = transactionTemplate.execute(status -> {
+            // locked, so an update racing with the move waits and then finds the post gone
+            List<Post> cold = jdbcTemplate.query(
+                    "SELECT id, userid, title, body, version FROM Post WHERE id BETWEEN ? AND ? ORDER BY id FOR UPDATE",
+                    POST_ROW_MAPPER, firstId, lastId);
+            if (cold.isEmpty()) {
+                return cold;
+            }
+            List<Post> earlier = archive.block(firstId);
+            Map<Integer, Post> merged = new TreeMap<>();
+            earlier.forEach(post -> merged.put(post.id(), post));
+            for (Post post : cold) {
+                // the archived copy was there first; overwriting it would lose it for good
+                Post kept = merged.putIfAbsent(post.id(), post);
+                if (kept != null) {
+                    log.warn("Discarding post {} in favour of the archived post with the same id: {}", post.id(), post);
+                }
+            }
+            byte[] payload = archive.encode(List.copyOf(merged.values()));
+            if (earlier.isEmpty()) {
+                jdbcTemplate.update("INSERT INTO post_archive (first_id, last_id, posts, payload) VALUES (?, ?, ?, ?)",
+                        firstId, lastId, merged.size(), payload);
+            } else {
+                jdbcTemplate.update("UPDATE post_archive SET posts = ?, payload = ? WHERE first_id = ?",
+                        merged.size(), payload, firstId);
+            }
+            // by id rather than range: a post inserted into the block after the SELECT stays for the next run
+            jdbcTemplate.batchUpdate("DELETE FROM Post WHERE id = ?", cold, cold.size(),
+                    (ps, post) -> ps.setInt(1, post.id()));
+            // the rows left Post, so the collection ETag must change even though no event is published
+            jdbcTemplate.update(PostChangeCounter.INCREMENT_SQL);
+            return cold;
+        });
+        archive.evict(firstId);
+        // a cached copy would let a write through to a post that is now read-only
+        posts.forEach(post -> postCache.evict(post.id()));
+        archived.increment(posts.size());
+        return posts.size();
+    }
+
+    private void run() {
+        try {
+            archive();
+        } catch (RuntimeException e) {
+            log.error("Archiving failed, retrying in {}", interval, e);
+        }
+    }
+
+    @Override
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("post-archiver").daemon().factory());
+        scheduler.scheduleWithFixedDelay(this::run, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return scheduler != null;
+    }
+}
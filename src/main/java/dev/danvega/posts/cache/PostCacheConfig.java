@@ -0,0 +1,45 @@
+package dev.danvega.posts.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.danvega.posts.coalescing.CoalescingConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Bounded read-through cache in front of {@link dev.danvega.posts.repository.PostRepository#findById}.
+ * Hit, miss and eviction counts are published by Actuator as {@code cache.gets} and {@code cache.evictions}.
+ */
+@Configuration
+// outside the read coalescer: a cache hit is answered before it could wait on another caller
+@EnableCaching(order = CoalescingConfig.ORDER - 1)
+public class PostCacheConfig {
+
+    public static final String POSTS_CACHE = "posts";
+
+    @Bean
+    public CacheManager cacheManager(@Value("${posts.cache.maximum-size:10000}") long maximumSize,
+                                     @Value("${posts.cache.time-to-live:10m}") Duration timeToLive,
+                                     @Value("${posts.cache.tombstone-time-to-live:1m}") Duration tombstoneTimeToLive) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager() {
+            @Override
+            protected org.springframework.cache.Cache adaptCaffeineCache(String name, Cache<Object, Object> cache) {
+                return new VersionedPostCache(name, cache, tombstoneTimeToLive);
+            }
+        };
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .recordStats());
+        cacheManager.setAllowNullValues(false);
+        cacheManager.setCacheNames(List.of(POSTS_CACHE));
+        return cacheManager;
+    }
+}
@@ -0,0 +1,45 @@
+package dev.danvega.posts.cache;
+
+import dev.danvega.posts.event.PostChangedEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Keeps the posts cache in line with writes that bypass the annotated repository methods,
+ * such as the batch endpoints. Runs after the writing transaction commits; repeating the work
+ * for writes the annotations already handled is harmless.
+ */
+@Component
+class PostCacheInvalidator {
+
+    private final Cache cache;
+
+    PostCacheInvalidator(CacheManager cacheManager) {
+        this.cache = cacheManager.getCache(PostCacheConfig.POSTS_CACHE);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    void on(PostChangedEvent event) {
+        // putting the new version (rather than evicting) stops a concurrent reader's stale copy winning
+        switch (event.type()) {
+            case UPDATED -> cache.put(event.id(), event.post());
+            case CREATED -> {
+                if (cache instanceof VersionedPostCache versioned) {
+                    versioned.create(event.id());
+                } else {
+                    cache.evict(event.id());
+                }
+            }
+            // a tombstone, rather than a plain evict, stops a concurrent reader putting the deleted post back
+            case DELETED -> {
+                if (cache instanceof VersionedPostCache versioned) {
+                    versioned.delete(event.id());
+                } else {
+                    cache.evict(event.id());
+                }
+            }
+        }
+    }
+}
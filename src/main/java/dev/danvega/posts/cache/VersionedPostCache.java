@@ -0,0 +1,82 @@
+package dev.danvega.posts.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.danvega.posts.data.Post;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.time.Duration;
+
+/**
+ * Caffeine cache that never replaces a {@link Post} with one carrying an older {@code @Version}.
+ * A reader that loaded a row just before a concurrent {@code save} would otherwise be able to
+ * put its stale copy back after the writer refreshed the entry.
+ * <p>
+ * A deleted post leaves nothing to compare against, so {@link #delete} keeps a tombstone for
+ * {@code tombstoneTimeToLive} holding the version that was cached, if any. While it is there only a
+ * newer version is stored, and none at all when the deleted version was not known; {@link #create}
+ * clears it when the id is reused.
+ */
+class VersionedPostCache extends CaffeineCache {
+
+    private static final int UNKNOWN_VERSION = -1;
+
+    private final Cache<Object, Integer> tombstones;
+
+    VersionedPostCache(String name, Cache<Object, Object> cache, Duration tombstoneTimeToLive) {
+        super(name, cache, false);
+        this.tombstones = Caffeine.newBuilder().expireAfterWrite(tombstoneTimeToLive).build();
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value instanceof Post post) {
+            // compute runs under the entry's lock, so a delete cannot slip in between the check and the put
+            getNativeCache().asMap().compute(key, (k, current) -> {
+                Integer deleted = tombstones.getIfPresent(k);
+                if (deleted != null && !newerThan(post, deleted)) {
+                    return current;
+                }
+                return newest(current, post);
+            });
+        } else {
+            super.put(key, value);
+        }
+    }
+
+    /**
+     * Evicts a deleted post and keeps its tombstone, so a read that raced with the delete cannot put
+     * the post back.
+     */
+    void delete(Object key) {
+        getNativeCache().asMap().compute(key, (k, current) -> {
+            tombstones.put(k, current instanceof Post cached && cached.version() != null
+                    ? cached.version() : UNKNOWN_VERSION);
+            return null;
+        });
+    }
+
+    /**
+     * Evicts the entry for a newly created post and drops any tombstone left by an earlier post
+     * with the same id.
+     */
+    void create(Object key) {
+        getNativeCache().asMap().compute(key, (k, current) -> {
+            tombstones.invalidate(k);
+            return null;
+        });
+    }
+
+    private static boolean newerThan(Post post, int deletedVersion) {
+        return deletedVersion != UNKNOWN_VERSION && post.version() != null && post.version() > deletedVersion;
+    }
+
+    private static Object newest(Object current, Object candidate) {
+        if (current instanceof Post cached && candidate instanceof Post post
+                && cached.version() != null && post.version() != null
+                && cached.version() > post.version()) {
+            return cached;
+        }
+        return candidate;
+    }
+}
@@ -0,0 +1,18 @@
+package dev.danvega.posts.coalescing;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a read-only repository method whose concurrent calls with equal arguments may share one
+ * execution and its result; see {@link ReadCoalescer}. The result is handed to every caller as is,
+ * so it must not be modified.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Coalesced {
+}
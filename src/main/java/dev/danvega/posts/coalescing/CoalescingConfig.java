@@ -0,0 +1,47 @@
+package dev.danvega.posts.coalescing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+
+/**
+ * Applies {@link ReadCoalescer} to {@link Coalesced} repository methods. It sits inside the cache
+ * (a hit never waits on anyone) and outside the transaction, so followers do not hold a connection
+ * while the leader's query runs.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "posts.coalescing.enabled", havingValue = "true", matchIfMissing = true)
+public class CoalescingConfig {
+
+    // between PostCacheConfig's cache advisor and the transaction advisor, which takes the default
+    public static final int ORDER = Ordered.LOWEST_PRECEDENCE - 1;
+
+    // read from the Environment: advisors can be created before @Value placeholders are resolvable
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static ReadCoalescer readCoalescer(ObjectProvider<MeterRegistry> meterRegistry, Environment environment) {
+        return new ReadCoalescer(meterRegistry,
+                environment.getProperty("posts.coalescing.window", Duration.class, Duration.ZERO));
+    }
+
+    // infrastructure role: without AspectJ on the classpath only infrastructure advisors are applied
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static Advisor readCoalescingAdvisor(ReadCoalescer readCoalescer) {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(
+                new AnnotationMatchingPointcut(null, Coalesced.class, true), readCoalescer);
+        advisor.setOrder(ORDER);
+        return advisor;
+    }
+}
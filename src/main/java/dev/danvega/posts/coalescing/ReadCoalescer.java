@@ -0,0 +1,108 @@
+package dev.danvega.posts.coalescing;
+
+import dev.danvega.posts.datasource.ReplicaPinning;
+import dev.danvega.posts.event.PostChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-flight for {@link Coalesced} methods: the first call for a method and argument list runs
+ * the query, and calls with the same key that arrive while it is running wait for and share its
+ * result, or its exception. With a positive {@code window} the finished result keeps being shared
+ * for that long, which also absorbs bursts that arrive just after the query returned.
+ * <p>
+ * Any {@link PostChangedEvent} drops every shared result once the write has committed, so reads
+ * that start after that do not see data from before it; one that arrives between the commit and the
+ * listener can still share an older result. Calls made inside a transaction are never coalesced:
+ * they may depend on the transaction's own uncommitted writes. Neither are calls from a request
+ * pinned to the primary, which could otherwise share a result read from a lagging replica.
+ * <p>
+ * Counted as {@code posts.coalescing.queries} (calls that ran the query) and
+ * {@code posts.coalescing.saved} (calls that shared another one's result), both tagged by method.
+ */
+class ReadCoalescer implements MethodInterceptor {
+
+    private record Key(Method method, List<Object> arguments) {
+    }
+
+    private final ConcurrentMap<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+    private final Duration window;
+    private final Executor expiry;
+    private volatile MeterRegistry meterRegistry;
+
+    ReadCoalescer(ObjectProvider<MeterRegistry> meterRegistry, Duration window) {
+        // resolved on first use: advisors are created before the registry is ready
+        this.meterRegistryProvider = meterRegistry;
+        this.window = window;
+        this.expiry = CompletableFuture.delayedExecutor(Math.max(window.toNanos(), 0), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive() || ReplicaPinning.isPinnedToPrimary()) {
+            return invocation.proceed();
+        }
+        Key key = new Key(invocation.getMethod(), Arrays.asList(invocation.getArguments()));
+        CompletableFuture<Object> leader = new CompletableFuture<>();
+        CompletableFuture<Object> shared = inFlight.putIfAbsent(key, leader);
+        if (shared != null) {
+            counter("posts.coalescing.saved", key).increment();
+            try {
+                return shared.join();
+            } catch (CompletionException e) {
+                throw e.getCause();
+            }
+        }
+        counter("posts.coalescing.queries", key).increment();
+        try {
+            Object result = invocation.proceed();
+            leader.complete(result);
+            return result;
+        } catch (Throwable e) {
+            leader.completeExceptionally(e);
+            throw e;
+        } finally {
+            if (window.isPositive() && !leader.isCompletedExceptionally()) {
+                expiry.execute(() -> inFlight.remove(key, leader));
+            } else {
+                inFlight.remove(key, leader);
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    void on(PostChangedEvent event) {
+        inFlight.clear();
+    }
+
+    int size() {
+        return inFlight.size();
+    }
+
+    private Counter counter(String name, Key key) {
+        MeterRegistry registry = meterRegistry;
+        if (registry == null) {
+            registry = meterRegistryProvider.getIfAvailable(() -> Metrics.globalRegistry);
+            meterRegistry = registry;
+        }
+        return registry.counter(name, "method", key.method().getName());
+    }
+}
@@ -0,0 +1,203 @@
+package dev.danvega.posts.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.danvega.posts.data.Post;
+import dev.danvega.posts.event.PostChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes a single {@link Post} as JSON from a cache of already encoded bytes, so a hot post is
+ * serialized once per version rather than once per request. Registered ahead of the Jackson
+ * converter for {@code application/json}; lists, pages and the binary formats are not affected.
+ * <p>
+ * Entries are keyed by id and only used for the exact {@link Post#version()} they were encoded from;
+ * any committed change to the post drops its entry. Posts of at least
+ * {@code server.compression.min-response-size} also keep a gzip variant, sent as is to clients that
+ * accept it, with a weak ETag as the compressed bytes are a different representation. Total size is
+ * capped at {@code posts.payload-cache.max-size}; hit and miss counts are published as
+ * {@code cache.gets{cache=post-payloads}}.
+ */
+@Component
+public class PostPayloadHttpMessageConverter extends AbstractHttpMessageConverter<Post> {
+
+    private record Payload(int version, byte[] json, byte[] gzip) {
+
+        int weight() {
+            return json.length + (gzip == null ? 0 : gzip.length);
+        }
+    }
+
+    private final ObjectWriter writer;
+    private final Cache<Integer, Payload> cache;
+    private final long gzipMinSize;
+
+    public PostPayloadHttpMessageConverter(ObjectMapper objectMapper,
+                                           ObjectProvider<MeterRegistry> meterRegistry,
+                                           @Value("${posts.payload-cache.max-size:64MB}") DataSize maxSize,
+                                           @Value("${server.compression.min-response-size:2KB}") DataSize gzipMinSize) {
+        super(MediaType.APPLICATION_JSON);
+        this.writer = objectMapper.writerFor(Post.class);
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((Integer id, Payload payload) -> payload.weight())
+                .recordStats()
+                .build();
+        this.gzipMinSize = gzipMinSize.toBytes();
+        meterRegistry.ifAvailable(registry -> CaffeineCacheMetrics.monitor(registry, cache, "post-payloads"));
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return clazz == Post.class;
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected Post readInternal(Class<? extends Post> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Post payloads are write-only", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(Post post, HttpOutputMessage outputMessage) throws IOException {
+        Payload payload = payload(post);
+        HttpHeaders headers = outputMessage.getHeaders();
+        byte[] body = payload.json();
+        if (payload.gzip() != null) {
+            headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (acceptsGzip()) {
+                body = payload.gzip();
+                headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+                String etag = headers.getETag();
+                if (etag != null && !etag.startsWith("W/")) {
+                    weakenETag(outputMessage, "W/" + etag);
+                }
+            }
+        }
+        headers.setContentLength(body.length);
+        outputMessage.getBody().write(body);
+    }
+
+    // the length depends on the encoding chosen in writeInternal
+    @Override
+    protected Long getContentLength(Post post, MediaType contentType) {
+        return null;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    void on(PostChangedEvent event) {
+        cache.invalidate(event.id());
+    }
+
+    private Payload payload(Post post) {
+        // posts that are not stored yet (write-behind) have no version to key on
+        if (post.id() == null || post.version() == null) {
+            return new Payload(-1, encode(post), null);
+        }
+        Payload cached = cache.getIfPresent(post.id());
+        if (cached != null && cached.version() == post.version()) {
+            return cached;
+        }
+        byte[] json = encode(post);
+        Payload payload = new Payload(post.version(), json, json.length >= gzipMinSize ? gzip(json) : null);
+        // never let a request holding an older copy replace a newer entry
+        cache.asMap().merge(post.id(), payload, (current, candidate) ->
+                current.version() > candidate.version() ? current : candidate);
+        return payload;
+    }
+
+    private byte[] encode(Post post) {
+        try {
+            return writer.writeValueAsBytes(post);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // compressed once per version, so spend the extra CPU on the best ratio
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    // conditional request handling may already have put the strong tag on the servlet response itself
+    private static void weakenETag(HttpOutputMessage outputMessage, String etag) {
+        if (outputMessage instanceof ServletServerHttpResponse response) {
+            outputMessage.getHeaders().remove(HttpHeaders.ETAG);
+            response.getServletResponse().setHeader(HttpHeaders.ETAG, etag);
+        } else {
+            outputMessage.getHeaders().setETag(etag);
+        }
+    }
+
+    private static boolean acceptsGzip() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return false;
+        }
+        return acceptsGzip(attributes.getRequest().getHeader(HttpHeaders.ACCEPT_ENCODING));
+    }
+
+    // true when gzip is listed with a q-value above zero; "q=0", "q=0.0" and "q=0.000" all refuse it
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            if (!parts[0].trim().equalsIgnoreCase("gzip")) {
+                continue;
+            }
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (quality > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
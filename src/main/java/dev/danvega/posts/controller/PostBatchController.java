@@ -0,0 +1,161 @@
+package dev.danvega.posts.controller;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import dev.danvega.posts.archive.PostArchive;
+import dev.danvega.posts.data.BatchItemResult;
+import dev.danvega.posts.data.BatchItemStatus;
+import dev.danvega.posts.data.Post;
+import dev.danvega.posts.exception.MissingPostIdException;
+import dev.danvega.posts.repository.PostRepository;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/api/posts/batch")
+public class PostBatchController {
+
+    static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    private final PostRepository postRepository;
+    private final PostArchive archive;
+    private final Validator validator;
+    private final ObjectReader ndjsonReader;
+
+    public PostBatchController(PostRepository postRepository,
+                               ObjectProvider<PostArchive> archive,
+                               Validator validator,
+                               ObjectMapper objectMapper) {
+        this.postRepository = postRepository;
+        this.archive = archive.getIfAvailable();
+        this.validator = validator;
+        this.ndjsonReader = objectMapper.readerFor(Post.class);
+    }
+
+    @PostMapping(value = "", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<BatchItemResult> create(@RequestBody List<Post> posts) {
+        return write(posts, false, this::insertAll);
+    }
+
+    @PostMapping(value = "", consumes = APPLICATION_NDJSON_VALUE)
+    public List<BatchItemResult> createNdjson(InputStream body) throws IOException {
+        return create(readNdjson(body));
+    }
+
+    @PutMapping(value = "", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<BatchItemResult> update(@RequestBody List<Post> posts) {
+        return write(posts, true, postRepository::updateAll);
+    }
+
+    @PutMapping(value = "", consumes = APPLICATION_NDJSON_VALUE)
+    public List<BatchItemResult> updateNdjson(InputStream body) throws IOException {
+        return update(readNdjson(body));
+    }
+
+    @DeleteMapping("")
+    public List<BatchItemResult> delete(@RequestBody List<Integer> ids) {
+        if (ids.contains(null)) {
+            throw new MissingPostIdException();
+        }
+        return postRepository.deleteAllByIds(ids);
+    }
+
+    /**
+     * Validates every item, hands the valid ones to the repository as one batch and merges both
+     * sets of results back into request order.
+     */
+    private List<BatchItemResult> write(List<Post> posts, boolean requireVersion,
+                                        Function<List<Post>, List<BatchItemResult>> writer) {
+        List<BatchItemResult> results = new ArrayList<>(posts.size());
+        List<Post> valid = new ArrayList<>(posts.size());
+        List<Integer> validIndexes = new ArrayList<>(posts.size());
+        for (int i = 0; i < posts.size(); i++) {
+            Post post = posts.get(i);
+            String problem = validate(post, requireVersion);
+            if (problem == null) {
+                valid.add(post);
+                validIndexes.add(i);
+            } else {
+                results.add(BatchItemResult.failed(i, post == null ? null : post.id(), BatchItemStatus.INVALID, problem));
+            }
+        }
+        if (!valid.isEmpty()) {
+            for (BatchItemResult result : writer.apply(valid)) {
+                results.add(result.withIndex(validIndexes.get(result.index())));
+            }
+        }
+        results.sort(Comparator.comparingInt(BatchItemResult::index));
+        return results;
+    }
+
+    /**
+     * Inserts the posts, except those inside an archived block: the next archiver run would overwrite
+     * them with the archived post, so they are refused as conflicts.
+     */
+    private List<BatchItemResult> insertAll(List<Post> posts) {
+        Set<Integer> archived = archive == null ? Set.of() : archive.covered(posts.stream().map(Post::id).toList());
+        if (archived.isEmpty()) {
+            return postRepository.insertAll(posts);
+        }
+        List<BatchItemResult> results = new ArrayList<>(posts.size());
+        List<Post> live = new ArrayList<>(posts.size());
+        List<Integer> liveIndexes = new ArrayList<>(posts.size());
+        for (int i = 0; i < posts.size(); i++) {
+            Post post = posts.get(i);
+            if (archived.contains(post.id())) {
+                results.add(BatchItemResult.failed(i, post.id(), BatchItemStatus.CONFLICT, "post is archived"));
+            } else {
+                live.add(post);
+                liveIndexes.add(i);
+            }
+        }
+        if (!live.isEmpty()) {
+            for (BatchItemResult result : postRepository.insertAll(live)) {
+                results.add(result.withIndex(liveIndexes.get(result.index())));
+            }
+        }
+        results.sort(Comparator.comparingInt(BatchItemResult::index));
+        return results;
+    }
+
+    private String validate(Post post, boolean requireVersion) {
+        if (post == null) {
+            return "post is required";
+        }
+        if (post.id() == null) {
+            return "id: must not be null";
+        }
+        if (post.userid() == null) {
+            return "userid: must not be null";
+        }
+        if (requireVersion && post.version() == null) {
+            return "version: must not be null";
+        }
+        var violations = validator.validate(post);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    private List<Post> readNdjson(InputStream body) throws IOException {
+        try (MappingIterator<Post> lines = ndjsonReader.readValues(body)) {
+            return lines.readAll();
+        }
+    }
+}
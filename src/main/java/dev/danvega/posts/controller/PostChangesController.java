@@ -0,0 +1,85 @@
+package dev.danvega.posts.controller;
+
+import dev.danvega.posts.feed.PostChange;
+import dev.danvega.posts.feed.PostChangeFeed;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Server-Sent Events feed of committed post changes, for clients that would otherwise poll
+ * {@code GET /api/posts}. Each event's id is its sequence number, so an {@code EventSource}
+ * resumes where it left off by sending {@code Last-Event-ID} on reconnect; {@code ?after=} does
+ * the same for other clients. Without either the stream starts at the current end of the feed.
+ * <p>
+ * A {@code reset} event means the requested position is no longer buffered. Its id is the current
+ * end of the feed: reload the collection, then carry on from there. Changes are idempotent by
+ * {@link dev.danvega.posts.data.Post#version()}, so overlap with the reload is harmless.
+ */
+@RestController
+@RequestMapping("/api/posts")
+public class PostChangesController {
+
+    private static final int SEND_BATCH = 100;
+
+    private final PostChangeFeed feed;
+    private final Duration heartbeat;
+    private final Duration timeout;
+
+    public PostChangesController(PostChangeFeed feed,
+                                 @Value("${posts.changes.heartbeat:15s}") Duration heartbeat,
+                                 @Value("${posts.changes.timeout:30m}") Duration timeout) {
+        this.feed = feed;
+        this.heartbeat = heartbeat;
+        this.timeout = timeout;
+    }
+
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter changes(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+                              @RequestParam(required = false) Long after) {
+        long from = lastEventId != null ? lastEventId : after != null ? after : feed.lastSequence();
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        AtomicBoolean open = new AtomicBoolean(true);
+        emitter.onCompletion(() -> open.set(false));
+        emitter.onTimeout(() -> open.set(false));
+        emitter.onError(e -> open.set(false));
+        // one virtual thread per subscriber: a slow client only ever blocks its own writes
+        Thread.ofVirtual().name("post-changes-" + from).start(() -> pump(emitter, open, from));
+        return emitter;
+    }
+
+    private void pump(SseEmitter emitter, AtomicBoolean open, long after) {
+        long cursor = after;
+        try {
+            while (open.get()) {
+                PostChangeFeed.Batch batch = feed.readAfter(cursor, SEND_BATCH);
+                if (batch.gap()) {
+                    emitter.send(SseEmitter.event().id(Long.toString(feed.lastSequence())).name("reset").data(""));
+                    emitter.complete();
+                    return;
+                }
+                for (PostChange change : batch.changes()) {
+                    emitter.send(SseEmitter.event()
+                            .id(Long.toString(change.sequence()))
+                            .name(change.type().name())
+                            .data(change, MediaType.APPLICATION_JSON));
+                    cursor = change.sequence();
+                }
+                // the comment keeps proxies from closing an idle stream and detects clients that left
+                if (batch.changes().isEmpty() && !feed.awaitAfter(cursor, heartbeat)) {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            // the client disconnected or the emitter timed out; the container completes the request
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            emitter.complete();
+        }
+    }
+}
@@ -1,68 +1,262 @@
 package dev.danvega.posts.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import dev.danvega.posts.archive.PostArchive;
 import dev.danvega.posts.data.Post;
+import dev.danvega.posts.data.PostCursor;
+import dev.danvega.posts.data.PostPage;
+import dev.danvega.posts.data.PostPatch;
+import dev.danvega.posts.exception.IncompletePostException;
+import dev.danvega.posts.exception.PostArchivedException;
 import dev.danvega.posts.exception.PostNotFoundException;
+import dev.danvega.posts.exception.PreconditionFailedException;
+import dev.danvega.posts.exception.PreconditionRequiredException;
+import dev.danvega.posts.exception.WriteBehindQueueFullException;
+import dev.danvega.posts.ingest.PostWriteBehindQueue;
 import dev.danvega.posts.repository.PostRepository;
+import jakarta.validation.groups.Default;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/posts")
 public class PostController {
 
     private final PostRepository postRepository;
+    private final PostWriteBehindQueue writeBehind;
+    private final PostArchive archive;
+    private final ObjectWriter streamWriter;
+    private final int defaultPageSize;
+    private final int maxPageSize;
 
-    public PostController(PostRepository postRepository) {
+    public PostController(PostRepository postRepository,
+                          ObjectProvider<PostWriteBehindQueue> writeBehind,
+                          ObjectProvider<PostArchive> archive,
+                          ObjectMapper objectMapper,
+                          @Value("${posts.pagination.default-size:20}") int defaultPageSize,
+                          @Value("${posts.pagination.max-size:100}") int maxPageSize) {
         this.postRepository = postRepository;
+        this.writeBehind = writeBehind.getIfAvailable();
+        this.archive = archive.getIfAvailable();
+        // let the generator buffer rows instead of flushing the response after each one
+        this.streamWriter = objectMapper.writerFor(Post.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
     }
 
     @GetMapping("")
-    public List<Post> findAll() {
-        return postRepository.findAll();
+    public ResponseEntity<List<Post>> findAll(WebRequest request) {
+        String watermark = postRepository.findWatermark();
+        // weak: the list is large enough to be gzipped, and Tomcat will not compress a response
+        // carrying a strong tag since the tag would then name two different byte sequences
+        String etag = watermark == null ? null : "W/\"" + watermark + "\"";
+        if (etag != null && request.checkNotModified(etag)) {
+            return null;
+        }
+        List<Post> posts = postRepository.findAll();
+        if (archive != null) {
+            // both sides come in id order; archived blocks come from the archive's block cache
+            List<Post> merged = new ArrayList<>(posts.size());
+            PostArchive.merge(archive.all(), posts::forEach, merged::add);
+            posts = merged;
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .body(posts);
+    }
+
+    @GetMapping("/page")
+    public PostPage findPage(@RequestParam(required = false) String cursor,
+                             @RequestParam(required = false) Integer size) {
+        int limit = size == null ? defaultPageSize : Math.clamp(size, 1, maxPageSize);
+        // one extra row tells us whether there is a next page without a count query
+        int afterId = PostCursor.decode(cursor).afterId();
+        List<Post> rows = postRepository.findPageAfter(afterId, limit + 1);
+        if (archive != null) {
+            rows = Stream.concat(rows.stream(), archive.posts(null, afterId, null).limit(limit + 1))
+                    .sorted(Comparator.comparing(Post::id))
+                    .limit(limit + 1)
+                    .toList();
+        }
+        if (rows.size() <= limit) {
+            return new PostPage(rows, null);
+        }
+        List<Post> page = rows.subList(0, limit);
+        return new PostPage(page, new PostCursor(page.getLast().id()).encode());
+    }
+
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = streamWriter.createGenerator(out)) {
+                generator.writeStartArray();
+                Consumer<Post> write = post -> {
+                    try {
+                        streamWriter.writeValue(generator, post);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                };
+                if (archive == null) {
+                    postRepository.streamAll(write);
+                } else {
+                    PostArchive.merge(archive.posts(null, 0, null), postRepository::streamAll, write);
+                }
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
     }
 
     @GetMapping("/{id}")
-    public Optional<Post> findById(@PathVariable Integer id) {
-        return Optional.ofNullable(
-                postRepository.findById(id)
-                        .orElseThrow(PostNotFoundException::new));
+    public ResponseEntity<Post> findById(@PathVariable Integer id, WebRequest request) {
+        Post post = postRepository.findById(id)
+                .or(() -> archive == null ? Optional.empty() : archive.findById(id))
+                .orElseThrow(PostNotFoundException::new);
+        String etag = PostETags.of(post);
+        // answers 304 before anything is serialized
+        if (etag != null && request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .body(post);
     }
 
-    @ResponseStatus(HttpStatus.CREATED)
+    /**
+     * Inserts the post and returns 201, or in write-behind mode queues it and returns 202; see
+     * {@link PostWriteBehindQueue} for what that acknowledgement does and does not promise.
+     */
     @PostMapping("")
-    public Post create(@RequestBody @Validated Post post){
-        return postRepository.save(post);
+    public ResponseEntity<Post> create(@RequestBody @Validated({Default.class, Post.Create.class}) Post post){
+        // the next archiver run would overwrite it with the archived post
+        if (archive != null && archive.covers(post.id())) {
+            throw new PostArchivedException();
+        }
+        if (writeBehind == null) {
+            return ResponseEntity.status(HttpStatus.CREATED).body(postRepository.save(post));
+        }
+        if (!writeBehind.offer(post)) {
+            throw new WriteBehindQueueFullException();
+        }
+        return ResponseEntity.accepted().body(post);
     }
 
     @PutMapping("{id}")
-    public Post update(@PathVariable Integer id,  @RequestBody @Validated Post post){
+    public ResponseEntity<Post> update(@PathVariable Integer id,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                       @RequestBody @Validated Post post){
+        Integer requiredVersion = PostETags.requiredVersion(ifMatch);
+        if (requiredVersion != null) {
+            // the client already holds the current version: write conditionally without reading first,
+            // leaving the owner alone as the read path does; a missing row is told apart from a stale one
+            try {
+                Post saved = postRepository.patch(id, requiredVersion, new PostPatch(null, post.title(), post.body(), null))
+                        .orElseThrow(() -> notFound(id));
+                return ResponseEntity.ok().eTag(PostETags.of(saved)).body(saved);
+            } catch (OptimisticLockingFailureException e) {
+                throw new PreconditionFailedException();
+            }
+        }
         Optional<Post> existingPost = postRepository.findById(id);
         if(existingPost.isPresent()){
+            if (requiredVersion != null && !requiredVersion.equals(existingPost.get().version())) {
+                throw new PreconditionFailedException();
+            }
             Post updatedPost = new Post(
                     existingPost.get().id(),
                     existingPost.get().userid(),
                     post.title(),
-                    post.title(),
+                    post.body(),
                     existingPost.get().version()
             );
-            return postRepository.save(updatedPost);
+            Post saved = postRepository.save(updatedPost);
+            return ResponseEntity.ok().eTag(PostETags.of(saved)).body(saved);
         } else {
-            throw new PostNotFoundException();
+            throw notFound(id);
+        }
+    }
+
+    /**
+     * Changes only the fields present in the body with one {@code UPDATE ... WHERE id = ? AND version = ?}.
+     * The version comes from {@code If-Match} (412 when stale, as for PUT) or from the body (409 when stale);
+     * without either the change could silently overwrite someone else's, so it is refused with 428.
+     */
+    @PatchMapping("{id}")
+    public ResponseEntity<Post> patch(@PathVariable Integer id,
+                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                      @RequestBody @Validated PostPatch patch) {
+        if (patch.isEmpty()) {
+            throw new IncompletePostException();
+        }
+        Integer requiredVersion = PostETags.requiredVersion(ifMatch);
+        Integer version = requiredVersion != null ? requiredVersion : patch.version();
+        if (version == null) {
+            throw new PreconditionRequiredException();
+        }
+        try {
+            Post saved = postRepository.patch(id, version, patch)
+                    .orElseThrow(() -> notFound(id));
+            return ResponseEntity.ok().eTag(PostETags.of(saved)).body(saved);
+        } catch (OptimisticLockingFailureException e) {
+            if (requiredVersion != null) {
+                throw new PreconditionFailedException();
+            }
+            throw e;
         }
     }
 
     @ResponseStatus(HttpStatus.NO_CONTENT)
     @DeleteMapping("{id}")
-    public void delete(@PathVariable Integer id){
+    public void delete(@PathVariable Integer id,
+                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        Integer requiredVersion = PostETags.requiredVersion(ifMatch);
+        if (requiredVersion != null) {
+            // DELETE ... WHERE id = ? AND version = ?, no read needed
+            try {
+                postRepository.delete(new Post(id, null, null, null, requiredVersion));
+                return;
+            } catch (OptimisticLockingFailureException e) {
+                throw new PreconditionFailedException();
+            }
+        }
         Optional<Post> existingPost = postRepository.findById(id);
         if(existingPost.isPresent()){
             postRepository.deleteById(id);
         } else {
-            throw new PostNotFoundException();
+            throw notFound(id);
+        }
+    }
+
+    // archived posts can still be read, so writing to one is a conflict rather than a 404
+    private RuntimeException notFound(Integer id) {
+        if (archive != null && archive.contains(id)) {
+            return new PostArchivedException();
         }
+        return new PostNotFoundException();
     }
 }
@@ -0,0 +1,41 @@
+package dev.danvega.posts.controller;
+
+import dev.danvega.posts.data.Post;
+import dev.danvega.posts.exception.PreconditionFailedException;
+
+/**
+ * Strong entity tags derived from {@link Post#version()}: version 3 is {@code "3"}. A gzipped
+ * response carries the weak form {@code W/"3"} of the same tag.
+ */
+final class PostETags {
+
+    private PostETags() {
+    }
+
+    static String of(Post post) {
+        return post == null || post.version() == null ? null : "\"" + post.version() + "\"";
+    }
+
+    /**
+     * Returns the version an {@code If-Match} header requires, or null when there is no header or
+     * it is {@code *}. Unparseable tags can never match. A weak tag is accepted because the only weak
+     * tags handed out name the same version in gzip form, not an approximately equal one.
+     */
+    static Integer requiredVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+            throw new PreconditionFailedException();
+        }
+        try {
+            return Integer.valueOf(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new PreconditionFailedException();
+        }
+    }
+}
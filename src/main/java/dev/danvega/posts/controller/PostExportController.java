@@ -0,0 +1,149 @@
+package dev.danvega.posts.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import dev.danvega.posts.archive.PostArchive;
+import dev.danvega.posts.data.Post;
+import dev.danvega.posts.exception.InvalidExportFormatException;
+import dev.danvega.posts.repository.PostRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Full table dumps for offline processing, as NDJSON (one post per line, the default) or CSV, chosen
+ * with {@code ?format=} or the {@code Accept} header. Rows go from a forward-only cursor straight to
+ * the response, so memory does not grow with the export; with {@code Accept-Encoding: gzip} the
+ * stream is compressed as it is written (see {@code server.compression.*}).
+ * <p>
+ * Rows come in id order. An interrupted export resumes with {@code ?after=} set to the last id
+ * received; {@code userid} and {@code to} (inclusive) narrow the export. Archived posts are merged
+ * into the rows, so the export holds every post either way.
+ */
+@RestController
+@RequestMapping("/api/posts/export")
+public class PostExportController {
+
+    static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+
+    private static final String CSV_HEADER = "id,userid,title,body,version\r\n";
+
+    private final PostRepository postRepository;
+    private final PostArchive archive;
+    private final ObjectWriter rowWriter;
+
+    public PostExportController(PostRepository postRepository,
+                                ObjectProvider<PostArchive> archive,
+                                ObjectMapper objectMapper) {
+        this.postRepository = postRepository;
+        this.archive = archive.getIfAvailable();
+        // rows are separated by the newline written after each one, not Jackson's default space
+        this.rowWriter = objectMapper.writerFor(Post.class)
+                .withRootValueSeparator("")
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    @GetMapping("")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(required = false) String format,
+                                                        @RequestParam(required = false) Integer userid,
+                                                        @RequestParam(defaultValue = "0") int after,
+                                                        @RequestParam(required = false) Integer to,
+                                                        @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        boolean csv = isCsv(format, accept);
+        StreamingResponseBody body = csv
+                ? out -> writeCsv(out, userid, after, to)
+                : out -> writeNdjson(out, userid, after, to);
+        return ResponseEntity.ok()
+                .contentType(csv ? TEXT_CSV : APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(csv ? "posts.csv" : "posts.ndjson")
+                        .build().toString())
+                .body(body);
+    }
+
+    private static boolean isCsv(String format, String accept) {
+        if (format == null) {
+            return accept != null && MediaType.parseMediaTypes(accept).stream()
+                    .anyMatch(type -> type.isCompatibleWith(TEXT_CSV) && !type.isWildcardType());
+        }
+        return switch (format.toLowerCase()) {
+            case "csv" -> true;
+            case "ndjson" -> false;
+            default -> throw new InvalidExportFormatException();
+        };
+    }
+
+    private void writeNdjson(OutputStream out, Integer userid, int after, Integer to) throws IOException {
+        try (JsonGenerator generator = rowWriter.createGenerator(out)) {
+            streamRange(userid, after, to, post -> {
+                try {
+                    rowWriter.writeValue(generator, post);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    private void writeCsv(OutputStream out, Integer userid, int after, Integer to) throws IOException {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            writer.write(CSV_HEADER);
+            streamRange(userid, after, to, post -> {
+                try {
+                    writer.write(String.valueOf(post.id()));
+                    writer.write(',');
+                    writer.write(String.valueOf(post.userid()));
+                    writer.write(',');
+                    writeCsvField(writer, post.title());
+                    writer.write(',');
+                    writeCsvField(writer, post.body());
+                    writer.write(',');
+                    writer.write(post.version() == null ? "" : String.valueOf(post.version()));
+                    writer.write("\r\n");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    private void streamRange(Integer userid, int after, Integer to, Consumer<Post> consumer) {
+        if (archive == null) {
+            postRepository.streamRange(userid, after, to, consumer);
+            return;
+        }
+        PostArchive.merge(archive.posts(userid, after, to == null ? null : to.longValue()),
+                live -> postRepository.streamRange(userid, after, to, live), consumer);
+    }
+
+    // RFC 4180: quote fields holding a separator, quote or line break, and double embedded quotes
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.chars().noneMatch(c -> c == ',' || c == '"' || c == '\n' || c == '\r')) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
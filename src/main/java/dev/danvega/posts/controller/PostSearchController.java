@@ -0,0 +1,59 @@
+package dev.danvega.posts.controller;
+
+import dev.danvega.posts.archive.PostArchive;
+import dev.danvega.posts.data.Post;
+import dev.danvega.posts.data.PostSearchResult;
+import dev.danvega.posts.repository.PostRepository;
+import dev.danvega.posts.search.PostSearchIndex;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Full-text search over live posts: hits are read back from {@code Post}, so archived posts are never
+ * returned. While archiving is enabled the results say so with {@code X-Archived-Posts: excluded}.
+ */
+@RestController
+@RequestMapping("/api/posts")
+public class PostSearchController {
+
+    private final PostSearchIndex searchIndex;
+    private final PostRepository postRepository;
+    private final boolean archiving;
+    private final int maxResults;
+
+    public PostSearchController(PostSearchIndex searchIndex,
+                                PostRepository postRepository,
+                                ObjectProvider<PostArchive> archive,
+                                @Value("${posts.search.max-results:100}") int maxResults) {
+        this.searchIndex = searchIndex;
+        this.postRepository = postRepository;
+        this.archiving = archive.getIfAvailable() != null;
+        this.maxResults = maxResults;
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<PostSearchResult>> search(@RequestParam String q,
+                                         @RequestParam(defaultValue = "10") int limit) {
+        List<PostSearchIndex.Hit> hits = searchIndex.search(q, Math.clamp(limit, 1, maxResults));
+        Map<Integer, Post> posts = postRepository.findAllById(hits.stream().map(PostSearchIndex.Hit::id).toList())
+                .stream()
+                .collect(Collectors.toMap(Post::id, Function.identity()));
+        // a hit can race with a delete; skip posts that are already gone
+        List<PostSearchResult> results = hits.stream()
+                .filter(hit -> posts.containsKey(hit.id()))
+                .map(hit -> new PostSearchResult(posts.get(hit.id()), hit.score()))
+                .toList();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (archiving) {
+            response.header(PostArchive.ARCHIVED_POSTS_HEADER, "excluded");
+        }
+        return response.body(results);
+    }
+}
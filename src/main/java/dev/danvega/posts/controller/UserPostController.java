@@ -0,0 +1,81 @@
+package dev.danvega.posts.controller;
+
+import dev.danvega.posts.archive.PostArchive;
+import dev.danvega.posts.data.Post;
+import dev.danvega.posts.data.PostCursor;
+import dev.danvega.posts.data.PostPage;
+import dev.danvega.posts.data.PostSummary;
+import dev.danvega.posts.data.PostSummaryPage;
+import dev.danvega.posts.repository.PostRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * One user's posts, paged the same way as {@code /api/posts/page} with an opaque id cursor.
+ * <p>
+ * Only live posts are listed: finding a user's archived posts would mean decoding every archived
+ * block. While archiving is enabled the pages say so with {@code X-Archived-Posts: excluded}.
+ */
+@RestController
+@RequestMapping("/api/users/{userid}/posts")
+public class UserPostController {
+
+    private final PostRepository postRepository;
+    private final boolean archiving;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    public UserPostController(PostRepository postRepository,
+                              ObjectProvider<PostArchive> archive,
+                              @Value("${posts.pagination.default-size:20}") int defaultPageSize,
+                              @Value("${posts.pagination.max-size:100}") int maxPageSize) {
+        this.postRepository = postRepository;
+        this.archiving = archive.getIfAvailable() != null;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+    }
+
+    @GetMapping("")
+    public ResponseEntity<PostPage> findPage(@PathVariable Integer userid,
+                             @RequestParam(required = false) String cursor,
+                             @RequestParam(required = false) Integer size) {
+        int limit = limit(size);
+        List<Post> rows = postRepository.findPageByUserAfter(userid, PostCursor.decode(cursor).afterId(), limit + 1);
+        if (rows.size() <= limit) {
+            return respond(new PostPage(rows, null));
+        }
+        List<Post> page = rows.subList(0, limit);
+        return respond(new PostPage(page, new PostCursor(page.getLast().id()).encode()));
+    }
+
+    // id and title only, for listing views that never show the body
+    @GetMapping("/summaries")
+    public ResponseEntity<PostSummaryPage> findSummaryPage(@PathVariable Integer userid,
+                                           @RequestParam(required = false) String cursor,
+                                           @RequestParam(required = false) Integer size) {
+        int limit = limit(size);
+        List<PostSummary> rows = postRepository.findSummaryPageByUserAfter(userid,
+                PostCursor.decode(cursor).afterId(), limit + 1);
+        if (rows.size() <= limit) {
+            return respond(new PostSummaryPage(rows, null));
+        }
+        List<PostSummary> page = rows.subList(0, limit);
+        return respond(new PostSummaryPage(page, new PostCursor(page.getLast().id()).encode()));
+    }
+
+    private <T> ResponseEntity<T> respond(T page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (archiving) {
+            response.header(PostArchive.ARCHIVED_POSTS_HEADER, "excluded");
+        }
+        return response.body(page);
+    }
+
+    private int limit(Integer size) {
+        return size == null ? defaultPageSize : Math.clamp(size, 1, maxPageSize);
+    }
+}
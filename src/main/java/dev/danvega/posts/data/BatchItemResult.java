@@ -0,0 +1,19 @@
+package dev.danvega.posts.data;
+
+/**
+ * Outcome of one item of a batch request. {@code index} is the item's position in the request.
+ */
+public record BatchItemResult(int index, Integer id, BatchItemStatus status, Integer version, String message) {
+
+    public static BatchItemResult of(int index, Integer id, BatchItemStatus status, Integer version) {
+        return new BatchItemResult(index, id, status, version, null);
+    }
+
+    public static BatchItemResult failed(int index, Integer id, BatchItemStatus status, String message) {
+        return new BatchItemResult(index, id, status, null, message);
+    }
+
+    public BatchItemResult withIndex(int index) {
+        return new BatchItemResult(index, id, status, version, message);
+    }
+}
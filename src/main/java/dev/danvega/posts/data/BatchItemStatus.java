@@ -0,0 +1,10 @@
+package dev.danvega.posts.data;
+
+public enum BatchItemStatus {
+    CREATED,
+    UPDATED,
+    DELETED,
+    NOT_FOUND,
+    CONFLICT,
+    INVALID
+}
@@ -1,19 +1,30 @@
 package dev.danvega.posts.data;
 
 import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.Version;
 import org.springframework.data.relational.core.mapping.Column;
 
 public record Post(
         @Id
+        @NotNull(groups = Create.class)
         Integer id,
 
+        @NotNull(groups = Create.class)
         Integer userid,
         @NotEmpty
+        @Size(max = 250)
         String title,
         @NotEmpty
         String body,
         @Version Integer version
 ) {
+
+    /**
+     * Checks that only apply to new posts: an update may leave {@code userid} out to keep the current one.
+     */
+    public interface Create {
+    }
 }
@@ -0,0 +1,21 @@
+package dev.danvega.posts.data;
+
+import jakarta.validation.constraints.Size;
+
+/**
+ * Body of {@code PATCH /api/posts/{id}}: the fields to change, null for fields to leave alone.
+ * {@code version} is the version the change applies to, unless the request carries {@code If-Match}.
+ */
+public record PostPatch(
+        Integer userid,
+        @Size(min = 1, max = 250)
+        String title,
+        @Size(min = 1)
+        String body,
+        Integer version
+) {
+
+    public boolean isEmpty() {
+        return userid == null && title == null && body == null;
+    }
+}
@@ -0,0 +1,4 @@
+package dev.danvega.posts.data;
+
+public record PostSearchResult(Post post, double score) {
+}
@@ -0,0 +1,7 @@
+package dev.danvega.posts.data;
+
+/**
+ * The columns a listing view needs, without {@link Post#body()}.
+ */
+public record PostSummary(Integer id, String title) {
+}
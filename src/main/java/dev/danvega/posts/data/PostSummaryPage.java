@@ -0,0 +1,6 @@
+package dev.danvega.posts.data;
+
+import java.util.List;
+
+public record PostSummaryPage(List<PostSummary> posts, String nextCursor) {
+}
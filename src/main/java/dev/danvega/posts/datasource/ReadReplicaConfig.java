@@ -0,0 +1,68 @@
+package dev.danvega.posts.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-replica routing, switched on by listing replica JDBC URLs in {@code posts.datasource.replicas}.
+ * The primary comes from {@code spring.datasource.*}. Each replica gets its own Hikari pool, with the
+ * same credentials and {@code spring.datasource.hikari.*} settings as the primary, and the same
+ * {@code posts.datasource.request-connection-timeout} for web requests.
+ * <p>
+ * Only read-only transactions go to a replica. That covers the inherited {@code findAll},
+ * {@code findById} and {@code count}, the read-only query methods on
+ * {@link dev.danvega.posts.repository.PostRepository}, and streaming reads.
+ */
+@Configuration
+@ConditionalOnProperty("posts.datasource.replicas")
+public class ReadReplicaConfig {
+
+    @Bean
+    ReadReplicaRoutingDataSource readReplicaRoutingDataSource(DataSourceProperties properties,
+                                                              Environment environment,
+                                                              @Value("${posts.datasource.replicas}") List<String> replicaUrls,
+                                                              @Value("${posts.datasource.replica-max-lag:5s}") Duration maxLag,
+                                                              @Value("${posts.datasource.replica-lag-query:}") String lagQuery,
+                                                              @Value("${posts.datasource.replica-check-interval:1s}") Duration checkInterval,
+                                                              @Value("${posts.datasource.request-connection-timeout:250ms}") Duration requestTimeout) {
+        DataSource primary = new RequestCheckoutDataSource(
+                pool(properties, environment, "primary", properties.determineUrl()), requestTimeout);
+        List<DataSource> replicas = new ArrayList<>(replicaUrls.size());
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            replicas.add(new RequestCheckoutDataSource(
+                    pool(properties, environment, "replica-" + i, replicaUrls.get(i).trim()), requestTimeout));
+        }
+        return new ReadReplicaRoutingDataSource(primary, replicas, maxLag, lagQuery, checkInterval);
+    }
+
+    @Bean
+    @Primary
+    DataSource dataSource(ReadReplicaRoutingDataSource readReplicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(readReplicaRoutingDataSource);
+    }
+
+    private static HikariDataSource pool(DataSourceProperties properties, Environment environment,
+                                         String name, String url) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(url)
+                .build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+        dataSource.setPoolName(name);
+        return dataSource;
+    }
+}
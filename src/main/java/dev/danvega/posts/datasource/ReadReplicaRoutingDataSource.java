@@ -0,0 +1,152 @@
+package dev.danvega.posts.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Sends read-only transactions to a replica and everything else to the primary.
+ * <p>
+ * Must sit behind a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: the
+ * transaction manager asks for a connection before it marks the transaction read-only, and the lazy
+ * proxy defers the lookup until the first statement. Replicas take turns; one whose lag exceeds
+ * {@code maxLag}, or that cannot be queried, is skipped until the next check finds it healthy. With
+ * no healthy replica, reads go to the primary.
+ * <p>
+ * Once a request has opened a read-write transaction, its later reads also go to the primary, so a
+ * request always sees what it has just written. Work outside a web request is not pinned.
+ */
+class ReadReplicaRoutingDataSource extends AbstractRoutingDataSource implements SmartLifecycle {
+
+    static final String PRIMARY = "primary";
+
+    private static final Logger log = LoggerFactory.getLogger(ReadReplicaRoutingDataSource.class);
+
+    private final List<Replica> replicas;
+    private final Duration maxLag;
+    private final String lagQuery;
+    private final Duration checkInterval;
+    private final AtomicInteger next = new AtomicInteger();
+    private ScheduledExecutorService scheduler;
+
+    private static final class Replica {
+        final String key;
+        final JdbcTemplate jdbcTemplate;
+        volatile boolean healthy = true;
+
+        Replica(String key, DataSource dataSource) {
+            this.key = key;
+            this.jdbcTemplate = new JdbcTemplate(dataSource);
+            this.jdbcTemplate.setQueryTimeout(1);
+        }
+    }
+
+    ReadReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas,
+                                 Duration maxLag, String lagQuery, Duration checkInterval) {
+        this.replicas = IntStream.range(0, replicas.size())
+                .mapToObj(i -> new Replica("replica-" + i, replicas.get(i)))
+                .toList();
+        this.maxLag = maxLag;
+        // without a lag query a replica only has to answer to count as healthy
+        this.lagQuery = lagQuery == null || lagQuery.isBlank() ? "SELECT 0" : lagQuery;
+        this.checkInterval = checkInterval;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(this.replicas.get(i).key, replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                ReplicaPinning.pinToPrimary();
+            }
+            return PRIMARY;
+        }
+        if (ReplicaPinning.isPinnedToPrimary()) {
+            return PRIMARY;
+        }
+        for (int attempt = 0; attempt < replicas.size(); attempt++) {
+            Replica replica = replicas.get(Math.floorMod(next.getAndIncrement(), replicas.size()));
+            if (replica.healthy) {
+                return replica.key;
+            }
+        }
+        return PRIMARY;
+    }
+
+    /**
+     * Runs the lag query against every replica and marks each healthy or not. Checks run one at a
+     * time, so a slow one cannot finish after, and overwrite, a newer one.
+     */
+    synchronized void checkReplicas() {
+        for (Replica replica : replicas) {
+            boolean healthy;
+            try {
+                Double lagSeconds = replica.jdbcTemplate.queryForObject(lagQuery, Double.class);
+                healthy = lagSeconds != null && lagSeconds * 1000 <= maxLag.toMillis();
+                if (!healthy && replica.healthy) {
+                    log.warn("Replica {} is {} s behind, reading from elsewhere", replica.key, lagSeconds);
+                }
+            } catch (RuntimeException e) {
+                healthy = false;
+                if (replica.healthy) {
+                    log.warn("Replica {} is unreachable, reading from elsewhere: {}", replica.key, e.getMessage());
+                }
+            }
+            if (healthy && !replica.healthy) {
+                log.info("Replica {} is back within {} of the primary", replica.key, maxLag);
+            }
+            replica.healthy = healthy;
+        }
+    }
+
+    @Override
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("replica-lag-check").daemon().factory());
+        scheduler.scheduleWithFixedDelay(this::checkReplicas, 0, checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return scheduler != null;
+    }
+
+    // called by Spring as the bean's inferred destroy method; the pools are not beans themselves
+    public void close() {
+        getResolvedDataSources().values().forEach(dataSource -> {
+            if (dataSource instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log.warn("Failed to close data source", e);
+                }
+            }
+        });
+    }
+}
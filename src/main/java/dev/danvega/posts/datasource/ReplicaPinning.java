@@ -0,0 +1,29 @@
+package dev.danvega.posts.datasource;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Tracks whether the current web request has been pinned to the primary by
+ * {@link ReadReplicaRoutingDataSource}, so code that shares reads between requests can avoid
+ * handing a pinned request data read from a replica.
+ */
+public final class ReplicaPinning {
+
+    static final String PINNED_ATTRIBUTE = ReplicaPinning.class.getName() + ".pinned";
+
+    private ReplicaPinning() {
+    }
+
+    public static boolean isPinnedToPrimary() {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        return request != null && request.getAttribute(PINNED_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) != null;
+    }
+
+    public static void pinToPrimary() {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request != null) {
+            request.setAttribute(PINNED_ATTRIBUTE, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package dev.danvega.posts.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.time.Duration;
+
+/**
+ * Puts web requests on {@code posts.datasource.request-connection-timeout} for pool checkouts, see
+ * {@link RequestCheckoutDataSource}. Applies to the auto-configured pool; {@link ReadReplicaConfig}
+ * wraps the pools it builds itself.
+ */
+@Configuration
+public class RequestCheckoutConfig {
+
+    @Bean
+    static BeanPostProcessor requestCheckoutDataSourcePostProcessor(
+            @Value("${posts.datasource.request-connection-timeout:250ms}") Duration requestTimeout) {
+        return new OrderedBeanPostProcessor(requestTimeout);
+    }
+
+    // ahead of the tracing wrapper, so its connection span still covers the wait
+    private record OrderedBeanPostProcessor(Duration requestTimeout) implements BeanPostProcessor, Ordered {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof HikariDataSource pool && beanName.equals("dataSource")) {
+                return new RequestCheckoutDataSource(pool, requestTimeout);
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+}
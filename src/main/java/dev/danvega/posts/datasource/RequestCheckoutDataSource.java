@@ -0,0 +1,48 @@
+package dev.danvega.posts.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.pool.HikariPool;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Gives web request threads their own, short deadline for checking a connection out of a Hikari pool,
+ * so a saturated pool fails the request fast (and {@code DatabaseExceptionHandler} answers 503) while
+ * background work on the same pool (the seed loader, archiver, index and snapshot builds, replica
+ * checks) waits for the pool's own {@code connection-timeout}. Work a request hands to another thread
+ * is not on the request's deadline.
+ * <p>
+ * Hikari has no per-call timeout on the {@code DataSource}; the deadline is passed to the pool
+ * itself, which fails with the same {@link java.sql.SQLTransientConnectionException} as the pool-wide
+ * timeout. Until the pool has started, the first checkout uses the pool-wide timeout.
+ */
+class RequestCheckoutDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    private final HikariDataSource pool;
+    private final long requestTimeoutMillis;
+
+    RequestCheckoutDataSource(HikariDataSource pool, Duration requestTimeout) {
+        super(pool);
+        this.pool = pool;
+        this.requestTimeoutMillis = requestTimeout.toMillis();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (RequestContextHolder.getRequestAttributes() != null
+                && pool.getHikariPoolMXBean() instanceof HikariPool hikariPool) {
+            return hikariPool.getConnection(requestTimeoutMillis);
+        }
+        return pool.getConnection();
+    }
+
+    // called by Spring as the bean's inferred destroy method, and by ReadReplicaRoutingDataSource#close
+    @Override
+    public void close() {
+        pool.close();
+    }
+}
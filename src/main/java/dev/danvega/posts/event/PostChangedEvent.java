@@ -0,0 +1,27 @@
+package dev.danvega.posts.event;
+
+import dev.danvega.posts.data.Post;
+
+/**
+ * Published for every post created, updated or deleted, whether through {@code PostRepository}
+ * or the batch statements, so caches and other read models can follow the change.
+ * {@code post} is null for deletes. Listeners should be transactional so they only see committed writes.
+ */
+public record PostChangedEvent(Type type, Integer id, Post post) {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    public static PostChangedEvent created(Post post) {
+        return new PostChangedEvent(Type.CREATED, post.id(), post);
+    }
+
+    public static PostChangedEvent updated(Post post) {
+        return new PostChangedEvent(Type.UPDATED, post.id(), post);
+    }
+
+    public static PostChangedEvent deleted(Integer id) {
+        return new PostChangedEvent(Type.DELETED, id, null);
+    }
+}
@@ -0,0 +1,36 @@
+package dev.danvega.posts.event;
+
+import dev.danvega.posts.data.Post;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.relational.core.mapping.event.AbstractRelationalEventListener;
+import org.springframework.data.relational.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.relational.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Translates Spring Data JDBC's entity events into {@link PostChangedEvent}s, so listeners see
+ * repository writes and batch writes the same way.
+ */
+@Component
+class PostRepositoryEventPublisher extends AbstractRelationalEventListener<Post> {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    PostRepositoryEventPublisher(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    protected void onAfterSave(AfterSaveEvent<Post> event) {
+        Post post = event.getEntity();
+        // @Version starts at 0 on insert
+        eventPublisher.publishEvent(post.version() != null && post.version() == 0
+                ? PostChangedEvent.created(post)
+                : PostChangedEvent.updated(post));
+    }
+
+    @Override
+    protected void onAfterDelete(AfterDeleteEvent<Post> event) {
+        eventPublisher.publishEvent(PostChangedEvent.deleted((Integer) event.getId().getValue()));
+    }
+}
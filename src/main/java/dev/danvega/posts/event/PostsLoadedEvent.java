@@ -0,0 +1,9 @@
+package dev.danvega.posts.event;
+
+/**
+ * Published when the seed loader finishes an import in the background. The loader writes straight
+ * to the database without a {@link PostChangedEvent} per row, so read models built from a table scan
+ * at startup should scan again when they see this.
+ */
+public record PostsLoadedEvent(String source, long loaded) {
+}
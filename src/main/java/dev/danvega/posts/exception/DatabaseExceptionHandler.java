@@ -0,0 +1,58 @@
+package dev.danvega.posts.exception;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+/**
+ * Turns connection pool timeouts into an immediate 503 with a {@code Retry-After} hint, so a
+ * saturated pool sheds load instead of letting requests queue behind it, and stale {@code @Version}
+ * writes into 409. A full write-behind queue is shed the same way as a saturated pool.
+ */
+@RestControllerAdvice
+public class DatabaseExceptionHandler {
+
+    private final String retryAfterSeconds;
+
+    public DatabaseExceptionHandler(@Value("${posts.datasource.retry-after:1s}") Duration retryAfter) {
+        this.retryAfterSeconds = String.valueOf(Math.max(1, retryAfter.toSeconds()));
+    }
+
+    @ExceptionHandler({DataAccessResourceFailureException.class, CannotCreateTransactionException.class})
+    public ResponseEntity<ProblemDetail> handleConnectionFailure(RuntimeException e) throws RuntimeException {
+        if (!(NestedExceptionUtils.getMostSpecificCause(e) instanceof SQLTransientConnectionException)) {
+            throw e;
+        }
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.SERVICE_UNAVAILABLE,
+                "Database connection pool is saturated, retry later");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds)
+                .body(problem);
+    }
+
+    @ExceptionHandler(WriteBehindQueueFullException.class)
+    public ResponseEntity<ProblemDetail> handleWriteBehindQueueFull(WriteBehindQueueFullException e) {
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(HttpStatus.SERVICE_UNAVAILABLE,
+                "Write-behind queue is full, retry later");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds)
+                .body(problem);
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ProblemDetail> handleVersionConflict(OptimisticLockingFailureException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT, "Post was modified concurrently"));
+    }
+}
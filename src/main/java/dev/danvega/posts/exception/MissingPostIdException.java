@@ -0,0 +1,8 @@
+package dev.danvega.posts.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class MissingPostIdException extends RuntimeException{
+}
@@ -0,0 +1,8 @@
+package dev.danvega.posts.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class PostArchivedException extends RuntimeException{
+}
@@ -0,0 +1,10 @@
+package dev.danvega.posts.feed;
+
+import dev.danvega.posts.data.Post;
+import dev.danvega.posts.event.PostChangedEvent;
+
+/**
+ * A committed {@link PostChangedEvent} with its position in the {@link PostChangeFeed}.
+ */
+public record PostChange(long sequence, PostChangedEvent.Type type, Integer id, Post post) {
+}
@@ -0,0 +1,104 @@
+package dev.danvega.posts.feed;
+
+import dev.danvega.posts.event.PostChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded in-memory log of committed post changes, numbered from 1 in commit order.
+ * <p>
+ * The newest {@code posts.changes.buffer-size} changes are kept in a ring; appending overwrites the
+ * oldest slot and never waits for readers, so a slow subscriber cannot hold up a write. A reader
+ * that falls further behind than the ring holds gets {@link Batch#gap()} and has to resynchronise
+ * from {@code GET /api/posts}. Sequence numbers restart with the application.
+ */
+@Component
+public class PostChangeFeed {
+
+    /**
+     * Changes after the requested sequence, oldest first. {@code gap} means some of them are no
+     * longer (or were never) in the buffer.
+     */
+    public record Batch(List<PostChange> changes, boolean gap) {
+    }
+
+    private final PostChange[] ring;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    private long last;
+
+    public PostChangeFeed(@Value("${posts.changes.buffer-size:10000}") int bufferSize) {
+        this.ring = new PostChange[bufferSize];
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    void on(PostChangedEvent event) {
+        lock.lock();
+        try {
+            PostChange change = new PostChange(last + 1, event.type(), event.id(), event.post());
+            ring[(int) (change.sequence() % ring.length)] = change;
+            last = change.sequence();
+            appended.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long lastSequence() {
+        lock.lock();
+        try {
+            return last;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns up to {@code max} changes with a sequence greater than {@code after}, without waiting.
+     */
+    public Batch readAfter(long after, int max) {
+        lock.lock();
+        try {
+            long oldest = Math.max(1, last - ring.length + 1);
+            // a sequence from before a restart can be ahead of this feed
+            if (after < oldest - 1 || after > last) {
+                return new Batch(List.of(), true);
+            }
+            int count = (int) Math.min(max, last - after);
+            List<PostChange> changes = new ArrayList<>(count);
+            for (long sequence = after + 1; sequence <= after + count; sequence++) {
+                changes.add(ring[(int) (sequence % ring.length)]);
+            }
+            return new Batch(changes, false);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until a change after {@code after} has been appended or the timeout elapses.
+     * Returns whether there is something new to read.
+     */
+    public boolean awaitAfter(long after, Duration timeout) throws InterruptedException {
+        long nanos = timeout.toNanos();
+        lock.lock();
+        try {
+            while (last <= after) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = appended.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package dev.danvega.posts.ingest;
+
+import dev.danvega.posts.data.BatchItemResult;
+import dev.danvega.posts.data.BatchItemStatus;
+import dev.danvega.posts.data.Post;
+import dev.danvega.posts.repository.PostRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Write-behind buffer for {@code POST /api/posts}, enabled with {@code posts.write-behind.enabled=true}.
+ * <p>
+ * Accepted posts wait in a bounded queue of {@code posts.write-behind.capacity}. A single flusher
+ * thread inserts them with {@link PostRepository#insertAll} once {@code batch-size} posts have been
+ * collected or the oldest has waited {@code flush-interval}. A flush that fails because the database
+ * is unreachable is retried with exponential backoff from {@code initial-backoff} up to
+ * {@code max-backoff}. While it retries the queue fills up, and then new posts are refused with 503.
+ * <p>
+ * A batch that fails with any other error is split in half and each half is flushed again, down to
+ * single posts, so a row the database refuses costs only that row and not the rest of its batch.
+ * <p>
+ * What this mode keeps:
+ * <ul>
+ *     <li>Posts are validated before they are accepted, exactly as in synchronous mode.</li>
+ *     <li>Posts are inserted in the order they were accepted.</li>
+ *     <li>A database outage that ends while the application is running loses nothing; the batch is
+ *     retried until it commits.</li>
+ *     <li>A graceful shutdown stops taking posts and drains the queue for up to {@code shutdown-timeout}.</li>
+ * </ul>
+ * What it gives up:
+ * <ul>
+ *     <li>202 means "in memory", not "committed". A crash, {@code kill -9} or an outage outlasting the
+ *     shutdown timeout loses everything still queued, up to {@code capacity} posts.</li>
+ *     <li>Read-your-writes: {@code GET /api/posts/{id}} returns 404 until the post is flushed.</li>
+ *     <li>Insert errors are not reported to the client. A post whose id already exists, or that the
+ *     database refuses for any other reason validation did not catch, is logged and counted in
+ *     {@code posts.write-behind.dropped}. A retry after a commit whose acknowledgement was lost is
+ *     also reported this way, although the posts were written.</li>
+ *     <li>Each instance has its own queue, so there is no ordering between instances.</li>
+ * </ul>
+ * Metrics: {@code posts.write-behind.queue.depth}, {@code posts.write-behind.flush} (latency, by outcome),
+ * {@code posts.write-behind.retries}, {@code posts.write-behind.rejected} and {@code posts.write-behind.dropped}.
+ */
+@Component
+@ConditionalOnProperty(name = "posts.write-behind.enabled", havingValue = "true")
+public class PostWriteBehindQueue implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(PostWriteBehindQueue.class);
+
+    private final PostRepository postRepository;
+    private final MeterRegistry meterRegistry;
+    private final BlockingQueue<Post> queue;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration shutdownTimeout;
+    private final Counter retries;
+    private final Counter rejected;
+    private volatile boolean running;
+    private volatile long drainDeadline;
+    private Thread flusher;
+
+    public PostWriteBehindQueue(PostRepository postRepository,
+                                MeterRegistry meterRegistry,
+                                @Value("${posts.write-behind.capacity:10000}") int capacity,
+                                @Value("${posts.write-behind.batch-size:500}") int batchSize,
+                                @Value("${posts.write-behind.flush-interval:200ms}") Duration flushInterval,
+                                @Value("${posts.write-behind.initial-backoff:100ms}") Duration initialBackoff,
+                                @Value("${posts.write-behind.max-backoff:5s}") Duration maxBackoff,
+                                @Value("${posts.write-behind.shutdown-timeout:10s}") Duration shutdownTimeout) {
+        this.postRepository = postRepository;
+        this.meterRegistry = meterRegistry;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.shutdownTimeout = shutdownTimeout;
+        this.retries = meterRegistry.counter("posts.write-behind.retries");
+        this.rejected = meterRegistry.counter("posts.write-behind.rejected");
+        Gauge.builder("posts.write-behind.queue.depth", queue, BlockingQueue::size).register(meterRegistry);
+    }
+
+    /**
+     * Queues a validated post for insertion. Returns false, without waiting, when the queue is full
+     * or the application is shutting down.
+     */
+    public boolean offer(Post post) {
+        boolean accepted = running && queue.offer(post);
+        if (!accepted) {
+            rejected.increment();
+        }
+        return accepted;
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        flusher = Thread.ofPlatform().name("post-write-behind").start(this::run);
+    }
+
+    @Override
+    public void stop() {
+        drainDeadline = System.nanoTime() + shutdownTimeout.toNanos();
+        running = false;
+        try {
+            flusher.join(shutdownTimeout.plus(flushInterval));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            log.error("Write-behind stopped with {} accepted posts not written", queue.size());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // lifecycles stop from the highest phase down: Boot's web server stops at DEFAULT_PHASE - 2048, so
+    // this runs once it has stopped taking requests, and before the DataSource closes
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void run() {
+        List<Post> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                fill(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+    }
+
+    /**
+     * Waits for a first post, then collects more until the batch is full or that post has waited
+     * one flush interval.
+     */
+    private void fill(List<Post> batch) throws InterruptedException {
+        Post first = queue.poll(flushInterval.toNanos(), TimeUnit.NANOSECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + flushInterval.toNanos();
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() == batchSize || remaining <= 0 || !running) {
+                return;
+            }
+            Post next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flush(List<Post> batch) {
+        long backoff = initialBackoff.toNanos();
+        while (true) {
+            long start = System.nanoTime();
+            try {
+                List<BatchItemResult> results = postRepository.insertAll(batch);
+                record("success", start);
+                long failed = results.stream().filter(result -> result.status() != BatchItemStatus.CREATED).count();
+                if (failed > 0) {
+                    log.warn("Write-behind flush skipped {} of {} posts: {}", failed, batch.size(),
+                            results.stream().filter(result -> result.status() != BatchItemStatus.CREATED).findFirst().orElseThrow());
+                    dropped("conflict").increment(failed);
+                }
+                return;
+            } catch (TransientDataAccessException | RecoverableDataAccessException
+                     | DataAccessResourceFailureException | CannotCreateTransactionException e) {
+                record("failure", start);
+                if (!running && System.nanoTime() - drainDeadline > 0) {
+                    log.error("Write-behind giving up on {} posts after shutdown timeout", batch.size(), e);
+                    dropped("error").increment(batch.size());
+                    return;
+                }
+                retries.increment();
+                log.warn("Write-behind flush of {} posts failed, retrying in {} ms: {}",
+                        batch.size(), TimeUnit.NANOSECONDS.toMillis(backoff), e.getMessage());
+                LockSupport.parkNanos(backoff);
+                backoff = Math.min(backoff * 2, maxBackoff.toNanos());
+            } catch (RuntimeException e) {
+                record("failure", start);
+                if (batch.size() == 1) {
+                    log.error("Write-behind dropping post {} after a non-transient error", batch.getFirst().id(), e);
+                    dropped("error").increment();
+                    return;
+                }
+                // one bad row rolls back the whole batch: bisect until only the rows that fail are left
+                log.warn("Write-behind flush of {} posts failed, splitting the batch: {}", batch.size(), e.getMessage());
+                int middle = batch.size() / 2;
+                flush(batch.subList(0, middle));
+                flush(batch.subList(middle, batch.size()));
+                return;
+            }
+        }
+    }
+
+    private void record(String outcome, long start) {
+        Timer.builder("posts.write-behind.flush")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private Counter dropped(String reason) {
+        return meterRegistry.counter("posts.write-behind.dropped", "reason", reason);
+    }
+}
@@ -0,0 +1,85 @@
+package dev.danvega.posts.metrics;
+
+import dev.danvega.posts.data.BatchItemResult;
+import dev.danvega.posts.data.BatchItemStatus;
+import dev.danvega.posts.data.PostPage;
+import dev.danvega.posts.data.PostSummaryPage;
+import dev.danvega.posts.exception.PostNotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.List;
+
+/**
+ * Records post-specific metrics next to the per-endpoint {@code http.server.requests} timers:
+ * <ul>
+ *     <li>{@code posts.not.found}: requests for ids that do not exist</li>
+ *     <li>{@code posts.version.conflicts}: optimistic-lock failures, tagged by source</li>
+ *     <li>{@code posts.result.size}: number of posts in list responses, tagged by endpoint</li>
+ * </ul>
+ * The not-found handler only counts and rethrows, leaving the response to the regular resolvers.
+ */
+@RestControllerAdvice
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class PostMetricsAdvice implements ResponseBodyAdvice<Object> {
+
+    private final MeterRegistry meterRegistry;
+
+    public PostMetricsAdvice(ObjectProvider<MeterRegistry> meterRegistry) {
+        // web slice tests have no registry; the global one is a no-op there
+        this.meterRegistry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+    }
+
+    @ExceptionHandler(PostNotFoundException.class)
+    public void countNotFound(PostNotFoundException e) {
+        meterRegistry.counter("posts.not.found").increment();
+        throw e;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        String endpoint = returnType.getContainingClass().getSimpleName() + "." + returnType.getMethod().getName();
+        if (body instanceof ProblemDetail problem && problem.getStatus() == HttpStatus.CONFLICT.value()) {
+            meterRegistry.counter("posts.version.conflicts", "source", "single").increment();
+        } else if (body instanceof PostPage page) {
+            recordResultSize(endpoint, page.posts().size());
+        } else if (body instanceof PostSummaryPage page) {
+            recordResultSize(endpoint, page.posts().size());
+        } else if (body instanceof List<?> list) {
+            recordResultSize(endpoint, list.size());
+            // only batch updates check versions; CONFLICT on inserts means the id already exists
+            long conflicts = request.getMethod() != HttpMethod.PUT ? 0 : list.stream()
+                    .filter(item -> item instanceof BatchItemResult result && result.status() == BatchItemStatus.CONFLICT)
+                    .count();
+            if (conflicts > 0) {
+                meterRegistry.counter("posts.version.conflicts", "source", "batch").increment(conflicts);
+            }
+        }
+        return body;
+    }
+
+    private void recordResultSize(String endpoint, int size) {
+        meterRegistry.summary("posts.result.size", "endpoint", endpoint).record(size);
+    }
+}
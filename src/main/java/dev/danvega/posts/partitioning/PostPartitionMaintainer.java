@@ -0,0 +1,173 @@
+package dev.danvega.posts.partitioning;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the range partitions of {@code Post} in step with its ids on PostgreSQL, when the table was
+ * created by {@code db/postgresql/schema-partitioned.sql} or migrated with
+ * {@code migrate-post-partitioned.sql}. Enabled with {@code posts.partitioning.enabled=true}; on
+ * other databases it does nothing.
+ * <p>
+ * Partition {@code post_p_<n>} holds ids {@code [n * range-size, (n + 1) * range-size)}. On start and
+ * every {@code check-interval} the maintainer
+ * <ul>
+ *     <li>creates the {@code ahead} partitions above the highest id, so inserts land in a range
+ *     partition rather than the default one</li>
+ *     <li>moves rows that did land in {@code post_default} into a new partition for their range</li>
+ *     <li>drops empty partitions below the lowest id, such as those emptied by {@code PostArchiver}</li>
+ * </ul>
+ * Each change runs in its own transaction with {@code lock_timeout} set, so it gives up, and is
+ * retried on the next run, rather than queue queries behind its lock on {@code Post}.
+ * {@code range-size} must match the one the partitions were created with.
+ */
+@Component
+@ConditionalOnProperty(name = "posts.partitioning.enabled", havingValue = "true")
+class PostPartitionMaintainer implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(PostPartitionMaintainer.class);
+    private static final Pattern PARTITION_NAME = Pattern.compile("post_p_(\\d+)");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final long rangeSize;
+    private final int ahead;
+    private final Duration checkInterval;
+    private ScheduledExecutorService scheduler;
+
+    PostPartitionMaintainer(JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${posts.partitioning.range-size:1000000}") long rangeSize,
+                            @Value("${posts.partitioning.ahead:2}") int ahead,
+                            @Value("${posts.partitioning.check-interval:1h}") Duration checkInterval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rangeSize = rangeSize;
+        this.ahead = ahead;
+        this.checkInterval = checkInterval;
+    }
+
+    synchronized void maintain() {
+        Set<Long> existing = partitions();
+        Long minId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM Post", Long.class);
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM Post", Long.class);
+        Set<Long> wanted = new TreeSet<>(jdbcTemplate.queryForList(
+                "SELECT DISTINCT id / ? FROM post_default", Long.class, rangeSize));
+        long top = maxId == null ? 0 : Math.floorDiv(maxId, rangeSize);
+        for (long partition = top; partition <= top + ahead; partition++) {
+            wanted.add(partition);
+        }
+        wanted.removeAll(existing);
+        wanted.forEach(this::create);
+        long bottom = minId == null ? top : Math.floorDiv(minId, rangeSize);
+        existing.stream()
+                .filter(partition -> partition < bottom)
+                .forEach(this::dropIfEmpty);
+    }
+
+    private Set<Long> partitions() {
+        List<String> names = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = 'post'::regclass",
+                String.class);
+        Set<Long> partitions = new TreeSet<>();
+        for (String name : names) {
+            Matcher matcher = PARTITION_NAME.matcher(name);
+            if (matcher.matches()) {
+                partitions.add(Long.valueOf(matcher.group(1)));
+            }
+        }
+        return partitions;
+    }
+
+    private void create(long partition) {
+        long from = partition * rangeSize;
+        long to = from + rangeSize;
+        String name = "post_p_" + partition;
+        try {
+            Integer moved = transactionTemplate.execute(status -> {
+                jdbcTemplate.execute("SET LOCAL lock_timeout = '5s'");
+                jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE Post INCLUDING DEFAULTS)");
+                // attaching checks that the default partition holds nothing in the new range
+                int rows = jdbcTemplate.update("WITH moved AS (DELETE FROM post_default WHERE id >= ? AND id < ? RETURNING *) "
+                        + "INSERT INTO " + name + " SELECT * FROM moved", from, to);
+                jdbcTemplate.execute("ALTER TABLE Post ATTACH PARTITION " + name + " FOR VALUES FROM (" + from + ") TO (" + to + ")");
+                return rows;
+            });
+            log.info("Created partition {} for ids {} to {}, moving {} rows from post_default", name, from, to - 1, moved);
+        } catch (RuntimeException e) {
+            log.warn("Cannot create partition {}, retrying in {}: {}", name, checkInterval, e.getMessage());
+        }
+    }
+
+    private void dropIfEmpty(long partition) {
+        String name = "post_p_" + partition;
+        try {
+            Boolean dropped = transactionTemplate.execute(status -> {
+                jdbcTemplate.execute("SET LOCAL lock_timeout = '5s'");
+                if (Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM " + name + ")", Boolean.class))) {
+                    return false;
+                }
+                jdbcTemplate.execute("ALTER TABLE Post DETACH PARTITION " + name);
+                jdbcTemplate.execute("DROP TABLE " + name);
+                return true;
+            });
+            if (Boolean.TRUE.equals(dropped)) {
+                log.info("Dropped empty partition {}", name);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Cannot drop partition {}, retrying in {}: {}", name, checkInterval, e.getMessage());
+        }
+    }
+
+    private void run() {
+        try {
+            maintain();
+        } catch (RuntimeException e) {
+            log.error("Partition maintenance failed, retrying in {}", checkInterval, e);
+        }
+    }
+
+    @Override
+    public void start() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equals(product)) {
+            log.warn("posts.partitioning.enabled has no effect on {}", product);
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("post-partitions").daemon().factory());
+        scheduler.scheduleWithFixedDelay(this::run, 0, checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return scheduler != null;
+    }
+}
@@ -0,0 +1,19 @@
+package dev.danvega.posts.repository;
+
+import dev.danvega.posts.data.BatchItemResult;
+import dev.danvega.posts.data.Post;
+
+import java.util.List;
+
+/**
+ * Multi-row writes executed as JDBC batch statements. Each call runs in a single transaction
+ * and returns one {@link BatchItemResult} per input item, in input order.
+ */
+public interface PostBatchRepository {
+
+    List<BatchItemResult> insertAll(List<Post> posts);
+
+    List<BatchItemResult> updateAll(List<Post> posts);
+
+    List<BatchItemResult> deleteAllByIds(List<Integer> ids);
+}
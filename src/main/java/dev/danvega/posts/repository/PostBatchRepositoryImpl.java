@@ -0,0 +1,220 @@
+package dev.danvega.posts.repository;
+
+import dev.danvega.posts.data.BatchItemResult;
+import dev.danvega.posts.data.BatchItemStatus;
+import dev.danvega.posts.data.Post;
+import dev.danvega.posts.event.PostChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+class PostBatchRepositoryImpl implements PostBatchRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO Post (id, userid, title, body, version) VALUES (?, ?, ?, ?, 0)";
+    private static final String UPDATE_SQL =
+            "UPDATE Post SET userid = ?, title = ?, body = ?, version = version + 1 WHERE id = ? AND version = ?";
+    private static final String DELETE_SQL =
+            "DELETE FROM Post WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+
+    PostBatchRepositoryImpl(JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager,
+                            ApplicationEventPublisher eventPublisher,
+                            @Value("${posts.batch.chunk-size:500}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public List<BatchItemResult> insertAll(List<Post> posts) {
+        return transactionTemplate.execute(status -> {
+            List<BatchItemResult> results = new ArrayList<>(posts.size());
+            Set<Integer> seen = new HashSet<>();
+            for (int from = 0; from < posts.size(); from += chunkSize) {
+                List<Post> chunk = posts.subList(from, Math.min(from + chunkSize, posts.size()));
+                Set<Integer> existing = existingIds(chunk.stream().map(Post::id).toList());
+                List<Post> toInsert = new ArrayList<>(chunk.size());
+                for (int i = 0; i < chunk.size(); i++) {
+                    Post post = chunk.get(i);
+                    if (existing.contains(post.id()) || !seen.add(post.id())) {
+                        results.add(BatchItemResult.failed(from + i, post.id(), BatchItemStatus.CONFLICT,
+                                "post already exists"));
+                    } else {
+                        toInsert.add(post);
+                        results.add(BatchItemResult.of(from + i, post.id(), BatchItemStatus.CREATED, 0));
+                    }
+                }
+                if (!toInsert.isEmpty()) {
+                    jdbcTemplate.batchUpdate(INSERT_SQL, toInsert, toInsert.size(), (ps, post) -> {
+                        ps.setInt(1, post.id());
+                        ps.setInt(2, post.userid());
+                        ps.setString(3, post.title());
+                        ps.setString(4, post.body());
+                    });
+                }
+                toInsert.forEach(post -> eventPublisher.publishEvent(PostChangedEvent.created(
+                        new Post(post.id(), post.userid(), post.title(), post.body(), 0))));
+            }
+            return results;
+        });
+    }
+
+    @Override
+    public List<BatchItemResult> updateAll(List<Post> posts) {
+        return transactionTemplate.execute(status -> {
+            List<BatchItemResult> results = new ArrayList<>(posts.size());
+            for (int from = 0; from < posts.size(); from += chunkSize) {
+                List<Post> chunk = posts.subList(from, Math.min(from + chunkSize, posts.size()));
+                int[] counts = jdbcTemplate.batchUpdate(UPDATE_SQL, chunk, chunk.size(), (ps, post) -> {
+                    ps.setInt(1, post.userid());
+                    ps.setString(2, post.title());
+                    ps.setString(3, post.body());
+                    ps.setInt(4, post.id());
+                    ps.setInt(5, post.version());
+                })[0];
+                boolean[] applied = updated(chunk, counts);
+                Set<Integer> missed = new HashSet<>();
+                for (int i = 0; i < chunk.size(); i++) {
+                    if (!applied[i]) {
+                        missed.add(chunk.get(i).id());
+                    }
+                }
+                Set<Integer> existing = existingIds(List.copyOf(missed));
+                for (int i = 0; i < chunk.size(); i++) {
+                    Post post = chunk.get(i);
+                    if (applied[i]) {
+                        Post updated = new Post(post.id(), post.userid(), post.title(), post.body(), post.version() + 1);
+                        results.add(BatchItemResult.of(from + i, post.id(), BatchItemStatus.UPDATED, updated.version()));
+                        eventPublisher.publishEvent(PostChangedEvent.updated(updated));
+                    } else if (existing.contains(post.id())) {
+                        results.add(BatchItemResult.failed(from + i, post.id(), BatchItemStatus.CONFLICT,
+                                "version " + post.version() + " is not current"));
+                    } else {
+                        results.add(BatchItemResult.failed(from + i, post.id(), BatchItemStatus.NOT_FOUND,
+                                "post not found"));
+                    }
+                }
+            }
+            return results;
+        });
+    }
+
+    @Override
+    public List<BatchItemResult> deleteAllByIds(List<Integer> ids) {
+        return transactionTemplate.execute(status -> {
+            List<BatchItemResult> results = new ArrayList<>(ids.size());
+            for (int from = 0; from < ids.size(); from += chunkSize) {
+                List<Integer> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+                Set<Integer> existing = lockExisting(chunk);
+                int[] counts = jdbcTemplate.batchUpdate(DELETE_SQL, chunk, chunk.size(),
+                        (ps, id) -> ps.setInt(1, id))[0];
+                boolean[] applied = deleted(chunk, counts, existing);
+                for (int i = 0; i < chunk.size(); i++) {
+                    Integer id = chunk.get(i);
+                    if (applied[i]) {
+                        results.add(BatchItemResult.of(from + i, id, BatchItemStatus.DELETED, null));
+                        eventPublisher.publishEvent(PostChangedEvent.deleted(id));
+                    } else {
+                        results.add(BatchItemResult.failed(from + i, id, BatchItemStatus.NOT_FOUND, "post not found"));
+                    }
+                }
+            }
+            return results;
+        });
+    }
+
+    private Set<Integer> existingIds(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(namedJdbcTemplate.queryForList("SELECT id FROM Post WHERE id IN (:ids)",
+                Map.of("ids", ids), Integer.class));
+    }
+
+    /**
+     * Works out which updates of a chunk matched. Some drivers report {@code SUCCESS_NO_INFO} instead
+     * of a row count for batched statements, which says nothing about whether the version matched, so
+     * those are read back: an update counts only if the row now holds exactly what it wrote. When a
+     * chunk updates the same post more than once only the last matching write can be told apart, and
+     * the earlier ones are reported as conflicts rather than as successes that may not have happened.
+     */
+    private boolean[] updated(List<Post> chunk, int[] counts) {
+        boolean[] applied = new boolean[chunk.size()];
+        Map<Integer, Post> current = currentRows(unreported(chunk.stream().map(Post::id).toList(), counts));
+        Set<Integer> claimed = new HashSet<>();
+        for (int i = chunk.size() - 1; i >= 0; i--) {
+            Post post = chunk.get(i);
+            if (counts[i] == Statement.SUCCESS_NO_INFO) {
+                Post written = new Post(post.id(), post.userid(), post.title(), post.body(), post.version() + 1);
+                applied[i] = written.equals(current.get(post.id())) && claimed.add(post.id());
+            } else {
+                applied[i] = counts[i] > 0;
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Works out which deletes of a chunk removed a row. Where the driver did not report a count, a
+     * post that was there beforehand is credited to the first delete of it in the chunk: the rows are
+     * locked before the deletes run, so nothing else can have removed them in between.
+     */
+    private static boolean[] deleted(List<Integer> chunk, int[] counts, Set<Integer> existing) {
+        boolean[] applied = new boolean[chunk.size()];
+        Set<Integer> claimed = new HashSet<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            Integer id = chunk.get(i);
+            if (counts[i] == Statement.SUCCESS_NO_INFO) {
+                applied[i] = existing.contains(id) && claimed.add(id);
+            } else {
+                applied[i] = counts[i] > 0;
+            }
+        }
+        return applied;
+    }
+
+    private static List<Integer> unreported(List<Integer> ids, int[] counts) {
+        List<Integer> unreported = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (counts[i] == Statement.SUCCESS_NO_INFO) {
+                unreported.add(ids.get(i));
+            }
+        }
+        return unreported;
+    }
+
+    private Set<Integer> lockExisting(List<Integer> ids) {
+        return new HashSet<>(namedJdbcTemplate.queryForList("SELECT id FROM Post WHERE id IN (:ids) FOR UPDATE",
+                Map.of("ids", ids), Integer.class));
+    }
+
+    private Map<Integer, Post> currentRows(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        return namedJdbcTemplate.query("SELECT id, userid, title, body, version FROM Post WHERE id IN (:ids)",
+                        Map.of("ids", ids), PostStreamingRepositoryImpl.POST_ROW_MAPPER).stream()
+                .collect(Collectors.toMap(Post::id, Function.identity()));
+    }
+}
@@ -0,0 +1,69 @@
+package dev.danvega.posts.repository;
+
+import dev.danvega.posts.event.PostChangedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Maintains {@code post_change}, the single-row counter behind {@link PostRepository#findWatermark()}.
+ * A transaction that publishes any {@link PostChangedEvent} raises it once, just before it commits, so
+ * the new value becomes visible together with the changes and the counter row is only locked for the
+ * commit itself, however many rows the transaction wrote. A change made outside a transaction raises
+ * it straight away. Writers that publish no events (the seed loader and the archiver) run
+ * {@link #INCREMENT_SQL} themselves.
+ */
+@Component
+public class PostChangeCounter {
+
+    public static final String INCREMENT_SQL = "UPDATE post_change SET seq = seq + 1 WHERE id = 1";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    PostChangeCounter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // synchronous, so it runs in the publisher's transaction rather than after it
+    @EventListener
+    void on(PostChangedEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            jdbcTemplate.update(INCREMENT_SQL);
+            return;
+        }
+        if (!TransactionSynchronizationManager.hasResource(this)) {
+            Increment increment = new Increment();
+            TransactionSynchronizationManager.bindResource(this, increment);
+            TransactionSynchronizationManager.registerSynchronization(increment);
+        }
+    }
+
+    /**
+     * The one increment of a transaction. Bound as a resource, so later events of the same transaction
+     * find it; unbound while the transaction is suspended, so an inner one registers its own.
+     */
+    private final class Increment implements TransactionSynchronization {
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(PostChangeCounter.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(PostChangeCounter.this, this);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            jdbcTemplate.update(INCREMENT_SQL);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(PostChangeCounter.this);
+        }
+    }
+}
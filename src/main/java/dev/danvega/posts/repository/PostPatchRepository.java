@@ -0,0 +1,19 @@
+package dev.danvega.posts.repository;
+
+import dev.danvega.posts.data.Post;
+import dev.danvega.posts.data.PostPatch;
+
+import java.util.Optional;
+
+/**
+ * Partial updates as one conditional statement, without reading the row first.
+ */
+public interface PostPatchRepository {
+
+    /**
+     * Sets the non-null fields of {@code patch} on post {@code id} if it is still at {@code version},
+     * and returns the row as written. Only when nothing matched is the post looked up again, to tell
+     * a missing post (empty) from a stale version ({@link org.springframework.dao.OptimisticLockingFailureException}).
+     */
+    Optional<Post> patch(Integer id, int version, PostPatch patch);
+}
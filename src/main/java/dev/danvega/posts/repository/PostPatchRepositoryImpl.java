@@ -0,0 +1,70 @@
+package dev.danvega.posts.repository;
+
+import dev.danvega.posts.data.Post;
+import dev.danvega.posts.data.PostPatch;
+import dev.danvega.posts.event.PostChangedEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+class PostPatchRepositoryImpl implements PostPatchRepository {
+
+    // asked back through getGeneratedKeys: RETURNING on PostgreSQL, FINAL TABLE on H2
+    private static final String[] COLUMNS = {"id", "userid", "title", "body", "version"};
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    PostPatchRepositoryImpl(JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher) {
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public Optional<Post> patch(Integer id, int version, PostPatch patch) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("id", id)
+                .addValue("version", version);
+        List<String> assignments = new ArrayList<>(4);
+        if (patch.userid() != null) {
+            assignments.add("userid = :userid");
+            parameters.addValue("userid", patch.userid());
+        }
+        if (patch.title() != null) {
+            assignments.add("title = :title");
+            parameters.addValue("title", patch.title());
+        }
+        if (patch.body() != null) {
+            assignments.add("body = :body");
+            parameters.addValue("body", patch.body());
+        }
+        assignments.add("version = version + 1");
+        String sql = "UPDATE Post SET " + String.join(", ", assignments) + " WHERE id = :id AND version = :version";
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        if (namedJdbcTemplate.update(sql, parameters, keyHolder, COLUMNS) == 0) {
+            if (namedJdbcTemplate.queryForObject("SELECT COUNT(*) FROM Post WHERE id = :id", parameters, Integer.class) > 0) {
+                throw new OptimisticLockingFailureException("version " + version + " of post " + id + " is not current");
+            }
+            return Optional.empty();
+        }
+        Map<String, Object> row = keyHolder.getKeys();
+        Post updated = new Post(
+                ((Number) row.get("id")).intValue(),
+                ((Number) row.get("userid")).intValue(),
+                (String) row.get("title"),
+                (String) row.get("body"),
+                ((Number) row.get("version")).intValue());
+        eventPublisher.publishEvent(PostChangedEvent.updated(updated));
+        return Optional.of(updated);
+    }
+}
@@ -1,10 +1,99 @@
 package dev.danvega.posts.repository;
 
+import dev.danvega.posts.coalescing.Coalesced;
 import dev.danvega.posts.data.Post;
+import dev.danvega.posts.data.PostSummary;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.jdbc.repository.query.Query;
 import org.springframework.data.repository.ListCrudRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+import java.util.Optional;
+
+import static dev.danvega.posts.cache.PostCacheConfig.POSTS_CACHE;
+
+/**
+ * With {@code Post} range-partitioned on id (see {@code db/postgresql/schema-partitioned.sql}), every
+ * lookup and page filters or orders on id, so PostgreSQL prunes partitions: {@code findById} reads one,
+ * keyset pages read those from the cursor upwards, in order, and stop at the limit. {@code findAll}
+ * and {@code findByTitle} read every partition, as they read the whole table before; their cost is
+ * bounded by archiving cold posts rather than by partitioning.
+ */
 @Repository
-public interface PostRepository extends  ListCrudRepository<Post, Integer> {
+public interface PostRepository extends  ListCrudRepository<Post, Integer>, PostStreamingRepository,
+        PostBatchRepository, PostPatchRepository {
+    // query methods get no transaction by default; read-only ones can be served by a replica
+    @Coalesced
+    @Transactional(readOnly = true)
     Post findByTitle(String title);
+
+    @Coalesced
+    @Transactional(readOnly = true)
+    @Query("SELECT * FROM Post WHERE id > :afterId ORDER BY id LIMIT :limit")
+    List<Post> findPageAfter(Integer afterId, int limit);
+
+    // both per-user queries are range scans of post_userid_id_idx (userId, id)
+    @Coalesced
+    @Transactional(readOnly = true)
+    @Query("SELECT * FROM Post WHERE userid = :userid AND id > :afterId ORDER BY id LIMIT :limit")
+    List<Post> findPageByUserAfter(Integer userid, Integer afterId, int limit);
+
+    @Coalesced
+    @Transactional(readOnly = true)
+    @Query("SELECT id, title FROM Post WHERE userid = :userid AND id > :afterId ORDER BY id LIMIT :limit")
+    List<PostSummary> findSummaryPageByUserAfter(Integer userid, Integer afterId, int limit);
+
+    /**
+     * The {@code post_change} counter, used as the collection ETag. Every committed insert, update or
+     * delete has raised it (see {@link PostChangeCounter}), and it never goes back, so an unchanged value
+     * means an unchanged table. Read it before the rows, so a write in between costs a spare 200 rather
+     * than a wrong 304.
+     */
+    @Coalesced
+    @Transactional(readOnly = true)
+    @Query("SELECT CAST(seq AS VARCHAR(20)) FROM post_change WHERE id = 1")
+    String findWatermark();
+
+    @Override
+    @Coalesced
+    List<Post> findAll();
+
+    // concurrent misses for the same id share one query
+    @Override
+    @Coalesced
+    @Cacheable(cacheNames = POSTS_CACHE, unless = "#result == null")
+    Optional<Post> findById(Integer id);
+
+    // the saved entity carries the incremented @Version, so it replaces whatever is cached
+    @Override
+    @CachePut(cacheNames = POSTS_CACHE, key = "#result.id()")
+    <S extends Post> S save(S post);
+
+    @Override
+    @CacheEvict(cacheNames = POSTS_CACHE, allEntries = true)
+    <S extends Post> List<S> saveAll(Iterable<S> posts);
+
+    @Override
+    @CacheEvict(cacheNames = POSTS_CACHE)
+    void deleteById(Integer id);
+
+    @Override
+    @CacheEvict(cacheNames = POSTS_CACHE, key = "#post.id()")
+    void delete(Post post);
+
+    @Override
+    @CacheEvict(cacheNames = POSTS_CACHE, allEntries = true)
+    void deleteAllById(Iterable<? extends Integer> ids);
+
+    @Override
+    @CacheEvict(cacheNames = POSTS_CACHE, allEntries = true)
+    void deleteAll(Iterable<? extends Post> posts);
+
+    @Override
+    @CacheEvict(cacheNames = POSTS_CACHE, allEntries = true)
+    void deleteAll();
 }
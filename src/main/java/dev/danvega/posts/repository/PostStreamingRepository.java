@@ -0,0 +1,20 @@
+package dev.danvega.posts.repository;
+
+import dev.danvega.posts.data.Post;
+
+import java.util.function.Consumer;
+
+/**
+ * Forward-only access to the Post table that hands rows to the caller as they are read
+ * from the JDBC {@code ResultSet}, so memory use does not grow with the table.
+ */
+public interface PostStreamingRepository {
+
+    void streamAll(Consumer<Post> consumer);
+
+    /**
+     * Streams posts with {@code afterId < id <= toId} in id order, optionally of one user only.
+     * Null {@code userid} or {@code toId} leave that side unfiltered.
+     */
+    void streamRange(Integer userid, int afterId, Integer toId, Consumer<Post> consumer);
+}
@@ -0,0 +1,64 @@
+package dev.danvega.posts.repository;
+
+import dev.danvega.posts.data.Post;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.DataClassRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Consumer;
+
+class PostStreamingRepositoryImpl implements PostStreamingRepository {
+
+    static final RowMapper<Post> POST_ROW_MAPPER = new DataClassRowMapper<>(Post.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    PostStreamingRepositoryImpl(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${posts.stream.fetch-size:500}") int fetchSize) {
+        // the shared JdbcTemplate is left alone; only streaming reads use a fetch size
+        this.jdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(this.jdbcTemplate);
+        // PostgreSQL only honours the fetch size (server-side cursor) with auto-commit off
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @Override
+    public void streamAll(Consumer<Post> consumer) {
+        transactionTemplate.executeWithoutResult(status ->
+                jdbcTemplate.query("SELECT id, userid, title, body, version FROM Post ORDER BY id",
+                        rs -> {
+                            consumer.accept(POST_ROW_MAPPER.mapRow(rs, rs.getRow()));
+                        }));
+    }
+
+    @Override
+    public void streamRange(Integer userid, int afterId, Integer toId, Consumer<Post> consumer) {
+        // with a userid this is a range scan of post_userid_id_idx, otherwise of the primary key
+        StringBuilder sql = new StringBuilder("SELECT id, userid, title, body, version FROM Post WHERE id > :afterId");
+        MapSqlParameterSource parameters = new MapSqlParameterSource("afterId", afterId);
+        if (userid != null) {
+            sql.append(" AND userid = :userid");
+            parameters.addValue("userid", userid);
+        }
+        if (toId != null) {
+            sql.append(" AND id <= :toId");
+            parameters.addValue("toId", toId);
+        }
+        sql.append(" ORDER BY id");
+        transactionTemplate.executeWithoutResult(status ->
+                namedJdbcTemplate.query(sql.toString(), parameters,
+                        rs -> {
+                            consumer.accept(POST_ROW_MAPPER.mapRow(rs, rs.getRow()));
+                        }));
+    }
+}
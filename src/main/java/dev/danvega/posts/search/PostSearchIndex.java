@@ -0,0 +1,283 @@
+package dev.danvega.posts.search;
+
+import dev.danvega.posts.data.Post;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over post title and body, ranked with Okapi BM25.
+ * <p>
+ * Title terms count {@link #TITLE_WEIGHT} times towards term frequency. Every indexed version of a
+ * post gets a new ordinal and its postings are appended to primitive arrays; replacing or removing
+ * a post only marks the old ordinal dead. Dead postings are skipped at query time and dropped once
+ * they outnumber the live ones, so the index follows writes without a rebuild.
+ * <p>
+ * A full scan feeds posts through {@link #load} between {@link #startLoad} and {@link #finishLoad}.
+ * Posts removed meanwhile are remembered until the scan finishes, so a row the scan read just before
+ * its delete committed is not indexed again.
+ */
+@Component
+public class PostSearchIndex {
+
+    static final int TITLE_WEIGHT = 2;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    public record Hit(Integer id, double score) {
+    }
+
+    private static final class Postings {
+        int[] ordinals = new int[4];
+        byte[] frequencies = new byte[4];
+        int size;
+
+        void add(int ordinal, int frequency) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            ordinals[size] = ordinal;
+            frequencies[size] = (byte) Math.min(frequency, Byte.MAX_VALUE);
+            size++;
+        }
+    }
+
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Map<Integer, Integer> ordinalsById = new HashMap<>();
+    private final BitSet live = new BitSet();
+    private int[] ids = new int[1024];
+    private int[] versions = new int[1024];
+    private int[] lengths = new int[1024];
+    private int[] termCounts = new int[1024];
+    private int nextOrdinal;
+    private long totalLength;
+    private long livePostings;
+    private long deadPostings;
+    private int loads;
+    private final Set<Integer> removedDuringLoad = new HashSet<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Adds or replaces a post. A post older than the indexed version of the same id is ignored.
+     */
+    public void index(Post post) {
+        add(post, false);
+    }
+
+    /**
+     * Adds a post read by a full scan, like {@link #index}, unless it was removed since the scan started.
+     */
+    public void load(Post post) {
+        add(post, true);
+    }
+
+    public void startLoad() {
+        lock.writeLock().lock();
+        try {
+            loads++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void finishLoad() {
+        lock.writeLock().lock();
+        try {
+            if (--loads == 0) {
+                removedDuringLoad.clear();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(Post post, boolean scanned) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : Tokenizer.tokenize(post.title())) {
+            frequencies.merge(token, TITLE_WEIGHT, Integer::sum);
+        }
+        for (String token : Tokenizer.tokenize(post.body())) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        int length = frequencies.values().stream().mapToInt(Integer::intValue).sum();
+        int version = post.version() == null ? 0 : post.version();
+
+        lock.writeLock().lock();
+        try {
+            if (scanned && removedDuringLoad.contains(post.id())) {
+                return;
+            }
+            Integer previous = ordinalsById.get(post.id());
+            if (previous != null && versions[previous] > version) {
+                return;
+            }
+            removeLocked(post.id());
+            int ordinal = allocate(post.id(), version, length, frequencies.size());
+            frequencies.forEach((term, frequency) ->
+                    postings.computeIfAbsent(term, t -> new Postings()).add(ordinal, frequency));
+            livePostings += frequencies.size();
+            if (deadPostings > livePostings) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Integer id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            if (loads > 0) {
+                removedDuringLoad.add(id);
+            }
+            if (deadPostings > livePostings) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinalsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the {@code limit} best matching post ids, highest score first.
+     */
+    public List<Hit> search(String query, int limit) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(Tokenizer.tokenize(query)));
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            int documentCount = ordinalsById.size();
+            if (documentCount == 0) {
+                return List.of();
+            }
+            double averageLength = (double) totalLength / documentCount;
+            Map<Integer, Double> scores = new HashMap<>();
+            for (String term : terms) {
+                Postings list = postings.get(term);
+                if (list == null) {
+                    continue;
+                }
+                // dead postings inflate df slightly until the next compaction
+                double idf = Math.log(1 + (documentCount - list.size + 0.5) / (list.size + 0.5));
+                for (int i = 0; i < list.size; i++) {
+                    int ordinal = list.ordinals[i];
+                    if (!live.get(ordinal)) {
+                        continue;
+                    }
+                    int frequency = list.frequencies[i];
+                    double norm = K1 * (1 - B + B * lengths[ordinal] / averageLength);
+                    scores.merge(ordinal, idf * frequency * (K1 + 1) / (frequency + norm), Double::sum);
+                }
+            }
+            return topK(scores, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Hit> topK(Map<Integer, Double> scores, int limit) {
+        Comparator<Hit> byScore = Comparator.comparingDouble(Hit::score)
+                .thenComparing(Hit::id, Comparator.reverseOrder());
+        PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, byScore);
+        scores.forEach((ordinal, score) -> {
+            best.offer(new Hit(ids[ordinal], score));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        });
+        List<Hit> hits = new ArrayList<>(best);
+        hits.sort(byScore.reversed());
+        return hits;
+    }
+
+    private int allocate(Integer id, int version, int length, int termCount) {
+        if (nextOrdinal == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            versions = Arrays.copyOf(versions, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            termCounts = Arrays.copyOf(termCounts, capacity);
+        }
+        int ordinal = nextOrdinal++;
+        ids[ordinal] = id;
+        versions[ordinal] = version;
+        lengths[ordinal] = length;
+        termCounts[ordinal] = termCount;
+        live.set(ordinal);
+        ordinalsById.put(id, ordinal);
+        totalLength += length;
+        return ordinal;
+    }
+
+    private void removeLocked(Integer id) {
+        Integer ordinal = ordinalsById.remove(id);
+        if (ordinal == null) {
+            return;
+        }
+        live.clear(ordinal);
+        totalLength -= lengths[ordinal];
+        livePostings -= termCounts[ordinal];
+        deadPostings += termCounts[ordinal];
+    }
+
+    /**
+     * Drops dead postings and renumbers the live ordinals densely, so memory tracks the live posts.
+     */
+    private void compact() {
+        int[] renumbered = new int[nextOrdinal];
+        int liveCount = 0;
+        for (int ordinal = live.nextSetBit(0); ordinal >= 0; ordinal = live.nextSetBit(ordinal + 1)) {
+            renumbered[ordinal] = liveCount;
+            ids[liveCount] = ids[ordinal];
+            versions[liveCount] = versions[ordinal];
+            lengths[liveCount] = lengths[ordinal];
+            termCounts[liveCount] = termCounts[ordinal];
+            ordinalsById.put(ids[liveCount], liveCount);
+            liveCount++;
+        }
+        BitSet wasLive = (BitSet) live.clone();
+        postings.values().removeIf(list -> {
+            int kept = 0;
+            for (int i = 0; i < list.size; i++) {
+                if (wasLive.get(list.ordinals[i])) {
+                    list.ordinals[kept] = renumbered[list.ordinals[i]];
+                    list.frequencies[kept] = list.frequencies[i];
+                    kept++;
+                }
+            }
+            list.size = kept;
+            list.ordinals = Arrays.copyOf(list.ordinals, Math.max(kept, 4));
+            list.frequencies = Arrays.copyOf(list.frequencies, Math.max(kept, 4));
+            return kept == 0;
+        });
+        live.clear();
+        live.set(0, liveCount);
+        nextOrdinal = liveCount;
+        deadPostings = 0;
+    }
+}
@@ -0,0 +1,57 @@
+package dev.danvega.posts.search;
+
+import dev.danvega.posts.event.PostChangedEvent;
+import dev.danvega.posts.event.PostsLoadedEvent;
+import dev.danvega.posts.repository.PostRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Builds the search index from a full table scan in the background once the application is ready,
+ * and applies every committed create, update and delete to it. An update that races with the scan
+ * wins because the index keeps the highest version it has seen for each post; a delete wins because
+ * the index ignores scanned rows of posts removed since the scan started. The scan runs again when
+ * a background seed load completes, since the loader's rows are not announced one by one.
+ */
+@Component
+class PostSearchIndexUpdater {
+
+    private static final Logger log = LoggerFactory.getLogger(PostSearchIndexUpdater.class);
+
+    private final PostSearchIndex index;
+    private final PostRepository postRepository;
+
+    PostSearchIndexUpdater(PostSearchIndex index, PostRepository postRepository) {
+        this.index = index;
+        this.postRepository = postRepository;
+    }
+
+    @EventListener({ApplicationReadyEvent.class, PostsLoadedEvent.class})
+    void build() {
+        Thread.ofVirtual().name("search-index-build").start(() -> {
+            long start = System.nanoTime();
+            index.startLoad();
+            try {
+                postRepository.streamAll(index::load);
+                log.info("Indexed {} posts for search in {} ms", index.size(), (System.nanoTime() - start) / 1_000_000);
+            } catch (RuntimeException e) {
+                log.error("Failed to build search index", e);
+            } finally {
+                index.finishLoad();
+            }
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    void on(PostChangedEvent event) {
+        if (event.type() == PostChangedEvent.Type.DELETED) {
+            index.remove(event.id());
+        } else {
+            index.index(event.post());
+        }
+    }
+}
@@ -0,0 +1,348 @@
+package dev.danvega.posts.snapshot;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import dev.danvega.posts.data.Post;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Off-heap copy of every post, held in two memory-mapped files, for serving
+ * {@code GET /api/posts/{id}} without the database. Enabled with {@code posts.snapshot.enabled=true}.
+ * <p>
+ * The index file has one 8-byte slot per id, at offset {@code id * 8}. A slot holds the offset and
+ * length of the post's record in the data file. A record is the post's version followed by its JSON
+ * encoding in UTF-8, exactly the bytes {@code GET} returns. Reading a post is therefore one slot
+ * load and a copy of the bytes; no {@link Post} or {@link String} is created.
+ * <p>
+ * Records are only appended. An update writes a new record and then repoints the slot, so readers
+ * never see a half-written post and need no lock. Writers are serialized. Once superseded records
+ * take up more space than live ones, the live records are copied into a new pair of files. Both
+ * files grow by remapping. Ids above {@code posts.snapshot.max-id} are not kept.
+ * <p>
+ * The files live in {@code posts.snapshot.directory} (a temporary directory by default). They are
+ * rebuilt from the database on every start. Published as {@code posts.snapshot.posts} and
+ * {@code posts.snapshot.size} (bytes in the data file, including superseded records).
+ */
+@Component
+@ConditionalOnProperty(name = "posts.snapshot.enabled", havingValue = "true")
+public class PostSnapshot implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(PostSnapshot.class);
+
+    // slot values: 0 was never written, TOMBSTONE was deleted; otherwise offset << 32 | length
+    static final long ABSENT = 0;
+    private static final long TOMBSTONE = -1;
+    private static final int RECORD_HEADER = Integer.BYTES;
+    private static final int MIN_INDEX_SIZE = 64 * 1024;
+    private static final long COMPACTION_THRESHOLD = DataSize.ofMegabytes(1).toBytes();
+    private static final VarHandle SLOT = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    /**
+     * One generation of mapped files. Readers take the current view once per lookup, so a lookup
+     * that overlaps a remap or a compaction still reads consistent, if slightly older, data.
+     */
+    static final class View {
+
+        private final int generation;
+        private final MappedByteBuffer index;
+        private final MappedByteBuffer data;
+
+        private View(int generation, MappedByteBuffer index, MappedByteBuffer data) {
+            this.generation = generation;
+            this.index = index;
+            this.data = data;
+        }
+
+        /**
+         * Returns the slot of a live post, or {@link #ABSENT}. A slot written after this view was
+         * replaced may point past its mapping; that reads as absent too.
+         */
+        long find(int id) {
+            if (id < 0 || (long) id * Long.BYTES >= index.capacity()) {
+                return ABSENT;
+            }
+            long slot = (long) SLOT.getAcquire(index, id * Long.BYTES);
+            if (slot == ABSENT || slot == TOMBSTONE || (long) offset(slot) + RECORD_HEADER + length(slot) > data.capacity()) {
+                return ABSENT;
+            }
+            return slot;
+        }
+
+        /**
+         * The post's {@code @Version}, or -1 when it has none.
+         */
+        int version(long slot) {
+            return data.getInt(offset(slot));
+        }
+
+        /**
+         * Length in bytes of the post's JSON encoding.
+         */
+        int length(long slot) {
+            return (int) slot;
+        }
+
+        void writeJson(long slot, OutputStream out, byte[] buffer) throws IOException {
+            int position = offset(slot) + RECORD_HEADER;
+            int remaining = length(slot);
+            while (remaining > 0) {
+                int chunk = Math.min(remaining, buffer.length);
+                data.get(position, buffer, 0, chunk);
+                out.write(buffer, 0, chunk);
+                position += chunk;
+                remaining -= chunk;
+            }
+        }
+
+        private static int offset(long slot) {
+            return (int) (slot >>> 32);
+        }
+    }
+
+    private final ObjectWriter writer;
+    private final Path directory;
+    private final boolean temporary;
+    private final int maxId;
+    private final long initialSize;
+    private volatile View view;
+    private int position;
+    private long liveBytes;
+    private int livePosts;
+
+    public PostSnapshot(ObjectMapper objectMapper,
+                        ObjectProvider<MeterRegistry> meterRegistry,
+                        @Value("${posts.snapshot.directory:}") String directory,
+                        @Value("${posts.snapshot.max-id:16777215}") int maxId,
+                        @Value("${posts.snapshot.initial-size:16MB}") DataSize initialSize) throws IOException {
+        this.writer = objectMapper.writerFor(Post.class);
+        this.temporary = !StringUtils.hasText(directory);
+        this.directory = temporary ? Files.createTempDirectory("posts-snapshot") : Files.createDirectories(Path.of(directory));
+        // one mapping of the index can address at most Integer.MAX_VALUE bytes
+        this.maxId = Math.min(maxId, Integer.MAX_VALUE / Long.BYTES - 1);
+        this.initialSize = Math.min(initialSize.toBytes(), Integer.MAX_VALUE);
+        deleteAll();
+        this.view = map(0, MIN_INDEX_SIZE, this.initialSize);
+        MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        Gauge.builder("posts.snapshot.posts", this, snapshot -> snapshot.livePosts).register(registry);
+        Gauge.builder("posts.snapshot.size", this, snapshot -> snapshot.position)
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    View view() {
+        return view;
+    }
+
+    /**
+     * Stores a newly created post, unless the snapshot already holds a newer version of it. A
+     * deleted post is replaced, since its id may be reused.
+     */
+    public synchronized void create(Post post) {
+        store(post, true);
+    }
+
+    /**
+     * Stores an updated post, unless the snapshot already holds a newer version of it. A deleted post
+     * stays deleted: commit listeners can run out of order, and an update arriving after the delete
+     * that followed it would otherwise bring the post back.
+     */
+    public synchronized void put(Post post) {
+        store(post, false);
+    }
+
+    /**
+     * Stores a post read by the initial scan. Unlike {@link #create}, a post deleted since the scan
+     * started stays deleted.
+     */
+    public synchronized void load(Post post) {
+        store(post, false);
+    }
+
+    public synchronized void remove(Integer id) {
+        if (id == null || id < 0 || id > maxId) {
+            return;
+        }
+        ensureIndex(id);
+        release(slot(id));
+        SLOT.setRelease(view.index, id * Long.BYTES, TOMBSTONE);
+    }
+
+    public synchronized int size() {
+        return livePosts;
+    }
+
+    private void store(Post post, boolean overwriteTombstone) {
+        Integer id = post.id();
+        if (id == null || id < 0 || id > maxId) {
+            return;
+        }
+        ensureIndex(id);
+        long current = slot(id);
+        if (current == TOMBSTONE && !overwriteTombstone) {
+            return;
+        }
+        int version = post.version() == null ? -1 : post.version();
+        if (current != ABSENT && current != TOMBSTONE && view.version(current) > version) {
+            return;
+        }
+        byte[] json = encode(post);
+        long needed = (long) RECORD_HEADER + json.length;
+        if (!ensureData(needed)) {
+            // the old record must not be served for a post that has changed
+            log.warn("Post {} ({} bytes) does not fit in the snapshot; it will be read from the database", id, json.length);
+            release(current);
+            SLOT.setRelease(view.index, id * Long.BYTES, TOMBSTONE);
+            return;
+        }
+        MappedByteBuffer data = view.data;
+        int offset = position;
+        data.putInt(offset, version);
+        data.put(offset + RECORD_HEADER, json);
+        position += (int) needed;
+        release(current);
+        liveBytes += needed;
+        livePosts++;
+        SLOT.setRelease(view.index, id * Long.BYTES, (long) offset << 32 | json.length);
+        if (position - liveBytes > liveBytes && position - liveBytes > COMPACTION_THRESHOLD) {
+            compact();
+        }
+    }
+
+    private long slot(int id) {
+        return (long) SLOT.getAcquire(view.index, id * Long.BYTES);
+    }
+
+    private void release(long slot) {
+        if (slot != ABSENT && slot != TOMBSTONE) {
+            liveBytes -= RECORD_HEADER + view.length(slot);
+            livePosts--;
+        }
+    }
+
+    private byte[] encode(Post post) {
+        try {
+            return writer.writeValueAsBytes(post);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void ensureIndex(int id) {
+        long needed = ((long) id + 1) * Long.BYTES;
+        if (needed <= view.index.capacity()) {
+            return;
+        }
+        long size = Math.min(Long.highestOneBit(needed - 1) << 1, ((long) maxId + 1) * Long.BYTES);
+        view = map(view.generation, size, view.data.capacity());
+    }
+
+    private boolean ensureData(long needed) {
+        long required = position + needed;
+        if (required <= view.data.capacity()) {
+            return true;
+        }
+        if (required > Integer.MAX_VALUE) {
+            return false;
+        }
+        long size = Math.min(Math.max(required, (long) view.data.capacity() * 2), Integer.MAX_VALUE);
+        view = map(view.generation, view.index.capacity(), size);
+        return true;
+    }
+
+    /**
+     * Copies the live records into a new pair of files and switches readers over to them. Lookups
+     * still running on the old files finish there; the old mappings go away once they are unreachable.
+     */
+    private void compact() {
+        View old = view;
+        View compacted = map(old.generation + 1, old.index.capacity(),
+                Math.min(Math.max(initialSize, liveBytes * 2), Integer.MAX_VALUE));
+        int offset = 0;
+        for (int id = 0; (long) id * Long.BYTES < old.index.capacity(); id++) {
+            long slot = (long) SLOT.getAcquire(old.index, id * Long.BYTES);
+            if (slot == ABSENT) {
+                continue;
+            }
+            if (slot == TOMBSTONE) {
+                SLOT.set(compacted.index, id * Long.BYTES, TOMBSTONE);
+                continue;
+            }
+            int length = RECORD_HEADER + old.length(slot);
+            compacted.data.put(offset, old.data, View.offset(slot), length);
+            SLOT.set(compacted.index, id * Long.BYTES, (long) offset << 32 | old.length(slot));
+            offset += length;
+        }
+        long before = position;
+        position = offset;
+        // the volatile write publishes the copied records and slots above
+        view = compacted;
+        delete(old.generation);
+        log.info("Compacted post snapshot from {} to {} bytes", before, offset);
+    }
+
+    private View map(int generation, long indexSize, long dataSize) {
+        try (FileChannel index = FileChannel.open(file(generation, "idx"), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             FileChannel data = FileChannel.open(file(generation, "dat"), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // the mappings outlive the channels; growing maps the same files again, larger
+            return new View(generation,
+                    index.map(FileChannel.MapMode.READ_WRITE, 0, indexSize),
+                    data.map(FileChannel.MapMode.READ_WRITE, 0, dataSize));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map post snapshot in " + directory, e);
+        }
+    }
+
+    private Path file(int generation, String extension) {
+        return directory.resolve("posts-" + generation + "." + extension);
+    }
+
+    // files left by an earlier run describe a database state that may have changed since
+    private void deleteAll() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "posts-*.{idx,dat}")) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private void delete(int generation) {
+        try {
+            Files.deleteIfExists(file(generation, "idx"));
+            Files.deleteIfExists(file(generation, "dat"));
+        } catch (IOException e) {
+            log.warn("Cannot delete post snapshot generation {} in {}", generation, directory, e);
+        }
+    }
+
+    @Override
+    public synchronized void destroy() throws IOException {
+        delete(view.generation);
+        if (temporary) {
+            Files.deleteIfExists(directory);
+        }
+    }
+}
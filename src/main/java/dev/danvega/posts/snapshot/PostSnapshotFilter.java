@@ -0,0 +1,137 @@
+package dev.danvega.posts.snapshot;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Answers {@code GET /api/posts/{id}} from the {@link PostSnapshot}, ahead of Spring MVC, when the
+ * post is in the snapshot and the client takes JSON. The response matches the controller's: the
+ * JSON body, a strong ETag of the version, and 304 for a matching {@code If-None-Match}. Everything
+ * else, including posts not (yet) in the snapshot, other media types and {@code If-None-Match}
+ * lists, goes on to the controller.
+ * <p>
+ * A hit creates no {@code Post}, no strings for the body and, for versions below
+ * {@link #CACHED_ETAGS}, no ETag string; the bytes are copied from the mapping through a per-thread
+ * buffer. Lookups are counted as {@code posts.snapshot.lookups}, tagged {@code hit} or {@code miss}.
+ * Runs after admission control, so snapshot reads are rate limited like any other.
+ */
+@Component
+@ConditionalOnProperty(name = "posts.snapshot.enabled", havingValue = "true")
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+public class PostSnapshotFilter extends OncePerRequestFilter {
+
+    private static final String POST_PATH = "/api/posts/";
+    private static final int CACHED_ETAGS = 1024;
+    private static final String[] ETAGS = new String[CACHED_ETAGS];
+    // one buffer per request thread; with virtual threads that is one per request
+    private static final ThreadLocal<byte[]> BUFFERS = ThreadLocal.withInitial(() -> new byte[8192]);
+
+    static {
+        for (int version = 0; version < CACHED_ETAGS; version++) {
+            ETAGS[version] = "\"" + version + "\"";
+        }
+    }
+
+    private final PostSnapshot snapshot;
+    private final Counter hits;
+    private final Counter misses;
+
+    public PostSnapshotFilter(PostSnapshot snapshot, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.snapshot = snapshot;
+        MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        this.hits = registry.counter("posts.snapshot.lookups", "result", "hit");
+        this.misses = registry.counter("posts.snapshot.lookups", "result", "miss");
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.GET.matches(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        int id = postId(request);
+        if (id < 0 || !acceptsJson(request.getHeader(HttpHeaders.ACCEPT))) {
+            chain.doFilter(request, response);
+            return;
+        }
+        PostSnapshot.View view = snapshot.view();
+        long slot = view.find(id);
+        if (slot == PostSnapshot.ABSENT) {
+            misses.increment();
+            chain.doFilter(request, response);
+            return;
+        }
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && ifNoneMatch.indexOf(',') >= 0) {
+            chain.doFilter(request, response);
+            return;
+        }
+        hits.increment();
+        int version = view.version(slot);
+        String etag = version < 0 ? null : version < CACHED_ETAGS ? ETAGS[version] : "\"" + version + "\"";
+        if (etag != null) {
+            response.setHeader(HttpHeaders.ETAG, etag);
+            if (ifNoneMatch != null && matches(ifNoneMatch, etag)) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+        }
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(view.length(slot));
+        view.writeJson(slot, response.getOutputStream(), BUFFERS.get());
+    }
+
+    /**
+     * The id of a {@code /api/posts/{id}} request, or -1 for any other path.
+     */
+    static int postId(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        int start = request.getContextPath().length() + POST_PATH.length();
+        if (uri.length() <= start || uri.length() - start > 9 || !uri.startsWith(POST_PATH, start - POST_PATH.length())) {
+            return -1;
+        }
+        int id = 0;
+        for (int i = start; i < uri.length(); i++) {
+            char c = uri.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            id = id * 10 + (c - '0');
+        }
+        return id;
+    }
+
+    // the binary formats and anything unusual are left to content negotiation in Spring MVC
+    private static boolean acceptsJson(String accept) {
+        return accept == null || accept.equals(MediaType.ALL_VALUE) || accept.startsWith(MediaType.APPLICATION_JSON_VALUE);
+    }
+
+    // weak comparison, as for any If-None-Match
+    private static boolean matches(String ifNoneMatch, String etag) {
+        String tag = ifNoneMatch.trim();
+        if (tag.equals("*")) {
+            return true;
+        }
+        int start = tag.startsWith("W/") ? 2 : 0;
+        return tag.length() - start == etag.length() && tag.startsWith(etag, start);
+    }
+}
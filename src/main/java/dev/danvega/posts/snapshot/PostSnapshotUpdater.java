@@ -0,0 +1,57 @@
+package dev.danvega.posts.snapshot;
+
+import dev.danvega.posts.event.PostChangedEvent;
+import dev.danvega.posts.event.PostsLoadedEvent;
+import dev.danvega.posts.repository.PostRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Fills the snapshot from a full table scan in the background once the application is ready, and
+ * applies every committed create, update and delete to it. Until the scan reaches a post, reads of
+ * it go to the database as usual. The scan runs again when a background seed load completes, since
+ * the loader's rows are not announced one by one; posts written by another instance or straight to
+ * the database by other means are not seen, and keep being read from the database.
+ * Archived posts keep their record: they are read-only from then on, so it stays correct.
+ */
+@Component
+@ConditionalOnProperty(name = "posts.snapshot.enabled", havingValue = "true")
+class PostSnapshotUpdater {
+
+    private static final Logger log = LoggerFactory.getLogger(PostSnapshotUpdater.class);
+
+    private final PostSnapshot snapshot;
+    private final PostRepository postRepository;
+
+    PostSnapshotUpdater(PostSnapshot snapshot, PostRepository postRepository) {
+        this.snapshot = snapshot;
+        this.postRepository = postRepository;
+    }
+
+    @EventListener({ApplicationReadyEvent.class, PostsLoadedEvent.class})
+    void build() {
+        Thread.ofVirtual().name("post-snapshot-build").start(() -> {
+            long start = System.nanoTime();
+            try {
+                postRepository.streamAll(snapshot::load);
+                log.info("Loaded {} posts into the snapshot in {} ms", snapshot.size(), (System.nanoTime() - start) / 1_000_000);
+            } catch (RuntimeException e) {
+                log.error("Failed to build post snapshot", e);
+            }
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    void on(PostChangedEvent event) {
+        switch (event.type()) {
+            case CREATED -> snapshot.create(event.post());
+            case UPDATED -> snapshot.put(event.post());
+            case DELETED -> snapshot.remove(event.id());
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package dev.danvega.posts.tracing;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.EventData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends finished spans to a file, one JSON object per line, for when no collector is at hand:
+ * {@code jq 'select(.traceId == "...")'} puts a request back together. Once the file reaches
+ * {@code max-size} it is renamed with a {@code .1} suffix, replacing the previous one, and a new
+ * file is started.
+ */
+public class FileSpanExporter implements SpanExporter {
+
+    private static final Logger log = LoggerFactory.getLogger(FileSpanExporter.class);
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final Path file;
+    private final long maxSize;
+    private OutputStream out;
+    private long size;
+
+    public FileSpanExporter(Path file, long maxSize) {
+        this.file = file;
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public synchronized CompletableResultCode export(Collection<SpanData> spans) {
+        try {
+            if (out == null) {
+                open();
+            }
+            try (JsonGenerator generator = jsonFactory.createGenerator(new CountingStream())) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(null);
+                for (SpanData span : spans) {
+                    write(generator, span);
+                    generator.writeRaw('\n');
+                }
+            }
+            out.flush();
+            if (size >= maxSize) {
+                roll();
+            }
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            log.warn("Could not write {} spans to {}", spans.size(), file, e);
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    private static void write(JsonGenerator generator, SpanData span) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("traceId", span.getTraceId());
+        generator.writeStringField("spanId", span.getSpanId());
+        SpanContext parent = span.getParentSpanContext();
+        if (parent.isValid()) {
+            generator.writeStringField("parentSpanId", parent.getSpanId());
+        }
+        generator.writeStringField("name", span.getName());
+        generator.writeStringField("kind", span.getKind().name());
+        generator.writeStringField("start", Instant.ofEpochSecond(0, span.getStartEpochNanos()).toString());
+        generator.writeNumberField("durationMicros",
+                TimeUnit.NANOSECONDS.toMicros(span.getEndEpochNanos() - span.getStartEpochNanos()));
+        if (span.getStatus().getStatusCode() == StatusCode.ERROR) {
+            generator.writeStringField("error", span.getStatus().getDescription());
+        }
+        generator.writeObjectFieldStart("attributes");
+        span.getAttributes().forEach((key, value) -> {
+            try {
+                generator.writeStringField(key.getKey(), String.valueOf(value));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        generator.writeEndObject();
+        if (!span.getEvents().isEmpty()) {
+            generator.writeArrayFieldStart("events");
+            for (EventData event : span.getEvents()) {
+                generator.writeStartObject();
+                generator.writeStringField("name", event.getName());
+                generator.writeStringField("time", Instant.ofEpochSecond(0, event.getEpochNanos()).toString());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+        generator.writeEndObject();
+    }
+
+    private void open() throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        out = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        size = Files.size(file);
+    }
+
+    private void roll() throws IOException {
+        out.close();
+        out = null;
+        Files.move(file, file.resolveSibling(file.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public synchronized CompletableResultCode shutdown() {
+        try {
+            if (out != null) {
+                out.close();
+                out = null;
+            }
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    private class CountingStream extends OutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            size++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            size += len;
+        }
+    }
+}
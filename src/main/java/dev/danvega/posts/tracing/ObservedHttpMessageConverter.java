@@ -0,0 +1,121 @@
+package dev.danvega.posts.tracing;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.GenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Observes reading and writing bodies with a delegate converter as {@code posts.http.message}, so
+ * serialization shows as its own span next to the controller's, tagged by {@code direction} and the
+ * {@code format} (media subtype) actually used. Everything else is left to the delegate.
+ */
+class ObservedHttpMessageConverter<T> implements HttpMessageConverter<T> {
+
+    final HttpMessageConverter<T> delegate;
+    private final Supplier<ObservationRegistry> observationRegistry;
+
+    ObservedHttpMessageConverter(HttpMessageConverter<T> delegate, Supplier<ObservationRegistry> observationRegistry) {
+        this.delegate = delegate;
+        this.observationRegistry = observationRegistry;
+    }
+
+    @SuppressWarnings("unchecked")
+    static HttpMessageConverter<?> of(HttpMessageConverter<?> delegate, Supplier<ObservationRegistry> observationRegistry) {
+        if (delegate instanceof GenericHttpMessageConverter<?> generic) {
+            return new Generic((GenericHttpMessageConverter<Object>) generic, observationRegistry);
+        }
+        return new ObservedHttpMessageConverter<>(delegate, observationRegistry);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return delegate.canRead(clazz, mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        return delegate.canWrite(clazz, mediaType);
+    }
+
+    @Override
+    public List<MediaType> getSupportedMediaTypes() {
+        return delegate.getSupportedMediaTypes();
+    }
+
+    @Override
+    public List<MediaType> getSupportedMediaTypes(Class<?> clazz) {
+        return delegate.getSupportedMediaTypes(clazz);
+    }
+
+    @Override
+    public T read(Class<? extends T> clazz, HttpInputMessage inputMessage)
+            throws IOException, HttpMessageNotReadableException {
+        return observation("read", inputMessage.getHeaders().getContentType())
+                .observeChecked(() -> delegate.read(clazz, inputMessage));
+    }
+
+    @Override
+    public void write(T t, MediaType contentType, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        observation("write", contentType)
+                .observeChecked(() -> delegate.write(t, contentType, outputMessage));
+    }
+
+    Observation observation(String direction, MediaType mediaType) {
+        String format = mediaType == null || mediaType.isWildcardSubtype() ? "default" : mediaType.getSubtype();
+        return Observation.createNotStarted("posts.http.message", observationRegistry.get())
+                .contextualName(direction + " " + format)
+                .lowCardinalityKeyValue("direction", direction)
+                .lowCardinalityKeyValue("format", format);
+    }
+
+    @Override
+    public String toString() {
+        return "Observed " + delegate;
+    }
+
+    private static class Generic extends ObservedHttpMessageConverter<Object> implements GenericHttpMessageConverter<Object> {
+
+        private final GenericHttpMessageConverter<Object> generic;
+
+        Generic(GenericHttpMessageConverter<Object> delegate, Supplier<ObservationRegistry> observationRegistry) {
+            super(delegate, observationRegistry);
+            this.generic = delegate;
+        }
+
+        @Override
+        public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+            return generic.canRead(type, contextClass, mediaType);
+        }
+
+        @Override
+        public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage)
+                throws IOException, HttpMessageNotReadableException {
+            return observation("read", inputMessage.getHeaders().getContentType())
+                    .observeChecked(() -> generic.read(type, contextClass, inputMessage));
+        }
+
+        @Override
+        public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+            return generic.canWrite(type, clazz, mediaType);
+        }
+
+        @Override
+        public void write(Object t, Type type, MediaType contentType, HttpOutputMessage outputMessage)
+                throws IOException, HttpMessageNotWritableException {
+            observation("write", contentType)
+                    .observeChecked(() -> generic.write(t, type, contentType, outputMessage));
+        }
+    }
+}
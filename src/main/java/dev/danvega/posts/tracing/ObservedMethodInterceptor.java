@@ -0,0 +1,57 @@
+package dev.danvega.posts.tracing;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.function.Supplier;
+
+/**
+ * Wraps each call in an observation named after the layer ({@code posts.controller},
+ * {@code posts.repository}), which becomes a span named {@code Type#method} under the current one
+ * and a timer tagged by {@code class} and {@code method}.
+ */
+class ObservedMethodInterceptor implements MethodInterceptor {
+
+    private final String name;
+    private final Supplier<ObservationRegistry> observationRegistry;
+
+    ObservedMethodInterceptor(String name, Supplier<ObservationRegistry> observationRegistry) {
+        this.name = name;
+        this.observationRegistry = observationRegistry;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        if (ReflectionUtils.isObjectMethod(method)) {
+            return invocation.proceed();
+        }
+        String type = typeName(invocation instanceof ProxyMethodInvocation proxied
+                ? proxied.getProxy() : invocation.getThis());
+        return Observation.createNotStarted(name, observationRegistry.get())
+                .contextualName(type + "#" + method.getName())
+                .lowCardinalityKeyValue("class", type)
+                .lowCardinalityKeyValue("method", method.getName())
+                .observeChecked(invocation::proceed);
+    }
+
+    // Spring Data repositories are JDK proxies: name them after the repository interface, not the
+    // SimpleJdbcRepository behind it
+    private static String typeName(Object proxy) {
+        if (Proxy.isProxyClass(proxy.getClass())) {
+            Class<?>[] interfaces = AopProxyUtils.proxiedUserInterfaces(proxy);
+            if (interfaces.length > 0) {
+                return interfaces[0].getSimpleName();
+            }
+        }
+        return AopUtils.getTargetClass(proxy).getSimpleName();
+    }
+}
@@ -0,0 +1,18 @@
+package dev.danvega.posts.tracing;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * One statement that ran longer than {@code posts.tracing.slow-query.threshold}: when it finished, the
+ * trace it belonged to, how long it ran, its SQL and bind parameters (rendered, in order) and the plan
+ * the database reports for it. {@code plan} is null when it could not be or was not asked for.
+ */
+public record SlowQuery(Instant time,
+                        String traceId,
+                        long durationMillis,
+                        String sql,
+                        List<String> parameters,
+                        int batchSize,
+                        String plan) {
+}
@@ -0,0 +1,181 @@
+package dev.danvega.posts.tracing;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+
+import javax.sql.DataSource;
+import java.io.InputStream;
+import java.io.Reader;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statements slower than {@code posts.tracing.slow-query.threshold}, kept with their plan and, with
+ * {@code include-parameters}, their bind parameters, which hold post content. Each one is logged at WARN with the id of the trace it ran in, counted as
+ * {@code posts.jdbc.slow} by operation, and the most recent {@code max-entries} are served by
+ * {@code /actuator/slowqueries}.
+ * <p>
+ * Plans come from running {@code EXPLAIN} (never {@code EXPLAIN ANALYZE}: that would run writes
+ * again) with the same parameters on a connection of its own, off the request thread, at most once
+ * per statement text every {@code explain-interval}; in between the last plan is reused. With a burst
+ * of slow statements, those that find the explain queue full are kept without a plan rather than
+ * competing with requests for connections. Batches are kept without parameters or plan.
+ */
+public class SlowQueryLog implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(SlowQueryLog.class);
+
+    private static final Set<String> EXPLAINABLE = Set.of("select", "with", "insert", "update", "delete");
+    private static final int MAX_PARAMETER_LENGTH = 100;
+    private static final int EXPLAIN_TIMEOUT_SECONDS = 5;
+
+    private final ObjectProvider<Tracer> tracer;
+    private final MeterRegistry meterRegistry;
+    private final long thresholdNanos;
+    private final boolean includeParameters;
+    private final boolean explain;
+    private final int maxEntries;
+    private final Cache<String, String> plans;
+    private final Deque<SlowQuery> recent = new ArrayDeque<>();
+    private final ThreadPoolExecutor explainer;
+
+    public SlowQueryLog(ObjectProvider<Tracer> tracer, ObjectProvider<MeterRegistry> meterRegistry,
+                        Duration threshold, boolean includeParameters, boolean explain,
+                        Duration explainInterval, int maxEntries) {
+        this.tracer = tracer;
+        this.meterRegistry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        this.thresholdNanos = threshold.toNanos();
+        this.includeParameters = includeParameters;
+        this.explain = explain;
+        this.maxEntries = maxEntries;
+        this.plans = Caffeine.newBuilder()
+                .expireAfterWrite(explainInterval)
+                .maximumSize(1000)
+                .build();
+        this.explainer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(16),
+                Thread.ofPlatform().name("slow-query-explain").daemon().factory());
+    }
+
+    boolean isSlow(long nanos) {
+        return thresholdNanos > 0 && nanos >= thresholdNanos;
+    }
+
+    void record(DataSource dataSource, String sql, String operation, List<Object> parameters, int batchSize, long nanos) {
+        meterRegistry.counter("posts.jdbc.slow", "operation", operation).increment();
+        Instant time = Instant.now();
+        String traceId = currentTraceId();
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        List<String> rendered = includeParameters ? render(parameters) : List.of();
+        if (!explain || batchSize > 0 || !EXPLAINABLE.contains(operation) || !bindable(parameters)) {
+            add(new SlowQuery(time, traceId, millis, sql, rendered, batchSize, null));
+            return;
+        }
+        String plan = plans.getIfPresent(sql);
+        if (plan != null) {
+            add(new SlowQuery(time, traceId, millis, sql, rendered, batchSize, plan));
+            return;
+        }
+        try {
+            explainer.execute(() -> add(new SlowQuery(time, traceId, millis, sql, rendered, batchSize,
+                    explain(dataSource, sql, parameters))));
+        } catch (RejectedExecutionException e) {
+            add(new SlowQuery(time, traceId, millis, sql, rendered, batchSize, null));
+        }
+    }
+
+    public List<SlowQuery> recent() {
+        synchronized (recent) {
+            return List.copyOf(recent);
+        }
+    }
+
+    private void add(SlowQuery query) {
+        synchronized (recent) {
+            recent.addFirst(query);
+            while (recent.size() > maxEntries) {
+                recent.removeLast();
+            }
+        }
+        log.warn("Slow query, {} ms, trace {}: {}{}{}{}", query.durationMillis(), query.traceId(), query.sql(),
+                query.batchSize() > 0 ? "\n  batch of " + query.batchSize() : "",
+                query.parameters().isEmpty() ? "" : "\n  parameters: " + query.parameters(),
+                query.plan() == null ? "" : "\n  plan:\n" + query.plan().indent(4).stripTrailing());
+    }
+
+    private String explain(DataSource dataSource, String sql, List<Object> parameters) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+            statement.setQueryTimeout(EXPLAIN_TIMEOUT_SECONDS);
+            for (int i = 0; i < parameters.size(); i++) {
+                statement.setObject(i + 1, parameters.get(i));
+            }
+            StringJoiner plan = new StringJoiner("\n");
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    plan.add(rows.getString(1));
+                }
+            }
+            plans.put(sql, plan.toString());
+            return plan.toString();
+        } catch (SQLException e) {
+            log.debug("Could not explain {}", sql, e);
+            return null;
+        }
+    }
+
+    private String currentTraceId() {
+        Tracer current = tracer.getIfAvailable();
+        Span span = current == null ? null : current.currentSpan();
+        return span == null ? null : span.context().traceId();
+    }
+
+    // streams and LOBs were consumed by the statement itself and cannot be bound again
+    private static boolean bindable(List<Object> parameters) {
+        return parameters.stream().noneMatch(value -> value instanceof InputStream || value instanceof Reader
+                || value instanceof Blob || value instanceof Clob);
+    }
+
+    private static List<String> render(List<Object> parameters) {
+        List<String> rendered = new ArrayList<>(parameters.size());
+        for (Object value : parameters) {
+            String text = switch (value) {
+                case null -> "null";
+                case byte[] bytes -> "<" + bytes.length + " bytes>";
+                case InputStream ignored -> "<stream>";
+                case Reader ignored -> "<reader>";
+                default -> String.valueOf(value);
+            };
+            rendered.add(text.length() > MAX_PARAMETER_LENGTH ? text.substring(0, MAX_PARAMETER_LENGTH) + "..." : text);
+        }
+        return rendered;
+    }
+
+    @Override
+    public void destroy() {
+        explainer.shutdownNow();
+    }
+}
@@ -0,0 +1,132 @@
+package dev.danvega.posts.tracing;
+
+import dev.danvega.posts.codec.PostPayloadHttpMessageConverter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.tracing.Tracer;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.Pointcut;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import org.springframework.data.repository.Repository;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.util.function.SingletonSupplier;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Spans for every layer of a request, under the {@code http.server.requests} span Spring MVC already
+ * opens: {@code posts.controller} around controller methods, {@code posts.repository} around
+ * repository methods (outside the cache, so hits show too), {@code posts.http.message} around
+ * Jackson reading and writing bodies, and the JDBC spans of {@link TracingDataSource}. Each
+ * observation also publishes a timer of the same name.
+ * <p>
+ * Spans go to whatever exporter is configured; {@code posts.tracing.export.file} adds
+ * {@link FileSpanExporter}. How many requests are traced is {@code management.tracing.sampling.probability};
+ * slow statements are captured by {@link SlowQueryLog} whether their trace is sampled or not.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "posts.tracing.enabled", havingValue = "true", matchIfMissing = true)
+public class TracingConfig {
+
+    // outermost, ahead of the cache and coalescing advisors, so cache hits and shared reads show too
+    public static final int ORDER = Ordered.HIGHEST_PRECEDENCE;
+
+    // infrastructure role: without AspectJ on the classpath only infrastructure advisors are applied
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static Advisor controllerObservationAdvisor(ObjectProvider<ObservationRegistry> observationRegistry) {
+        return advisor(new AnnotationMatchingPointcut(RestController.class, true),
+                new ObservedMethodInterceptor("posts.controller", registry(observationRegistry)));
+    }
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static Advisor repositoryObservationAdvisor(ObjectProvider<ObservationRegistry> observationRegistry) {
+        return advisor(new ComposablePointcut(Repository.class::isAssignableFrom),
+                new ObservedMethodInterceptor("posts.repository", registry(observationRegistry)));
+    }
+
+    // wraps the application's DataSource bean; pools built by ReadReplicaConfig are reached through it
+    @Bean
+    static BeanPostProcessor tracingDataSourcePostProcessor(ObjectProvider<ObservationRegistry> observationRegistry,
+                                                           ObjectProvider<SlowQueryLog> slowQueryLog) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && beanName.equals("dataSource")
+                        && !(bean instanceof TracingDataSource)) {
+                    return new TracingDataSource(dataSource, registry(observationRegistry),
+                            SingletonSupplier.of(slowQueryLog::getIfAvailable));
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    WebMvcConfigurer observedMessageConverters(ObjectProvider<ObservationRegistry> observationRegistry) {
+        Supplier<ObservationRegistry> registry = registry(observationRegistry);
+        return new WebMvcConfigurer() {
+            @Override
+            public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+                converters.replaceAll(converter -> converter instanceof AbstractJackson2HttpMessageConverter
+                        || converter instanceof PostPayloadHttpMessageConverter
+                        ? ObservedHttpMessageConverter.of(converter, registry)
+                        : converter);
+            }
+        };
+    }
+
+    @Bean
+    SlowQueryLog slowQueryLog(ObjectProvider<Tracer> tracer,
+                              ObjectProvider<MeterRegistry> meterRegistry,
+                              @Value("${posts.tracing.slow-query.threshold:200ms}") Duration threshold,
+                              @Value("${posts.tracing.slow-query.include-parameters:false}") boolean includeParameters,
+                              @Value("${posts.tracing.slow-query.explain:true}") boolean explain,
+                              @Value("${posts.tracing.slow-query.explain-interval:1m}") Duration explainInterval,
+                              @Value("${posts.tracing.slow-query.max-entries:100}") int maxEntries) {
+        return new SlowQueryLog(tracer, meterRegistry, threshold, includeParameters, explain, explainInterval, maxEntries);
+    }
+
+    @Bean
+    SlowQueryEndpoint slowQueryEndpoint(SlowQueryLog slowQueryLog) {
+        return new SlowQueryEndpoint(slowQueryLog);
+    }
+
+    @Bean
+    @ConditionalOnProperty("posts.tracing.export.file")
+    FileSpanExporter fileSpanExporter(@Value("${posts.tracing.export.file}") Path file,
+                                      @Value("${posts.tracing.export.max-size:100MB}") DataSize maxSize) {
+        return new FileSpanExporter(file, maxSize.toBytes());
+    }
+
+    private static Advisor advisor(Pointcut pointcut, ObservedMethodInterceptor interceptor) {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(pointcut, interceptor);
+        advisor.setOrder(ORDER);
+        return advisor;
+    }
+
+    // resolved on first use: advisors and post-processors are created before the registry is ready
+    private static Supplier<ObservationRegistry> registry(ObjectProvider<ObservationRegistry> observationRegistry) {
+        return SingletonSupplier.of(() -> observationRegistry.getIfAvailable(() -> ObservationRegistry.NOOP));
+    }
+}
@@ -0,0 +1,192 @@
+package dev.danvega.posts.tracing;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Observes the JDBC layer under the repository spans:
+ * <ul>
+ *     <li>{@code posts.jdbc.connection}: checking a connection out of the pool, so time spent waiting
+ *     for one shows apart from the queries</li>
+ *     <li>{@code posts.jdbc.statement}: each execution, with the SQL (not its parameters) as
+ *     {@code sql} and the statement kind as {@code operation}</li>
+ * </ul>
+ * Executions slower than the {@link SlowQueryLog} threshold are tagged {@code slow} and handed to the
+ * log with their bind parameters. Time spent reading a result set after the execute call is not part
+ * of the statement span; it shows in the repository span around it.
+ * <p>
+ * With read replicas the pool is behind a lazy proxy that only checks out a connection on the first
+ * statement, so the pool wait is then part of that statement's span.
+ */
+class TracingDataSource extends DelegatingDataSource {
+
+    private static final Set<String> EXECUTE_METHODS = Set.of("execute", "executeQuery", "executeUpdate",
+            "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+    private static final Set<String> OPERATIONS = Set.of("select", "insert", "update", "delete", "merge", "with", "call");
+
+    private final Supplier<ObservationRegistry> observationRegistry;
+    private final Supplier<SlowQueryLog> slowQueryLog;
+
+    TracingDataSource(DataSource target, Supplier<ObservationRegistry> observationRegistry,
+                      Supplier<SlowQueryLog> slowQueryLog) {
+        super(target);
+        this.observationRegistry = observationRegistry;
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return trace(Observation.createNotStarted("posts.jdbc.connection", observationRegistry.get())
+                .contextualName("connection")
+                .observeChecked(() -> obtainTargetDataSource().getConnection()));
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return trace(Observation.createNotStarted("posts.jdbc.connection", observationRegistry.get())
+                .contextualName("connection")
+                .observeChecked(() -> obtainTargetDataSource().getConnection(username, password)));
+    }
+
+    private Connection trace(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(TracingDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(connection));
+    }
+
+    static String operation(String sql) {
+        if (sql == null) {
+            return "other";
+        }
+        String trimmed = sql.stripLeading();
+        int end = 0;
+        while (end < trimmed.length() && Character.isLetter(trimmed.charAt(end))) {
+            end++;
+        }
+        String keyword = trimmed.substring(0, end).toLowerCase(Locale.ROOT);
+        return OPERATIONS.contains(keyword) ? keyword : "other";
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = TracingDataSource.invoke(target, method, args);
+            return switch (method.getName()) {
+                case "prepareStatement" -> statement(proxy, result, PreparedStatement.class, (String) args[0]);
+                case "prepareCall" -> statement(proxy, result, CallableStatement.class, (String) args[0]);
+                case "createStatement" -> statement(proxy, result, Statement.class, null);
+                default -> result;
+            };
+        }
+
+        private Object statement(Object connection, Object statement, Class<?> type, String sql) {
+            return Proxy.newProxyInstance(TracingDataSource.class.getClassLoader(),
+                    new Class<?>[]{type}, new StatementHandler((Statement) statement, (Connection) connection, sql));
+        }
+    }
+
+    private class StatementHandler implements InvocationHandler {
+
+        private final Statement target;
+        private final Connection connection;
+        private final String sql;
+        private final List<Object> parameters = new ArrayList<>();
+        private int batchSize;
+
+        StatementHandler(Statement target, Connection connection, String sql) {
+            this.target = target;
+            this.connection = connection;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (EXECUTE_METHODS.contains(name)) {
+                return execute(method, args);
+            }
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                bind(index, name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                parameters.clear();
+            } else if (name.equals("addBatch")) {
+                batchSize++;
+            } else if (name.equals("clearBatch")) {
+                batchSize = 0;
+            } else if (name.equals("getConnection")) {
+                return connection;
+            }
+            return TracingDataSource.invoke(target, method, args);
+        }
+
+        private void bind(int index, Object value) {
+            while (parameters.size() < index) {
+                parameters.add(null);
+            }
+            parameters.set(index - 1, value);
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            boolean batch = method.getName().endsWith("Batch");
+            String statementSql = args != null && args.length > 0 && args[0] instanceof String text ? text : sql;
+            String operation = operation(statementSql);
+            Observation observation = Observation.createNotStarted("posts.jdbc.statement", observationRegistry.get())
+                    .contextualName(operation)
+                    .lowCardinalityKeyValue("operation", operation)
+                    .highCardinalityKeyValue("sql", String.valueOf(statementSql))
+                    .start();
+            long start = System.nanoTime();
+            try (Observation.Scope ignored = observation.openScope()) {
+                return TracingDataSource.invoke(target, method, args);
+            } catch (Throwable e) {
+                observation.error(e);
+                throw e;
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                SlowQueryLog log = slowQueryLog.get();
+                if (log != null && log.isSlow(elapsed)) {
+                    observation.highCardinalityKeyValue("slow", "true");
+                    log.record(getTargetDataSource(), statementSql, operation,
+                            batch ? List.of() : Arrays.asList(parameters.toArray()), batch ? batchSize : 0, elapsed);
+                }
+                if (batch) {
+                    observation.highCardinalityKeyValue("batch.size", String.valueOf(batchSize));
+                    batchSize = 0;
+                }
+                observation.stop();
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package dev.danvega.posts.util;
+
+import dev.danvega.posts.data.Post;
+import dev.danvega.posts.repository.PostChangeCounter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Batched {@code MERGE ... WHEN NOT MATCHED THEN INSERT} for H2: one JDBC batch statement per call.
+ * Existing ids are left alone, so replaying a batch when a load resumes keeps the rows, and their
+ * versions, as they are.
+ */
+class JdbcBatchPostWriter implements PostBulkWriter {
+
+    private static final String MERGE_SQL =
+            "MERGE INTO Post p USING (VALUES (CAST(? AS BIGINT), CAST(? AS INT), CAST(? AS VARCHAR(250)), CAST(? AS CLOB)))"
+                    + " AS s (id, userid, title, body) ON p.id = s.id"
+                    + " WHEN NOT MATCHED THEN INSERT (id, userid, title, body, version) VALUES (s.id, s.userid, s.title, s.body, 0)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    JdbcBatchPostWriter(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public void write(List<Post> posts) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(MERGE_SQL, posts, posts.size(), (ps, post) -> {
+                ps.setInt(1, post.id());
+                ps.setInt(2, post.userid());
+                ps.setString(3, post.title());
+                ps.setString(4, post.body());
+            });
+            jdbcTemplate.update(PostChangeCounter.INCREMENT_SQL);
+        });
+    }
+}
@@ -0,0 +1,15 @@
+package dev.danvega.posts.util;
+
+import dev.danvega.posts.data.Post;
+
+import java.util.List;
+
+/**
+ * Writes one batch of seed posts in its own transaction. Implementations must be idempotent
+ * for ids that already exist, because a resumed load may replay batches that were committed
+ * after the last checkpoint.
+ */
+interface PostBulkWriter {
+
+    void write(List<Post> posts);
+}
@@ -1,44 +1,263 @@
 package dev.danvega.posts.util;
 
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
-import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import dev.danvega.posts.event.PostsLoadedEvent;
 import dev.danvega.posts.repository.PostRepository;
-import dev.danvega.posts.data.Posts;
+import dev.danvega.posts.data.Post;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Seeds the Post table from a JSON document of the form {@code {"posts": [...]}} (or a bare array).
+ * <p>
+ * The file is read incrementally with Jackson's streaming parser and written in batches of
+ * {@code posts.loader.batch-size}, using COPY on PostgreSQL and batched MERGE on H2, by up to
+ * {@code posts.loader.writer-threads} writers. Progress is checkpointed in {@code post_load}, so a
+ * failed run resumes from the last record that is known to be committed on the next start.
+ * <p>
+ * With {@code posts.loader.background=true} the load runs on its own thread and startup does not
+ * wait for it: the application reports ready straight away and serves whatever has been committed
+ * so far. The rows are written without a {@code PostChangedEvent} each, so a {@link PostsLoadedEvent}
+ * is published once the import completes for the read models that scanned the table at startup.
+ */
 @Component()
 class PostDataLoader implements CommandLineRunner {
 
     private static final Logger log = LoggerFactory.getLogger(PostDataLoader.class);
+    private final ObjectReader postReader;
     private final ObjectMapper objectMapper;
     private final PostRepository postRepository;
+    private final ResourceLoader resourceLoader;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PostLoadCheckpoints checkpoints;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final String location;
+    private final int batchSize;
+    private final int writerThreads;
+    private final long progressInterval;
+    private final boolean background;
 
-    public PostDataLoader(ObjectMapper objectMapper, PostRepository postRepository) {
+    public PostDataLoader(ObjectMapper objectMapper,
+                          PostRepository postRepository,
+                          ResourceLoader resourceLoader,
+                          JdbcTemplate jdbcTemplate,
+                          PlatformTransactionManager transactionManager,
+                          ApplicationEventPublisher eventPublisher,
+                          @Value("${posts.loader.enabled:true}") boolean enabled,
+                          @Value("${posts.loader.location:classpath:/data/posts.json}") String location,
+                          @Value("${posts.loader.batch-size:1000}") int batchSize,
+                          @Value("${posts.loader.writer-threads:1}") int writerThreads,
+                          @Value("${posts.loader.progress-interval:100000}") long progressInterval,
+                          @Value("${posts.loader.background:false}") boolean background) {
         this.objectMapper = objectMapper;
+        this.postReader = objectMapper.readerFor(Post.class);
         this.postRepository = postRepository;
+        this.resourceLoader = resourceLoader;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.checkpoints = new PostLoadCheckpoints(jdbcTemplate);
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.location = location;
+        this.batchSize = batchSize;
+        this.writerThreads = writerThreads;
+        this.progressInterval = progressInterval;
+        this.background = background;
     }
 
     @Override
-    public void run(String... args) throws Exception {
-        if(postRepository.count() == 0){
-            String POSTS_JSON = "/data/posts.json";
-            log.info("Loading posts into database from JSON: {}", POSTS_JSON);
-            try (InputStream inputStream = TypeReference.class.getResourceAsStream(POSTS_JSON)) {
-                Posts response = objectMapper.readValue(inputStream, Posts.class);
-                postRepository.saveAll(response.posts());
-            } catch (IOException e) {
-                throw new RuntimeException("Failed to read JSON data", e);
+    public void run(String... args) {
+        if (!enabled) {
+            return;
+        }
+        if (!background) {
+            loadIfNeeded();
+            return;
+        }
+        Thread.ofPlatform().name("post-data-loader").start(() -> {
+            try {
+                long loaded = loadIfNeeded();
+                if (loaded > 0) {
+                    eventPublisher.publishEvent(new PostsLoadedEvent(location, loaded));
+                }
+            } catch (RuntimeException e) {
+                log.error("Background load of posts from {} failed", location, e);
+            }
+        });
+    }
+
+    /**
+     * Returns the number of records written by this run, 0 when there was nothing left to load.
+     */
+    long loadIfNeeded() {
+        PostLoadCheckpoints.Checkpoint checkpoint = checkpoints.find(location);
+        if (checkpoint == null) {
+            if (postRepository.count() > 0) {
+                // seeded before checkpoints existed, or populated by other means
+                return 0;
+            }
+            checkpoints.start(location);
+            log.info("Loading posts into database from JSON: {}", location);
+            return load(0);
+        } else if (!checkpoint.completed()) {
+            log.info("Resuming load of posts from JSON: {} after {} records", location, checkpoint.loaded());
+            return load(checkpoint.loaded());
+        }
+        return 0;
+    }
+
+    private long load(long resumeAfter) {
+        Resource resource = resourceLoader.getResource(location);
+        PostBulkWriter writer = writerFor(jdbcTemplate);
+        ExecutorService writers = Executors.newFixedThreadPool(writerThreads);
+        // bounds the number of parsed batches held in memory at once
+        Semaphore inFlight = new Semaphore(writerThreads * 2);
+        Watermark watermark = new Watermark(resumeAfter);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        long start = System.nanoTime();
+        long read = 0;
+
+        try (InputStream inputStream = resource.getInputStream();
+             JsonParser parser = objectMapper.getFactory().createParser(inputStream)) {
+            moveToPostsArray(parser);
+            List<Post> batch = new ArrayList<>(batchSize);
+            while (failure.get() == null && parser.nextToken() == JsonToken.START_OBJECT) {
+                Post post = postReader.readValue(parser);
+                if (++read <= resumeAfter) {
+                    continue;
+                }
+                batch.add(post);
+                if (batch.size() == batchSize) {
+                    pending.add(submit(writer, writers, inFlight, watermark, failure, batch));
+                    batch = new ArrayList<>(batchSize);
+                }
+                if (read % progressInterval == 0) {
+                    log.info("Read {} posts, {} committed", read, watermark.loaded());
+                }
+                pending.removeIf(CompletableFuture::isDone);
+            }
+            if (!batch.isEmpty() && failure.get() == null) {
+                pending.add(submit(writer, writers, inFlight, watermark, failure, batch));
             }
+            CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).join();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read JSON data", e);
+        } finally {
+            writers.shutdown();
         }
+
+        if (failure.get() != null) {
+            throw new RuntimeException("Failed to load posts after " + watermark.loaded()
+                    + " committed records; the next start resumes from there", failure.get());
+        }
+        checkpoints.complete(location, watermark.loaded());
+        log.info("Loaded {} posts in {} ms", watermark.loaded() - resumeAfter, (System.nanoTime() - start) / 1_000_000);
+        return watermark.loaded() - resumeAfter;
     }
 
+    private CompletableFuture<Void> submit(PostBulkWriter writer, ExecutorService writers, Semaphore inFlight,
+                                           Watermark watermark, AtomicReference<Throwable> failure,
+                                           List<Post> batch) {
+        inFlight.acquireUninterruptibly();
+        long sequence = watermark.register(batch.size());
+        return CompletableFuture.runAsync(() -> {
+            try {
+                writer.write(batch);
+                long loaded = watermark.complete(sequence);
+                checkpoints.advance(location, loaded);
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                inFlight.release();
+            }
+        }, writers);
+    }
+
+    private static void moveToPostsArray(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.START_ARRAY) {
+            return;
+        }
+        while ((token = parser.nextToken()) != null) {
+            if (token == JsonToken.FIELD_NAME && "posts".equals(parser.currentName())) {
+                if (parser.nextToken() == JsonToken.START_ARRAY) {
+                    return;
+                }
+            } else if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+                parser.skipChildren();
+            }
+        }
+        throw new IOException("No \"posts\" array found");
+    }
+
+    private PostBulkWriter writerFor(JdbcTemplate jdbcTemplate) {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        if ("PostgreSQL".equals(product)) {
+            return new PostgresCopyPostWriter(jdbcTemplate, transactionTemplate);
+        }
+        return new JdbcBatchPostWriter(jdbcTemplate, transactionTemplate);
+    }
+
+    /**
+     * Tracks the number of records covered by the longest run of committed batches, which is the
+     * only safe resume point when batches finish out of order.
+     */
+    private static final class Watermark {
+
+        private final TreeMap<Long, Integer> sizes = new TreeMap<>();
+        private final TreeMap<Long, Integer> done = new TreeMap<>();
+        private long nextSequence;
+        private long nextToCommit;
+        private long loaded;
+
+        Watermark(long loaded) {
+            this.loaded = loaded;
+        }
+
+        synchronized long register(int size) {
+            sizes.put(nextSequence, size);
+            return nextSequence++;
+        }
+
+        synchronized long complete(long sequence) {
+            done.put(sequence, sizes.remove(sequence));
+            while (done.containsKey(nextToCommit)) {
+                loaded += done.remove(nextToCommit++);
+            }
+            return loaded;
+        }
+
+        synchronized long loaded() {
+            return loaded;
+        }
+    }
 }
@@ -0,0 +1,41 @@
+package dev.danvega.posts.util;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+/**
+ * Persists how far a seed file has been loaded, in the {@code post_load} table.
+ * {@code loaded} only ever covers records whose batches, and all batches before them, committed.
+ */
+class PostLoadCheckpoints {
+
+    record Checkpoint(String source, long loaded, boolean completed) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    PostLoadCheckpoints(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    Checkpoint find(String source) {
+        List<Checkpoint> checkpoints = jdbcTemplate.query(
+                "SELECT source, loaded, completed FROM post_load WHERE source = ?",
+                (rs, rowNum) -> new Checkpoint(rs.getString(1), rs.getLong(2), rs.getBoolean(3)),
+                source);
+        return checkpoints.isEmpty() ? null : checkpoints.getFirst();
+    }
+
+    void start(String source) {
+        jdbcTemplate.update("INSERT INTO post_load (source, loaded, completed) VALUES (?, 0, FALSE)", source);
+    }
+
+    void advance(String source, long loaded) {
+        jdbcTemplate.update("UPDATE post_load SET loaded = ? WHERE source = ? AND loaded < ?", loaded, source, loaded);
+    }
+
+    void complete(String source, long loaded) {
+        jdbcTemplate.update("UPDATE post_load SET loaded = ?, completed = TRUE WHERE source = ?", loaded, source);
+    }
+}
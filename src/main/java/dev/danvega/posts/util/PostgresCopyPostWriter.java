@@ -0,0 +1,68 @@
+package dev.danvega.posts.util;
+
+import dev.danvega.posts.data.Post;
+import dev.danvega.posts.repository.PostChangeCounter;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * PostgreSQL {@code COPY} into a transaction-scoped staging table, followed by one
+ * {@code INSERT ... ON CONFLICT DO NOTHING} so replayed batches are skipped.
+ */
+class PostgresCopyPostWriter implements PostBulkWriter {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    PostgresCopyPostWriter(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public void write(List<Post> posts) {
+        String csv = toCsv(posts);
+        transactionTemplate.executeWithoutResult(status ->
+                jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute("CREATE TEMP TABLE post_stage (LIKE Post INCLUDING DEFAULTS) ON COMMIT DROP");
+                    }
+                    long copied;
+                    try {
+                        copied = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(
+                                "COPY post_stage (id, userid, title, body, version) FROM STDIN WITH (FORMAT csv)",
+                                new StringReader(csv));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute("INSERT INTO Post SELECT * FROM post_stage ON CONFLICT (id) DO NOTHING");
+                        statement.execute(PostChangeCounter.INCREMENT_SQL);
+                    }
+                    return copied;
+                }));
+    }
+
+    private static String toCsv(List<Post> posts) {
+        StringBuilder csv = new StringBuilder(posts.size() * 256);
+        for (Post post : posts) {
+            csv.append(post.id()).append(',')
+                    .append(post.userid()).append(',');
+            quote(csv, post.title()).append(',');
+            quote(csv, post.body()).append(",0\n");
+        }
+        return csv.toString();
+    }
+
+    private static StringBuilder quote(StringBuilder csv, String value) {
+        return csv.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+}
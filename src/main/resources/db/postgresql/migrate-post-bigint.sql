@@ -0,0 +1,27 @@
+-- Widens Post.id to BIGINT on an existing PostgreSQL database, and adds post_archive and post_change.
+--   psql -d blog -f migrate-post-bigint.sql
+-- ALTER COLUMN ... TYPE rewrites the table and its indexes under an ACCESS EXCLUSIVE lock, so reads
+-- and writes wait until it is done: fine for small tables or a maintenance window. To convert a large
+-- table while it keeps serving, use migrate-post-partitioned.sql, which widens the id on the way.
+\set ON_ERROR_STOP on
+
+BEGIN;
+SET LOCAL lock_timeout = '5s';
+ALTER TABLE Post ALTER COLUMN id TYPE BIGINT;
+CREATE TABLE IF NOT EXISTS post_archive (
+                                    first_id BIGINT NOT NULL,
+                                    last_id BIGINT NOT NULL,
+                                    posts INT NOT NULL,
+                                    payload BYTEA NOT NULL,
+                                    PRIMARY KEY (first_id)
+);
+ALTER TABLE post_archive ALTER COLUMN payload SET STORAGE EXTERNAL;
+-- change counter for the collection ETag (PostRepository.findWatermark): one row, raised by every
+-- transaction that writes to Post, so it only ever moves forward
+CREATE TABLE IF NOT EXISTS post_change (
+                                    id INT NOT NULL,
+                                    seq BIGINT NOT NULL,
+                                    PRIMARY KEY (id)
+);
+INSERT INTO post_change (id, seq) SELECT 1, 0 WHERE NOT EXISTS (SELECT 1 FROM post_change WHERE id = 1);
+COMMIT;
@@ -0,0 +1,105 @@
+-- Converts an existing, unpartitioned Post table into the layout of schema-partitioned.sql (range
+-- partitions on a BIGINT id) while the application keeps reading and writing it.
+--   psql -d blog -v range_size=1000000 -v batch_size=10000 -f migrate-post-partitioned.sql
+-- range_size must match posts.partitioning.range-size. Steps:
+--   1. create post_partitioned with a partition for every range that holds rows
+--   2. mirror every write on Post into it with a trigger, logging deleted ids
+--   3. copy the existing rows in batches of batch_size ids, each batch committed on its own
+--   4. in one short transaction: drop rows the copy brought back after a concurrent delete, then swap
+--      the tables by renaming. The old table is kept as post_unpartitioned until dropped by hand.
+-- Then set posts.partitioning.enabled=true. Requires PostgreSQL 13 or later. Also adds post_change,
+-- first, as the application raises it on every write, and post_archive at the end.
+\set ON_ERROR_STOP on
+
+-- change counter for the collection ETag (PostRepository.findWatermark): one row, raised by every
+-- transaction that writes to Post, so it only ever moves forward
+CREATE TABLE IF NOT EXISTS post_change (
+                                    id INT NOT NULL,
+                                    seq BIGINT NOT NULL,
+                                    PRIMARY KEY (id)
+);
+INSERT INTO post_change (id, seq) SELECT 1, 0 WHERE NOT EXISTS (SELECT 1 FROM post_change WHERE id = 1);
+
+-- 1.
+BEGIN;
+CREATE TABLE post_partitioned (
+                                    id BIGINT NOT NULL,
+                                    userId INT NOT NULL,
+                                    title varchar(250) NOT NULL,
+                                    body text NOT NULL,
+                                    version int,
+                                    PRIMARY KEY (id)
+) PARTITION BY RANGE (id);
+CREATE TABLE post_partitioned_default PARTITION OF post_partitioned DEFAULT;
+CREATE INDEX post_partitioned_userid_id_idx ON post_partitioned (userId, id);
+
+SELECT format('CREATE TABLE post_p_%s PARTITION OF post_partitioned FOR VALUES FROM (%s) TO (%s)',
+              n, n * :range_size, (n + 1) * :range_size)
+FROM (SELECT DISTINCT id / :range_size AS n FROM Post
+      UNION SELECT COALESCE(MAX(id), 0) / :range_size + 1 FROM Post) ranges
+ORDER BY n
+\gexec
+
+-- 2.
+CREATE TABLE post_migration_deleted (id BIGINT NOT NULL);
+
+CREATE FUNCTION post_migration_mirror() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    IF TG_OP IN ('DELETE', 'UPDATE') THEN
+        DELETE FROM post_partitioned WHERE id = OLD.id;
+        INSERT INTO post_migration_deleted VALUES (OLD.id);
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        INSERT INTO post_partitioned VALUES (NEW.id, NEW.userId, NEW.title, NEW.body, NEW.version)
+        ON CONFLICT (id) DO UPDATE SET userId = EXCLUDED.userId, title = EXCLUDED.title,
+                                       body = EXCLUDED.body, version = EXCLUDED.version;
+    END IF;
+    RETURN NULL;
+END $$;
+
+CREATE TRIGGER post_migration_mirror AFTER INSERT OR UPDATE OR DELETE ON Post
+    FOR EACH ROW EXECUTE FUNCTION post_migration_mirror();
+COMMIT;
+
+-- 3. rows the trigger already wrote are newer than the copy's, so the copy never overwrites them
+CREATE PROCEDURE post_migration_copy(batch_size bigint) LANGUAGE plpgsql AS $$
+DECLARE
+    next_id bigint;
+    max_id bigint;
+BEGIN
+    SELECT MIN(id), MAX(id) INTO next_id, max_id FROM Post;
+    WHILE next_id <= max_id LOOP
+        INSERT INTO post_partitioned
+        SELECT id, userId, title, body, version FROM Post WHERE id >= next_id AND id < next_id + batch_size
+        ON CONFLICT (id) DO NOTHING;
+        COMMIT;
+        next_id := next_id + batch_size;
+    END LOOP;
+END $$;
+
+CALL post_migration_copy(:batch_size);
+
+-- 4. a batch that read a row just before it was deleted may have copied it after the trigger ran
+BEGIN;
+LOCK TABLE Post IN EXCLUSIVE MODE;
+DELETE FROM post_partitioned p USING post_migration_deleted d
+WHERE p.id = d.id AND NOT EXISTS (SELECT 1 FROM Post WHERE Post.id = d.id);
+DROP TRIGGER post_migration_mirror ON Post;
+ALTER TABLE Post RENAME TO post_unpartitioned;
+ALTER INDEX post_userid_id_idx RENAME TO post_unpartitioned_userid_id_idx;
+ALTER TABLE post_partitioned RENAME TO Post;
+ALTER TABLE post_partitioned_default RENAME TO post_default;
+ALTER INDEX post_partitioned_userid_id_idx RENAME TO post_userid_id_idx;
+DROP FUNCTION post_migration_mirror();
+DROP PROCEDURE post_migration_copy(bigint);
+DROP TABLE post_migration_deleted;
+COMMIT;
+
+CREATE TABLE IF NOT EXISTS post_archive (
+                                    first_id BIGINT NOT NULL,
+                                    last_id BIGINT NOT NULL,
+                                    posts INT NOT NULL,
+                                    payload BYTEA NOT NULL,
+                                    PRIMARY KEY (first_id)
+);
+ALTER TABLE post_archive ALTER COLUMN payload SET STORAGE EXTERNAL;
@@ -0,0 +1,47 @@
+-- schema.sql with Post range-partitioned on id, for a new PostgreSQL database. Use it instead of
+-- schema.sql with
+--   spring.sql.init.mode=always
+--   spring.sql.init.schema-locations=classpath:db/postgresql/schema-partitioned.sql
+--   posts.partitioning.enabled=true
+-- PostPartitionMaintainer then adds the post_p_<n> range partitions as ids grow. An existing table is
+-- converted with migrate-post-partitioned.sql instead.
+CREATE TABLE IF NOT EXISTS Post (
+                                    id BIGINT NOT NULL,
+                                    userId INT NOT NULL,
+                                    title varchar(250) NOT NULL,
+                                    body text NOT NULL,
+                                    version int,
+                                    PRIMARY KEY (id)
+) PARTITION BY RANGE (id);
+
+-- takes ids no range partition covers yet, so an insert never fails for want of a partition
+CREATE TABLE IF NOT EXISTS post_default PARTITION OF Post DEFAULT;
+
+CREATE TABLE IF NOT EXISTS post_load (
+                                    source varchar(250) NOT NULL,
+                                    loaded bigint NOT NULL,
+                                    completed boolean NOT NULL,
+                                    PRIMARY KEY (source)
+);
+
+-- change counter for the collection ETag (PostRepository.findWatermark): one row, raised in the same
+-- transaction as every write to Post, so it only ever moves forward
+CREATE TABLE IF NOT EXISTS post_change (
+                                    id INT NOT NULL,
+                                    seq BIGINT NOT NULL,
+                                    PRIMARY KEY (id)
+);
+INSERT INTO post_change (id, seq) SELECT 1, 0 WHERE NOT EXISTS (SELECT 1 FROM post_change WHERE id = 1);
+
+-- created on every partition, current and future
+CREATE INDEX IF NOT EXISTS post_userid_id_idx ON Post (userId, id);
+
+CREATE TABLE IF NOT EXISTS post_archive (
+                                    first_id BIGINT NOT NULL,
+                                    last_id BIGINT NOT NULL,
+                                    posts INT NOT NULL,
+                                    payload BYTEA NOT NULL,
+                                    PRIMARY KEY (first_id)
+);
+-- payloads are gzipped already; do not let TOAST try again
+ALTER TABLE post_archive ALTER COLUMN payload SET STORAGE EXTERNAL;
@@ -1,8 +1,39 @@
+-- id is BIGINT in storage so tables can outgrow 2^31 rows; existing PostgreSQL tables are widened
+-- with db/postgresql/migrate-post-bigint.sql (see there). The API still takes 32-bit ids for now.
 CREATE TABLE IF NOT EXISTS Post (
-                                    id INT NOT NULL,
+                                    id BIGINT NOT NULL,
                                     userId INT NOT NULL,
                                     title varchar(250) NOT NULL,
                                     body text NOT NULL,
                                     version int,
                                     PRIMARY KEY (id)
-);
\ No newline at end of file
+);
+
+CREATE TABLE IF NOT EXISTS post_load (
+                                    source varchar(250) NOT NULL,
+                                    loaded bigint NOT NULL,
+                                    completed boolean NOT NULL,
+                                    PRIMARY KEY (source)
+);
+
+-- change counter for the collection ETag (PostRepository.findWatermark): one row, raised in the same
+-- transaction as every write to Post, so it only ever moves forward
+CREATE TABLE IF NOT EXISTS post_change (
+                                    id INT NOT NULL,
+                                    seq BIGINT NOT NULL,
+                                    PRIMARY KEY (id)
+);
+INSERT INTO post_change (id, seq) SELECT 1, 0 WHERE NOT EXISTS (SELECT 1 FROM post_change WHERE id = 1);
+
+-- per-user keyset pages: WHERE userId = ? AND id > ? ORDER BY id is a range scan of this index
+CREATE INDEX IF NOT EXISTS post_userid_id_idx ON Post (userId, id);
+
+-- cold posts moved out of Post by PostArchiver: one row per block of ids, holding the block's posts as
+-- a gzipped JSON array
+CREATE TABLE IF NOT EXISTS post_archive (
+                                    first_id BIGINT NOT NULL,
+                                    last_id BIGINT NOT NULL,
+                                    posts INT NOT NULL,
+                                    payload BYTEA NOT NULL,
+                                    PRIMARY KEY (first_id)
+);
@@ -0,0 +1,107 @@
+package dev.danvega.posts.admission;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PostAdmissionFilterTests {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldLimitReadsAndWritesOfEachClientSeparately() throws Exception {
+        PostAdmissionFilter filter = filter(2, 1, 0);
+
+        assertThat(send(filter, "GET", "/api/posts/1", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(send(filter, "GET", "/api/posts/1", "10.0.0.1").getStatus()).isEqualTo(200);
+        MockHttpServletResponse limited = send(filter, "GET", "/api/posts/1", "10.0.0.1");
+        assertThat(send(filter, "POST", "/api/posts", "10.0.0.1").getStatus()).isEqualTo(200);
+        assertThat(send(filter, "GET", "/api/posts/1", "10.0.0.2").getStatus()).isEqualTo(200);
+
+        assertThat(limited.getStatus()).isEqualTo(429);
+        assertThat(limited.getHeader("Retry-After")).isEqualTo("1");
+        assertThat(limited.getContentType()).isEqualTo("application/problem+json");
+        assertThat(limited.getContentAsString()).contains("\"status\":429");
+        assertThat(meterRegistry.get("posts.admission.rejected")
+                .tags("reason", "rate-limit", "access", "read").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldIgnoreOtherPaths() throws Exception {
+        PostAdmissionFilter filter = filter(1, 1, 0);
+
+        send(filter, "GET", "/actuator/health", "10.0.0.1");
+
+        assertThat(send(filter, "GET", "/actuator/health", "10.0.0.1").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void shouldShedRequestsBeyondMaxConcurrent() throws Exception {
+        PostAdmissionFilter filter = filter(1000, 1000, 1);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FilterChain blocking = (request, response) -> {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            Future<?> first = executor.submit(() -> {
+                filter.doFilter(request("GET", "/api/posts", "10.0.0.1"), new MockHttpServletResponse(), blocking);
+                return null;
+            });
+            entered.await();
+
+            MockHttpServletResponse shed = send(filter, "GET", "/api/posts", "10.0.0.2");
+            release.countDown();
+            first.get();
+
+            assertThat(shed.getStatus()).isEqualTo(503);
+            assertThat(shed.getHeader("Retry-After")).isEqualTo("1");
+        }
+        assertThat(send(filter, "GET", "/api/posts", "10.0.0.2").getStatus()).isEqualTo(200);
+        assertThat(meterRegistry.get("posts.admission.rejected")
+                .tags("reason", "overload", "access", "read").counter().count()).isEqualTo(1);
+    }
+
+    private PostAdmissionFilter filter(int readBurst, int writeBurst, int maxConcurrent) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry", meterRegistry);
+        return new PostAdmissionFilter(objectMapper, beanFactory.getBeanProvider(MeterRegistry.class),
+                true, "", 1, readBurst, 1, writeBurst, Duration.ofMinutes(1), 1000,
+                maxConcurrent, Duration.ofSeconds(1));
+    }
+
+    private static MockHttpServletResponse send(PostAdmissionFilter filter, String method, String uri,
+                                                String remoteAddr) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request(method, uri, remoteAddr), response, new MockFilterChain());
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String method, String uri, String remoteAddr) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.setRemoteAddr(remoteAddr);
+        return request;
+    }
+}
@@ -0,0 +1,54 @@
+package dev.danvega.posts.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TokenBucketTests {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void shouldAllowBurstThenReportWaitUntilNextToken() {
+        TokenBucket bucket = new TokenBucket(10, 3);
+
+        assertThat(bucket.tryAcquire(0)).isZero();
+        assertThat(bucket.tryAcquire(0)).isZero();
+        assertThat(bucket.tryAcquire(0)).isZero();
+        assertThat(bucket.tryAcquire(0)).isEqualTo(SECOND / 10);
+    }
+
+    @Test
+    void shouldRefillAtRate() {
+        TokenBucket bucket = new TokenBucket(10, 1);
+
+        assertThat(bucket.tryAcquire(0)).isZero();
+        assertThat(bucket.tryAcquire(SECOND / 20)).isPositive();
+        assertThat(bucket.tryAcquire(SECOND / 10)).isZero();
+        // idle time refills up to the burst, not beyond it
+        assertThat(bucket.tryAcquire(10 * SECOND)).isZero();
+        assertThat(bucket.tryAcquire(10 * SECOND)).isPositive();
+    }
+
+    @Test
+    void shouldHandOutExactlyBurstTokensToConcurrentCallers() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(1, 1000);
+        AtomicInteger granted = new AtomicInteger();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 5000; i++) {
+                executor.submit(() -> {
+                    if (bucket.tryAcquire(0) == 0) {
+                        granted.incrementAndGet();
+                    }
+                });
+            }
+        }
+
+        assertThat(granted).hasValue(1000);
+    }
+}
@@ -0,0 +1,124 @@
+package dev.danvega.posts.archive;
+
+import dev.danvega.posts.cache.PostCacheConfig;
+import dev.danvega.posts.data.Post;
+import dev.danvega.posts.repository.PostRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.test.autoconfigure.data.jdbc.DataJdbcTest;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJdbcTest
+public class PostArchiverTests {
+
+    @Autowired
+    PostRepository postRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    private PostArchive archive;
+    private PostArchiver archiver;
+    private ConcurrentMapCacheManager cacheManager;
+
+    @BeforeEach
+    void setup() {
+        // even ids 10000..10400; with blocks of 100 and the newest 150 ids hot, 10000..10199 are cold
+        postRepository.insertAll(IntStream.rangeClosed(5000, 5200)
+                .mapToObj(i -> new Post(i * 2, 1, "title " + i * 2, "body " + i * 2, 0))
+                .toList());
+        archive = new PostArchive(jdbcTemplate, Jackson2ObjectMapperBuilder.json().build(), 10);
+        cacheManager = new ConcurrentMapCacheManager(PostCacheConfig.POSTS_CACHE);
+        archiver = new PostArchiver(jdbcTemplate, transactionManager, archive, cacheManager,
+                new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class), 100, 150, 1000, Duration.ofHours(1));
+    }
+
+    @Test
+    void shouldMoveColdBlocksToArchive() {
+        cacheManager.getCache(PostCacheConfig.POSTS_CACHE).put(10050, new Post(10050, 1, "title 10050", "body 10050", 0));
+
+        archiver.archive();
+
+        assertThat(postRepository.existsById(10050)).isFalse();
+        assertThat(postRepository.existsById(10198)).isFalse();
+        assertThat(postRepository.existsById(10200)).isTrue();
+        assertThat(archive.findById(10050)).contains(new Post(10050, 1, "title 10050", "body 10050", 0));
+        assertThat(archive.findById(10051)).isEmpty();
+        assertThat(archive.findById(10200)).isEmpty();
+        assertThat(cacheManager.getCache(PostCacheConfig.POSTS_CACHE).get(10050)).isNull();
+    }
+
+    @Test
+    void shouldCompressArchivedBlocks() {
+        archiver.archive();
+
+        Integer archivedBytes = jdbcTemplate.queryForObject(
+                "SELECT OCTET_LENGTH(payload) FROM post_archive WHERE first_id = 10000", Integer.class);
+        assertThat(archive.block(10000)).hasSize(50);
+        assertThat(archivedBytes).isLessThan(50 * "{\"id\":10000,\"userid\":1,\"title\":\"title 10000\",\"body\":\"body 10000\",\"version\":0}".length() / 3);
+    }
+
+    @Test
+    void shouldMergeLatePostsIntoArchivedBlock() {
+        archiver.archive();
+        postRepository.insertAll(java.util.List.of(new Post(10051, 2, "late", "late body", 0)));
+
+        archiver.archive();
+
+        assertThat(postRepository.existsById(10051)).isFalse();
+        assertThat(archive.findById(10051)).map(Post::title).contains("late");
+        assertThat(archive.findById(10050)).isPresent();
+    }
+
+    @Test
+    void shouldKeepArchivedPostWhenLateRowReusesItsId() {
+        archiver.archive();
+        jdbcTemplate.update("INSERT INTO Post (id, userid, title, body, version) VALUES (10050, 2, 'reused', 'reused', 0)");
+
+        archiver.archive();
+
+        assertThat(archive.findById(10050)).map(Post::title).contains("title 10050");
+    }
+
+    @Test
+    void shouldReportIdsInsideArchivedBlocks() {
+        archiver.archive();
+
+        assertThat(archive.covers(10051)).isTrue();
+        assertThat(archive.covers(10200)).isFalse();
+        assertThat(archive.covered(java.util.List.of(9999, 10000, 10199, 10200))).containsExactlyInAnyOrder(10000, 10199);
+    }
+
+    @Test
+    void shouldStreamArchivedPostsInIdOrder() {
+        archiver.archive();
+
+        assertThat(archive.posts(null, 10096, 10104L).map(Post::id)).containsExactly(10098, 10100, 10102, 10104);
+        assertThat(archive.posts(2, 0, null)).isEmpty();
+    }
+
+    @Test
+    void shouldListEveryArchivedPostInIdOrder() {
+        archiver.archive();
+
+        assertThat(archive.all().map(Post::id))
+                .hasSize(100)
+                .isSorted()
+                .startsWith(10000, 10002)
+                .endsWith(10198);
+    }
+}
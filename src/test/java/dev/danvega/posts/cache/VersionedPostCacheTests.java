@@ -0,0 +1,60 @@
+package dev.danvega.posts.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.danvega.posts.data.Post;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class VersionedPostCacheTests {
+
+    private final VersionedPostCache cache = new VersionedPostCache("posts", Caffeine.newBuilder().build(), Duration.ofMinutes(1));
+
+    @Test
+    void shouldReplaceEntryWithNewerVersion() {
+        cache.put(1, new Post(1, 1, "title", "body", 0));
+        cache.put(1, new Post(1, 1, "new title", "body", 1));
+
+        assertThat(cache.get(1, Post.class).title()).isEqualTo("new title");
+    }
+
+    @Test
+    void shouldNotReplaceEntryWithStaleVersion() {
+        cache.put(1, new Post(1, 1, "new title", "body", 1));
+        cache.put(1, new Post(1, 1, "title", "body", 0));
+
+        assertThat(cache.get(1, Post.class).version()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotLetStaleReadRepopulateDeletedPost() {
+        cache.put(1, new Post(1, 1, "title", "body", 3));
+        cache.delete(1);
+
+        cache.put(1, new Post(1, 1, "title", "body", 3));
+
+        assertThat(cache.get(1)).isNull();
+    }
+
+    @Test
+    void shouldRejectAnyVersionWhenDeletedVersionIsUnknown() {
+        cache.delete(1);
+
+        cache.put(1, new Post(1, 1, "title", "body", 7));
+
+        assertThat(cache.get(1)).isNull();
+    }
+
+    @Test
+    void shouldCacheReusedIdOnceCreated() {
+        cache.put(1, new Post(1, 1, "title", "body", 3));
+        cache.delete(1);
+        cache.create(1);
+
+        cache.put(1, new Post(1, 2, "recreated", "body", 0));
+
+        assertThat(cache.get(1, Post.class).title()).isEqualTo("recreated");
+    }
+}
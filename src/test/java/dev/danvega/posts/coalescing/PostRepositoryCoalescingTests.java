@@ -0,0 +1,149 @@
+package dev.danvega.posts.coalescing;
+
+import dev.danvega.posts.data.Post;
+import dev.danvega.posts.repository.PostRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import dev.danvega.posts.event.PostChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.data.jdbc.DataJdbcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Hundreds of callers asking for the same list at once, against the real repository, with every
+ * connection taken from the pool counted on the way: each uncoalesced call needs one.
+ */
+@DataJdbcTest
+@Import({CoalescingConfig.class, PostRepositoryCoalescingTests.CountingConfig.class})
+@TestPropertySource(properties = "posts.coalescing.window=20ms")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class PostRepositoryCoalescingTests {
+
+    private static final Logger log = LoggerFactory.getLogger(PostRepositoryCoalescingTests.class);
+
+    private static final int CALLERS = 200;
+    private static final int CALLS_PER_CALLER = 10;
+
+    // the event package brings the publisher that turns repository writes into PostChangedEvents
+    @TestConfiguration
+    @ComponentScan(basePackageClasses = PostChangedEvent.class)
+    static class CountingConfig {
+
+        static final AtomicInteger connections = new AtomicInteger();
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        static BeanPostProcessor countingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (!(bean instanceof DataSource dataSource)) {
+                        return bean;
+                    }
+                    return new DelegatingDataSource(dataSource) {
+                        @Override
+                        public Connection getConnection() throws SQLException {
+                            connections.incrementAndGet();
+                            return super.getConnection();
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    @Autowired
+    PostRepository postRepository;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setup() {
+        postRepository.insertAll(IntStream.rangeClosed(2001, 2010)
+                .mapToObj(id -> new Post(id, 1, "title " + id, "body " + id, null))
+                .toList());
+    }
+
+    @AfterEach
+    void cleanup() {
+        postRepository.deleteAllByIds(IntStream.rangeClosed(2001, 2010).boxed().toList());
+    }
+
+    @Test
+    void shouldCollapseConcurrentIdenticalReadsIntoFewQueries() throws Exception {
+        int before = CountingConfig.connections.get();
+        double calledBefore = coalescerCalls();
+        CyclicBarrier start = new CyclicBarrier(CALLERS);
+        List<Future<?>> callers = new ArrayList<>();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(CALLERS)) {
+            for (int i = 0; i < CALLERS; i++) {
+                callers.add(executor.submit(() -> {
+                    start.await();
+                    for (int call = 0; call < CALLS_PER_CALLER; call++) {
+                        assertThat(postRepository.findAll()).hasSizeGreaterThanOrEqualTo(10);
+                    }
+                    return null;
+                }));
+            }
+        }
+        for (Future<?> caller : callers) {
+            caller.get();
+        }
+
+        int queries = CountingConfig.connections.get() - before;
+        log.info("{} findAll calls, {} connections used", CALLERS * CALLS_PER_CALLER, queries);
+        assertThat(queries).isLessThan(CALLERS * CALLS_PER_CALLER / 10);
+        assertThat(coalescerCalls() - calledBefore).isEqualTo(CALLERS * CALLS_PER_CALLER);
+    }
+
+    @Test
+    void shouldNotShareResultsAcrossWrites() {
+        List<Post> before = postRepository.findAll();
+
+        postRepository.save(new Post(1001, 1, "title", "body", null));
+
+        assertThat(postRepository.findAll()).hasSize(before.size() + 1);
+        postRepository.deleteById(1001);
+        assertThat(postRepository.findAll()).hasSize(before.size());
+    }
+
+    private double coalescerCalls() {
+        return meterRegistry.find("posts.coalescing.saved").tag("method", "findAll").counters().stream()
+                .mapToDouble(counter -> counter.count()).sum()
+                + meterRegistry.find("posts.coalescing.queries").tag("method", "findAll").counters().stream()
+                .mapToDouble(counter -> counter.count()).sum();
+    }
+}
@@ -0,0 +1,160 @@
+package dev.danvega.posts.coalescing;
+
+import dev.danvega.posts.datasource.ReplicaPinning;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+public class ReadCoalescerTests {
+
+    interface Reader {
+
+        @Coalesced
+        String read(int id);
+    }
+
+    static class SlowReader implements Reader {
+
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public String read(int id) {
+            calls.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (id < 0) {
+                throw new IllegalArgumentException("negative id");
+            }
+            return "post " + id + " #" + calls.get();
+        }
+    }
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SlowReader target = new SlowReader();
+
+    @Test
+    void shouldShareOneInFlightCallBetweenConcurrentIdenticalReads() throws Exception {
+        ReadCoalescer coalescer = coalescer(Duration.ZERO);
+        Reader reader = proxy(coalescer);
+
+        List<String> results = readConcurrently(reader, 50, 1);
+
+        assertThat(target.calls).hasValue(1);
+        assertThat(results).hasSize(50).containsOnly("post 1 #1");
+        assertThat(meterRegistry.get("posts.coalescing.saved").tag("method", "read").counter().count()).isEqualTo(49);
+        // nothing is kept once the call has returned
+        assertThat(coalescer.size()).isZero();
+        assertThat(reader.read(1)).isEqualTo("post 1 #2");
+    }
+
+    @Test
+    void shouldNotShareBetweenDifferentArguments() throws Exception {
+        Reader reader = proxy(coalescer(Duration.ZERO));
+        target.release.countDown();
+
+        assertThat(reader.read(1)).isEqualTo("post 1 #1");
+        assertThat(reader.read(2)).isEqualTo("post 2 #2");
+    }
+
+    @Test
+    void shouldShareExceptionOfInFlightCall() throws Exception {
+        Reader reader = proxy(coalescer(Duration.ZERO));
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<?> first = executor.submit(() -> reader.read(-1));
+            await().until(() -> target.calls.get() == 1);
+            Future<?> second = executor.submit(() -> reader.read(-1));
+            await().until(() -> meterRegistry.find("posts.coalescing.saved").counter() != null);
+            target.release.countDown();
+
+            for (Future<?> future : List.of(first, second)) {
+                assertThatThrownBy(future::get).hasCauseInstanceOf(IllegalArgumentException.class);
+            }
+        }
+        assertThat(target.calls).hasValue(1);
+    }
+
+    @Test
+    void shouldKeepResultForWindowUntilPostChanges() {
+        ReadCoalescer coalescer = coalescer(Duration.ofMinutes(1));
+        Reader reader = proxy(coalescer);
+        target.release.countDown();
+
+        assertThat(reader.read(1)).isEqualTo("post 1 #1");
+        assertThat(reader.read(1)).isEqualTo("post 1 #1");
+
+        coalescer.on(null);
+
+        assertThat(reader.read(1)).isEqualTo("post 1 #2");
+    }
+
+    @Test
+    void shouldNotShareResultWithRequestPinnedToPrimary() {
+        Reader reader = proxy(coalescer(Duration.ofMinutes(1)));
+        target.release.countDown();
+        assertThat(reader.read(1)).isEqualTo("post 1 #1");
+
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        try {
+            ReplicaPinning.pinToPrimary();
+
+            assertThat(reader.read(1)).isEqualTo("post 1 #2");
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+
+    private List<String> readConcurrently(Reader reader, int callers, int id) throws Exception {
+        List<Future<String>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < callers; i++) {
+                futures.add(executor.submit(() -> reader.read(id)));
+            }
+            await().until(() -> meterRegistry.find("posts.coalescing.saved").counter() != null
+                    && meterRegistry.get("posts.coalescing.saved").counter().count() == callers - 1);
+            target.release.countDown();
+        }
+        List<String> results = new ArrayList<>();
+        for (Future<String> future : futures) {
+            results.add(future.get());
+        }
+        return results;
+    }
+
+    private ReadCoalescer coalescer(Duration window) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry", meterRegistry);
+        return new ReadCoalescer(beanFactory.getBeanProvider(MeterRegistry.class), window);
+    }
+
+    private Reader proxy(ReadCoalescer coalescer) {
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.addAdvisor(new DefaultPointcutAdvisor(
+                new AnnotationMatchingPointcut(null, Coalesced.class, true), coalescer));
+        return (Reader) proxyFactory.getProxy();
+    }
+}
@@ -0,0 +1,107 @@
+package dev.danvega.posts.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.danvega.posts.data.Post;
+import dev.danvega.posts.event.PostChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+public class PostPayloadHttpMessageConverterTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @AfterEach
+    void clearRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void shouldReuseEncodedBytesUntilVersionChanges() throws IOException {
+        PostPayloadHttpMessageConverter converter = converter(DataSize.ofMegabytes(1));
+
+        write(converter, new Post(1, 1, "title", "body", 3));
+        // same id and version: the cached bytes win, proving the mapper was not consulted again
+        assertThat(write(converter, new Post(1, 1, "ignored", "body", 3)).getBodyAsString()).contains("\"title\"");
+        assertThat(write(converter, new Post(1, 1, "newer", "body", 4)).getBodyAsString()).contains("\"newer\"");
+    }
+
+    @Test
+    void shouldDropEntryWhenPostChanges() throws IOException {
+        PostPayloadHttpMessageConverter converter = converter(DataSize.ofMegabytes(1));
+        write(converter, new Post(1, 1, "title", "body", 0));
+
+        converter.on(PostChangedEvent.deleted(1));
+
+        assertThat(write(converter, new Post(1, 1, "recreated", "body", 0)).getBodyAsString()).contains("recreated");
+    }
+
+    @Test
+    void shouldSendGzipVariantWithWeakETagToClientsThatAcceptIt() throws IOException {
+        PostPayloadHttpMessageConverter converter = converter(DataSize.ofMegabytes(1));
+        Post post = new Post(1, 1, "title", "long body ".repeat(500), 2);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "br, gzip");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        message.getHeaders().setETag("\"2\"");
+        converter.write(post, MediaType.APPLICATION_JSON, message);
+
+        assertThat(message.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(message.getHeaders().getETag()).isEqualTo("W/\"2\"");
+        assertThat(message.getHeaders().getContentLength()).isLessThan(objectMapper.writeValueAsBytes(post).length / 10);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(message.getBodyAsBytes()))) {
+            assertThat(objectMapper.readValue(in, Post.class)).isEqualTo(post);
+        }
+    }
+
+    @Test
+    void shouldReadGzipQualityAsNumber() {
+        assertThat(PostPayloadHttpMessageConverter.acceptsGzip("gzip")).isTrue();
+        assertThat(PostPayloadHttpMessageConverter.acceptsGzip("br;q=1.0, GZIP;q=0.5")).isTrue();
+        assertThat(PostPayloadHttpMessageConverter.acceptsGzip("gzip;q=0")).isFalse();
+        assertThat(PostPayloadHttpMessageConverter.acceptsGzip("gzip; q=0.0")).isFalse();
+        assertThat(PostPayloadHttpMessageConverter.acceptsGzip("gzip;q=0.00, br")).isFalse();
+        assertThat(PostPayloadHttpMessageConverter.acceptsGzip("gzipped")).isFalse();
+    }
+
+    @Test
+    void shouldNotRetainMoreThanMaxSize() throws IOException {
+        PostPayloadHttpMessageConverter converter = converter(DataSize.ofBytes(200));
+
+        write(converter, new Post(1, 1, "title", "body", 0));
+        write(converter, new Post(2, 1, "title", "x".repeat(500), 0));
+
+        // the oversized entry is evicted (asynchronously), so a changed object with the same version is encoded afresh
+        await().untilAsserted(() -> assertThat(write(converter, new Post(2, 1, "changed", "body", 0)).getBodyAsString())
+                .contains("changed"));
+    }
+
+    private PostPayloadHttpMessageConverter converter(DataSize maxSize) {
+        return new PostPayloadHttpMessageConverter(objectMapper,
+                new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class),
+                maxSize, DataSize.ofKilobytes(2));
+    }
+
+    private static MockHttpOutputMessage write(PostPayloadHttpMessageConverter converter, Post post) throws IOException {
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        converter.write(post, MediaType.APPLICATION_JSON, message);
+        return message;
+    }
+}
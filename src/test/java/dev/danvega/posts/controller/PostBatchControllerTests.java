@@ -0,0 +1,103 @@
+package dev.danvega.posts.controller;
+
+import dev.danvega.posts.data.BatchItemResult;
+import dev.danvega.posts.data.BatchItemStatus;
+import dev.danvega.posts.data.Post;
+import dev.danvega.posts.repository.PostRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(PostBatchController.class)
+@AutoConfigureMockMvc
+public class PostBatchControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private PostRepository postRepository;
+
+    @Test
+    void shouldCreateValidPostsAndReportInvalidOnesInRequestOrder() throws Exception {
+
+        var valid = new Post(2, 1, "title", "body", null);
+
+        when(postRepository.insertAll(List.of(valid)))
+                .thenReturn(List.of(BatchItemResult.of(0, 2, BatchItemStatus.CREATED, 0)));
+
+        var jsonContent = """
+                [
+                    {"id":1, "userid":1, "title":"", "body":"body", "version":null},
+                    {"id":2, "userid":1, "title":"title", "body":"body", "version":null}
+                ]
+                """;
+
+        mockMvc.perform(post("/api/posts/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonContent))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].index").value(0))
+                .andExpect(jsonPath("$[0].status").value("INVALID"))
+                .andExpect(jsonPath("$[1].index").value(1))
+                .andExpect(jsonPath("$[1].status").value("CREATED"));
+    }
+
+    @Test
+    void shouldAcceptNdjson() throws Exception {
+
+        var first = new Post(1, 1, "first", "body", null);
+        var second = new Post(2, 1, "second", "body", null);
+
+        when(postRepository.insertAll(List.of(first, second)))
+                .thenReturn(List.of(BatchItemResult.of(0, 1, BatchItemStatus.CREATED, 0),
+                        BatchItemResult.failed(1, 2, BatchItemStatus.CONFLICT, "post already exists")));
+
+        var ndjsonContent = """
+                {"id":1, "userid":1, "title":"first", "body":"body"}
+                {"id":2, "userid":1, "title":"second", "body":"body"}
+                """;
+
+        mockMvc.perform(post("/api/posts/batch")
+                        .contentType(PostBatchController.APPLICATION_NDJSON_VALUE)
+                        .content(ndjsonContent))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].status").value("CONFLICT"));
+    }
+
+    @Test
+    void shouldRequireVersionForUpdates() throws Exception {
+
+        var jsonContent = """
+                [ {"id":1, "userid":1, "title":"title", "body":"body", "version":null} ]
+                """;
+
+        mockMvc.perform(put("/api/posts/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonContent))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("INVALID"));
+
+        verify(postRepository, never()).updateAll(anyList());
+    }
+
+    @Test
+    void shouldRejectDeleteOfNullId() throws Exception {
+        mockMvc.perform(delete("/api/posts/batch").contentType(MediaType.APPLICATION_JSON).content("[1, null]"))
+                .andExpect(status().isBadRequest());
+
+        verify(postRepository, never()).deleteAllByIds(any());
+    }
+}
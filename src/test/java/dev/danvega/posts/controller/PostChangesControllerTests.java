@@ -0,0 +1,58 @@
+package dev.danvega.posts.controller;
+
+import dev.danvega.posts.data.Post;
+import dev.danvega.posts.event.PostChangedEvent;
+import dev.danvega.posts.feed.PostChangeFeed;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+@WebMvcTest(PostChangesController.class)
+@AutoConfigureMockMvc
+@Import(PostChangeFeed.class)
+public class PostChangesControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ApplicationEventPublisher publisher;
+
+    @Test
+    void shouldResumeFromLastEventIdAndPushNewChanges() throws Exception {
+        publisher.publishEvent(PostChangedEvent.created(new Post(1, 1, "first", "body", 0)));
+        publisher.publishEvent(PostChangedEvent.created(new Post(2, 1, "second", "body", 0)));
+
+        MockHttpServletResponse response = mockMvc.perform(get("/api/posts/changes").header("Last-Event-ID", "1"))
+                .andExpect(request().asyncStarted())
+                .andReturn().getResponse();
+
+        await().untilAsserted(() -> assertThat(response.getContentAsString())
+                .contains("id:2\nevent:CREATED\n")
+                .doesNotContain("id:1\n"));
+
+        publisher.publishEvent(PostChangedEvent.deleted(2));
+
+        await().untilAsserted(() -> assertThat(response.getContentAsString())
+                .contains("id:3\nevent:DELETED\ndata:{\"sequence\":3,\"type\":\"DELETED\",\"id\":2,\"post\":null}"));
+    }
+
+    @Test
+    void shouldSendResetWhenOffsetIsNotBuffered() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get("/api/posts/changes").param("after", "1000"))
+                .andExpect(request().asyncStarted())
+                .andReturn().getResponse();
+
+        await().untilAsserted(() -> assertThat(response.getContentAsString()).contains("event:reset"));
+    }
+}
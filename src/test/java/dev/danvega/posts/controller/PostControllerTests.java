@@ -1,6 +1,12 @@
 package dev.danvega.posts.controller;
 
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import dev.danvega.posts.archive.PostArchive;
+import dev.danvega.posts.codec.WireFormatConfig;
 import dev.danvega.posts.data.Post;
+import dev.danvega.posts.data.PostCursor;
+import dev.danvega.posts.data.PostPatch;
 import dev.danvega.posts.exception.PostNotFoundException;
 import dev.danvega.posts.repository.PostRepository;
 import org.hamcrest.CoreMatchers;
@@ -10,23 +16,38 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.io.ByteArrayInputStream;
+import java.sql.SQLTransientConnectionException;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
 
 import static java.lang.StringTemplate.STR;
+import static org.assertj.core.api.Assertions.assertThat;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 
 @WebMvcTest(PostController.class)
 @AutoConfigureMockMvc
+@Import(WireFormatConfig.class)
 public class PostControllerTests {
 
     @Autowired
@@ -35,6 +56,9 @@ public class PostControllerTests {
     @MockBean
     private PostRepository postRepository;
 
+    @MockBean
+    private PostArchive postArchive;
+
     private List<Post> posts;
 
     @BeforeEach
@@ -72,6 +96,203 @@ public class PostControllerTests {
                 .andExpect(content().json(jsonResponse));
     }
 
+    @Test
+    void shouldFindAllPostsAsSmileWhenRequested() throws Exception {
+        when(postRepository.findAll()).thenReturn(posts);
+
+        MvcResult result = mockMvc.perform(get("/api/posts").accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andReturn();
+
+        Post[] decoded = new SmileMapper().readValue(result.getResponse().getContentAsByteArray(), Post[].class);
+        assertThat(decoded).containsExactlyElementsOf(posts);
+    }
+
+    @Test
+    void shouldFindPostByIdAsCborWhenRequested() throws Exception {
+        when(postRepository.findById(1)).thenReturn(Optional.of(posts.getFirst()));
+
+        MvcResult result = mockMvc.perform(get("/api/posts/1").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn();
+
+        assertThat(new CBORMapper().readValue(result.getResponse().getContentAsByteArray(), Post.class))
+                .isEqualTo(posts.getFirst());
+    }
+
+    @Test
+    void shouldReturnNotModifiedWhenCollectionETagMatches() throws Exception {
+
+        when(postRepository.findWatermark()).thenReturn("2-3-0");
+
+        mockMvc.perform(get("/api/posts").header("If-None-Match", "W/\"2-3-0\""))
+                .andExpect(status().isNotModified());
+
+        verify(postRepository, never()).findAll();
+    }
+
+    @Test
+    void shouldReturnNotModifiedWhenPostVersionMatches() throws Exception {
+
+        when(postRepository.findById(1))
+                .thenReturn(Optional.of(new Post(1, 1, "Hello, World!", "This is my first post.", 3)));
+
+        mockMvc.perform(get("/api/posts/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3\""));
+
+        mockMvc.perform(get("/api/posts/1").header("If-None-Match", "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void shouldServeLargePostPreCompressedWithWeakETag() throws Exception {
+
+        when(postRepository.findById(7))
+                .thenReturn(Optional.of(new Post(7, 1, "Hello, World!", "A long post. ".repeat(400), 9)));
+
+        MvcResult result = mockMvc.perform(get("/api/posts/7").header("Accept-Encoding", "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("ETag", "W/\"9\""))
+                .andReturn();
+
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))) {
+            assertThat(new String(in.readAllBytes())).startsWith("{\"id\":7,");
+        }
+
+        mockMvc.perform(get("/api/posts/7").header("Accept-Encoding", "gzip").header("If-None-Match", "W/\"9\""))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void shouldUpdateWithoutReadingWhenIfMatchIsGiven() throws Exception {
+
+        when(postRepository.patch(2, 4, new PostPatch(null, "new title", "new body", null)))
+                .thenReturn(Optional.of(new Post(2, 2, "new title", "new body", 5)));
+
+        mockMvc.perform(put("/api/posts/2")
+                        .header("If-Match", "\"4\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"id":2, "userid":7, "title":"new title", "body":"new body"}
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"5\""))
+                // the owner is kept, with or without If-Match
+                .andExpect(jsonPath("$.userid").value(2));
+
+        verify(postRepository, never()).findById(2);
+        verify(postRepository, never()).save(any());
+    }
+
+    @Test
+    void shouldFailPreconditionWhenIfMatchIsStale() throws Exception {
+
+        when(postRepository.patch(eq(2), eq(1), any(PostPatch.class)))
+                .thenThrow(new OptimisticLockingFailureException("stale version"));
+
+        mockMvc.perform(put("/api/posts/2")
+                        .header("If-Match", "\"1\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"id":2, "userid":2, "title":"new title", "body":"new body"}
+                                """))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void shouldReturnNotFoundForConditionalUpdateOfMissingPost() throws Exception {
+
+        when(postRepository.patch(eq(9), eq(1), any(PostPatch.class)))
+                .thenReturn(Optional.empty());
+
+        mockMvc.perform(put("/api/posts/9")
+                        .header("If-Match", "\"1\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"id":9, "userid":2, "title":"new title", "body":"new body"}
+                                """))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldDeleteConditionallyWhenIfMatchIsGiven() throws Exception {
+
+        mockMvc.perform(delete("/api/posts/2").header("If-Match", "\"1\""))
+                .andExpect(status().isNoContent());
+
+        verify(postRepository).delete(new Post(2, null, null, null, 1));
+        verify(postRepository, never()).findById(2);
+    }
+
+    @Test
+    void shouldShedLoadWhenConnectionPoolIsSaturated() throws Exception {
+
+        when(postRepository.findAll())
+                .thenThrow(new CannotGetJdbcConnectionException("Failed to obtain JDBC Connection",
+                        new SQLTransientConnectionException("Connection is not available, request timed out after 250ms")));
+
+        mockMvc.perform(get("/api/posts"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"));
+    }
+
+    @Test
+    void shouldReturnFirstPageWithNextCursor() throws Exception {
+
+        when(postRepository.findPageAfter(0, 2))
+                .thenReturn(posts);
+
+        mockMvc.perform(get("/api/posts/page").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.posts.length()").value(1))
+                .andExpect(jsonPath("$.posts[0].id").value(1))
+                .andExpect(jsonPath("$.nextCursor").value(new PostCursor(1).encode()));
+    }
+
+    @Test
+    void shouldReturnLastPageWithoutNextCursor() throws Exception {
+
+        when(postRepository.findPageAfter(1, 21))
+                .thenReturn(posts.subList(1, 2));
+
+        mockMvc.perform(get("/api/posts/page").param("cursor", new PostCursor(1).encode()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.posts.length()").value(1))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void shouldRejectInvalidCursor() throws Exception {
+
+        mockMvc.perform(get("/api/posts/page").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldStreamAllPosts() throws Exception {
+
+        doAnswer(invocation -> {
+            Consumer<Post> consumer = invocation.getArgument(0);
+            posts.forEach(consumer);
+            return null;
+        }).when(postRepository).streamAll(any(Consumer.class));
+
+        MvcResult result = mockMvc.perform(get("/api/posts/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].title").value("Second Post"));
+    }
+
     @Test
     void shouldFindPostIfGivenValidId() throws Exception {
 
@@ -180,6 +401,123 @@ public class PostControllerTests {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    void shouldWriteBodyOfRequestOnUpdate() throws Exception {
+
+        when(postRepository.findById(2))
+                .thenReturn(Optional.of(new Post(2, 2, "old title", "old body", 1)));
+
+        mockMvc.perform(put("/api/posts/2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"title":"new title","body":"new body"}
+                                """))
+                .andExpect(status().isOk());
+
+        verify(postRepository).save(new Post(2, 2, "new title", "new body", 1));
+    }
+
+    @Test
+    void shouldPatchWithoutReadingFirst() throws Exception {
+
+        var patch = new PostPatch(null, "patched title", null, null);
+        when(postRepository.patch(2, 1, patch))
+                .thenReturn(Optional.of(new Post(2, 2, "patched title", "body", 2)));
+
+        mockMvc.perform(patch("/api/posts/2")
+                        .header("If-Match", "\"1\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"title":"patched title"}
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"2\""))
+                .andExpect(jsonPath("$.title").value("patched title"))
+                .andExpect(jsonPath("$.body").value("body"));
+
+        verify(postRepository, never()).findById(any());
+    }
+
+    @Test
+    void shouldReturnConflictWhenPatchVersionIsStale() throws Exception {
+
+        when(postRepository.patch(eq(2), eq(1), any(PostPatch.class)))
+                .thenThrow(new OptimisticLockingFailureException("stale version"));
+
+        mockMvc.perform(patch("/api/posts/2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"body":"patched body","version":1}
+                                """))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void shouldRequireVersionForPatch() throws Exception {
+
+        mockMvc.perform(patch("/api/posts/2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"title":"patched title"}
+                                """))
+                .andExpect(status().isPreconditionRequired());
+
+        verifyNoInteractions(postRepository);
+    }
+
+    @Test
+    void shouldRejectPatchWithTitleTooLongForTheColumn() throws Exception {
+
+        mockMvc.perform(patch("/api/posts/2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"title":"%s","version":1}
+                                """.formatted("t".repeat(251))))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(postRepository);
+    }
+
+    @Test
+    void shouldReturnNotFoundWhenPatchingMissingPost() throws Exception {
+
+        when(postRepository.patch(eq(9), eq(0), any(PostPatch.class)))
+                .thenReturn(Optional.empty());
+
+        mockMvc.perform(patch("/api/posts/9")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"title":"patched title","version":0}
+                                """))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldReturnConflictWhenVersionIsStale() throws Exception {
+
+        var existingPost = new Post(2, 2, "this is updated post", "this is updated body", 1);
+
+        when(postRepository.findById(2))
+                .thenReturn(Optional.of(existingPost));
+        when(postRepository.save(any(Post.class)))
+                .thenThrow(new OptimisticLockingFailureException("stale version"));
+
+        var jsonContent = """
+                {
+                    "id":2,
+                    "userid":2,
+                    "title":"this is updated post",
+                    "body":"this is updated body",
+                    "version":1
+                }
+                """;
+
+        mockMvc.perform(put("/api/posts/2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonContent))
+                .andExpect(status().isConflict());
+    }
+
     @Test
     void shouldNotUpdatePostWhenExistingPostNotFound() throws Exception {
 
@@ -204,6 +542,61 @@ public class PostControllerTests {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void shouldFindArchivedPostWhenNotInPostTable() throws Exception {
+        when(postRepository.findById(7)).thenReturn(Optional.empty());
+        when(postArchive.findById(7)).thenReturn(Optional.of(new Post(7, 1, "archived", "archived body", 2)));
+
+        mockMvc.perform(get("/api/posts/7"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("archived"))
+                .andExpect(header().string("ETag", "\"2\""));
+    }
+
+    @Test
+    void shouldRejectUpdateOfArchivedPost() throws Exception {
+        when(postRepository.findById(7)).thenReturn(Optional.empty());
+        when(postArchive.contains(7)).thenReturn(true);
+
+        mockMvc.perform(put("/api/posts/7")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"id":7,"userid":1,"title":"new","body":"new body","version":2}
+                                """))
+                .andExpect(status().isConflict());
+
+        verify(postRepository, never()).save(any());
+    }
+
+    @Test
+    void shouldRejectCreateInsideArchivedBlock() throws Exception {
+        when(postArchive.covers(7)).thenReturn(true);
+
+        mockMvc.perform(post("/api/posts")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"id":7,"userid":1,"title":"new","body":"new body","version":null}
+                                """))
+                .andExpect(status().isConflict());
+
+        verify(postRepository, never()).save(any());
+    }
+
+    @Test
+    void shouldMergeArchivedPostsIntoPages() throws Exception {
+        when(postRepository.findPageAfter(0, 3)).thenReturn(List.of(new Post(5, 1, "live", "live body", 0)));
+        when(postArchive.posts(null, 0, null)).thenReturn(java.util.stream.Stream.of(
+                new Post(2, 1, "archived", "archived body", 0),
+                new Post(3, 1, "archived", "archived body", 0),
+                new Post(4, 1, "archived", "archived body", 0)));
+
+        mockMvc.perform(get("/api/posts/page").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.posts[0].id").value(2))
+                .andExpect(jsonPath("$.posts[1].id").value(3))
+                .andExpect(jsonPath("$.nextCursor").exists());
+    }
+
     @Test
     void shouldDeletePostWhenGivenValidId() throws Exception {
 
@@ -0,0 +1,89 @@
+package dev.danvega.posts.controller;
+
+import dev.danvega.posts.data.Post;
+import dev.danvega.posts.ingest.PostWriteBehindQueue;
+import dev.danvega.posts.repository.PostRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(PostController.class)
+@AutoConfigureMockMvc
+public class PostControllerWriteBehindTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private PostRepository postRepository;
+
+    @MockBean
+    private PostWriteBehindQueue writeBehind;
+
+    private static final String JSON = """
+            {"id":101, "userid":1, "title":"This is my brand new post", "body":"TEST BODY", "version":null}
+            """;
+
+    @Test
+    void shouldAcceptQueuedPostWithoutInserting() throws Exception {
+
+        when(writeBehind.offer(any(Post.class))).thenReturn(true);
+
+        mockMvc.perform(post("/api/posts").contentType(MediaType.APPLICATION_JSON).content(JSON))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id").value(101));
+
+        verify(writeBehind).offer(new Post(101, 1, "This is my brand new post", "TEST BODY", null));
+        verify(postRepository, never()).save(any());
+    }
+
+    @Test
+    void shouldShedLoadWhenQueueIsFull() throws Exception {
+
+        when(writeBehind.offer(any(Post.class))).thenReturn(false);
+
+        mockMvc.perform(post("/api/posts").contentType(MediaType.APPLICATION_JSON).content(JSON))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().exists("Retry-After"));
+    }
+
+    @Test
+    void shouldRejectPostWithoutIdBeforeQueueing() throws Exception {
+
+        mockMvc.perform(post("/api/posts").contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"userid":1, "title":"title", "body":"body"}
+                                """))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(writeBehind);
+    }
+
+    @Test
+    void shouldRejectPostTheDatabaseWouldRefuseBeforeQueueing() throws Exception {
+
+        mockMvc.perform(post("/api/posts").contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"id":101, "title":"title", "body":"body"}
+                                """))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/posts").contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"id":101, "userid":1, "title":"%s", "body":"body"}
+                                """.formatted("t".repeat(251))))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(writeBehind);
+    }
+}
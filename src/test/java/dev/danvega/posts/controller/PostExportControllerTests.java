@@ -0,0 +1,91 @@
+package dev.danvega.posts.controller;
+
+import dev.danvega.posts.data.Post;
+import dev.danvega.posts.repository.PostRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(PostExportController.class)
+public class PostExportControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private PostRepository postRepository;
+
+    private final List<Post> posts = List.of(
+            new Post(3, 1, "Hello, World!", "This is my first post.", 0),
+            new Post(4, 1, "Quotes \"and\", commas", "two\nlines", 2));
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldExportOnePostPerLineAsNdjson() throws Exception {
+        doAnswer(invocation -> {
+            posts.forEach(invocation.<Consumer<Post>>getArgument(3));
+            return null;
+        }).when(postRepository).streamRange(eq(1), eq(2), eq(10), any(Consumer.class));
+
+        MvcResult result = mockMvc.perform(get("/api/posts/export")
+                        .param("userid", "1")
+                        .param("after", "2")
+                        .param("to", "10"))
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/x-ndjson"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"posts.ndjson\""))
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(body.split("\n")).hasSize(2);
+        assertThat(body).startsWith("{\"id\":3,").contains("}\n{\"id\":4,").endsWith("\"version\":2}\n");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldExportQuotedCsvWhenAccepted() throws Exception {
+        doAnswer(invocation -> {
+            posts.forEach(invocation.<Consumer<Post>>getArgument(3));
+            return null;
+        }).when(postRepository).streamRange(eq(null), eq(0), eq(null), any(Consumer.class));
+
+        MvcResult result = mockMvc.perform(get("/api/posts/export").accept("text/csv"))
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "text/csv;charset=UTF-8"))
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(body).isEqualTo("""
+                id,userid,title,body,version\r
+                3,1,Hello, World!,This is my first post.,0\r
+                4,1,"Quotes ""and"", commas","two
+                lines",2\r
+                """.replace("Hello, World!", "\"Hello, World!\""));
+    }
+
+    @Test
+    void shouldRejectUnknownFormat() throws Exception {
+        mockMvc.perform(get("/api/posts/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(postRepository);
+    }
+}
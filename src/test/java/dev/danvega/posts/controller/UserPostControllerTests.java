@@ -0,0 +1,59 @@
+package dev.danvega.posts.controller;
+
+import dev.danvega.posts.data.Post;
+import dev.danvega.posts.data.PostCursor;
+import dev.danvega.posts.data.PostSummary;
+import dev.danvega.posts.repository.PostRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(UserPostController.class)
+@AutoConfigureMockMvc
+public class UserPostControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private PostRepository postRepository;
+
+    @Test
+    void shouldReturnUsersFirstPageWithNextCursor() throws Exception {
+
+        when(postRepository.findPageByUserAfter(7, 0, 2))
+                .thenReturn(List.of(new Post(3, 7, "first", "body", 0), new Post(9, 7, "second", "body", 0)));
+
+        mockMvc.perform(get("/api/users/7/posts").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.posts.length()").value(1))
+                .andExpect(jsonPath("$.posts[0].id").value(3))
+                .andExpect(jsonPath("$.nextCursor").value(new PostCursor(3).encode()));
+    }
+
+    @Test
+    void shouldReturnSummariesWithoutBody() throws Exception {
+
+        when(postRepository.findSummaryPageByUserAfter(7, 3, 21))
+                .thenReturn(List.of(new PostSummary(9, "second")));
+
+        mockMvc.perform(get("/api/users/7/posts/summaries").param("cursor", new PostCursor(3).encode()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.posts[0].id").value(9))
+                .andExpect(jsonPath("$.posts[0].title").value("second"))
+                .andExpect(jsonPath("$.posts[0].body").doesNotExist())
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+
+        verify(postRepository, never()).findPageByUserAfter(any(), any(), anyInt());
+    }
+}
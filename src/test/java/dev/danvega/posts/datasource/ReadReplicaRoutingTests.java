@@ -0,0 +1,112 @@
+package dev.danvega.posts.datasource;
+
+import dev.danvega.posts.data.Post;
+import dev.danvega.posts.repository.PostRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.jdbc.DataJdbcTest;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two unrelated embedded H2 databases stand in for the primary and a replica. There is no
+ * replication between them, so each test can tell from the data which one served a read.
+ */
+@DataJdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ReadReplicaConfig.class)
+@TestPropertySource(properties = {
+        "spring.datasource.url=" + ReadReplicaRoutingTests.PRIMARY_URL,
+        "posts.datasource.replicas=" + ReadReplicaRoutingTests.REPLICA_URL,
+        "posts.datasource.replica-lag-query=SELECT lag_seconds FROM replica_status",
+        "posts.datasource.replica-max-lag=5s",
+        // tests run the check themselves; a background one could see a half-reset replica_status
+        "posts.datasource.replica-check-interval=1h"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ReadReplicaRoutingTests {
+
+    static final String PRIMARY_URL = "jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_URL = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    PostRepository postRepository;
+
+    @Autowired
+    ReadReplicaRoutingDataSource routingDataSource;
+
+    private final JdbcTemplate primary = new JdbcTemplate(new DriverManagerDataSource(PRIMARY_URL, "sa", ""));
+    private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+    @BeforeEach
+    void setup() {
+        replica.execute("CREATE TABLE IF NOT EXISTS Post (id INT PRIMARY KEY, userId INT, title varchar(250), body text, version int)");
+        replica.execute("CREATE TABLE IF NOT EXISTS replica_status (lag_seconds DOUBLE)");
+        if (replica.queryForObject("SELECT COUNT(*) FROM replica_status", Integer.class) == 0) {
+            replica.update("INSERT INTO replica_status VALUES (0)");
+        }
+        replica.update("UPDATE replica_status SET lag_seconds = 0");
+        for (JdbcTemplate database : new JdbcTemplate[]{primary, replica}) {
+            database.update("DELETE FROM Post");
+        }
+        primary.update("INSERT INTO Post VALUES (1, 1, 'on primary', 'body', 0)");
+        replica.update("INSERT INTO Post VALUES (1, 1, 'on replica', 'body', 0)");
+        routingDataSource.checkReplicas();
+    }
+
+    @AfterEach
+    void clearRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void shouldServeReadOnlyQueriesFromReplica() {
+        assertThat(postRepository.findById(1)).map(Post::title).hasValue("on replica");
+        assertThat(postRepository.findByTitle("on replica")).isNotNull();
+        assertThat(postRepository.findPageAfter(0, 10)).extracting(Post::title).containsExactly("on replica");
+    }
+
+    @Test
+    void shouldSendWritesToPrimary() {
+        postRepository.save(new Post(2, 1, "new", "body", null));
+
+        assertThat(primary.queryForObject("SELECT COUNT(*) FROM Post WHERE id = 2", Integer.class)).isEqualTo(1);
+        assertThat(replica.queryForObject("SELECT COUNT(*) FROM Post WHERE id = 2", Integer.class)).isZero();
+    }
+
+    @Test
+    void shouldReadOwnWritesFromPrimaryForRestOfRequest() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        assertThat(postRepository.findById(1)).map(Post::title).hasValue("on replica");
+
+        postRepository.save(new Post(2, 1, "new", "body", null));
+
+        assertThat(postRepository.findById(2)).map(Post::title).hasValue("new");
+        assertThat(postRepository.findById(1)).map(Post::title).hasValue("on primary");
+    }
+
+    @Test
+    void shouldSkipReplicaThatLagsTooFarBehind() {
+        replica.update("UPDATE replica_status SET lag_seconds = 30");
+        routingDataSource.checkReplicas();
+
+        assertThat(postRepository.findById(1)).map(Post::title).hasValue("on primary");
+
+        replica.update("UPDATE replica_status SET lag_seconds = 0.5");
+        routingDataSource.checkReplicas();
+
+        assertThat(postRepository.findById(1)).map(Post::title).hasValue("on replica");
+    }
+}
@@ -0,0 +1,68 @@
+package dev.danvega.posts.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RequestCheckoutDataSourceTests {
+
+    private HikariDataSource pool;
+    private RequestCheckoutDataSource dataSource;
+
+    @BeforeEach
+    void setup() {
+        pool = new HikariDataSource();
+        pool.setJdbcUrl("jdbc:h2:mem:checkout;DB_CLOSE_DELAY=-1");
+        pool.setMaximumPoolSize(1);
+        pool.setConnectionTimeout(10_000);
+        dataSource = new RequestCheckoutDataSource(pool, Duration.ofMillis(250));
+    }
+
+    @AfterEach
+    void close() {
+        RequestContextHolder.resetRequestAttributes();
+        dataSource.close();
+    }
+
+    @Test
+    void shouldFailRequestFastWhenPoolIsExhausted() throws Exception {
+        try (Connection held = dataSource.getConnection()) {
+            RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+            long start = System.nanoTime();
+
+            assertThatThrownBy(dataSource::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+        }
+    }
+
+    @Test
+    void shouldLetBackgroundWorkWaitForPoolTimeout() throws Exception {
+        CompletableFuture<Boolean> background;
+        try (Connection held = dataSource.getConnection()) {
+            background = CompletableFuture.supplyAsync(() -> {
+                try (Connection connection = dataSource.getConnection()) {
+                    return connection.isValid(1);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            // well past the request deadline, well short of the pool's
+            Thread.sleep(1000);
+            assertThat(background).isNotDone();
+        }
+
+        assertThat(background.get()).isTrue();
+    }
+}
@@ -0,0 +1,59 @@
+package dev.danvega.posts.feed;
+
+import dev.danvega.posts.data.Post;
+import dev.danvega.posts.event.PostChangedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PostChangeFeedTests {
+
+    private final PostChangeFeed feed = new PostChangeFeed(4);
+
+    @Test
+    void shouldNumberChangesInOrderAndReadAfterAnOffset() {
+        feed.on(PostChangedEvent.created(new Post(1, 1, "title", "body", 0)));
+        feed.on(PostChangedEvent.updated(new Post(1, 1, "new title", "body", 1)));
+        feed.on(PostChangedEvent.deleted(1));
+
+        PostChangeFeed.Batch batch = feed.readAfter(1, 10);
+
+        assertThat(batch.gap()).isFalse();
+        assertThat(batch.changes()).extracting(PostChange::sequence).containsExactly(2L, 3L);
+        assertThat(batch.changes()).extracting(PostChange::type)
+                .containsExactly(PostChangedEvent.Type.UPDATED, PostChangedEvent.Type.DELETED);
+        assertThat(feed.readAfter(3, 10).changes()).isEmpty();
+    }
+
+    @Test
+    void shouldReportGapOnceReaderFallsBehindTheRing() {
+        for (int id = 1; id <= 6; id++) {
+            feed.on(PostChangedEvent.deleted(id));
+        }
+
+        assertThat(feed.readAfter(1, 10).gap()).isTrue();
+        assertThat(feed.readAfter(2, 10).changes()).extracting(PostChange::id).containsExactly(3, 4, 5, 6);
+        // an offset from before a restart
+        assertThat(feed.readAfter(99, 10).gap()).isTrue();
+    }
+
+    @Test
+    void shouldWakeWaitingReaderOnAppend() throws Exception {
+        CompletableFuture<Boolean> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return feed.awaitAfter(0, Duration.ofSeconds(5));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        feed.on(PostChangedEvent.deleted(1));
+
+        assertThat(waiting.get(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(feed.awaitAfter(1, Duration.ofMillis(10))).isFalse();
+    }
+}
@@ -0,0 +1,136 @@
+package dev.danvega.posts.ingest;
+
+import dev.danvega.posts.data.BatchItemResult;
+import dev.danvega.posts.data.BatchItemStatus;
+import dev.danvega.posts.data.Post;
+import dev.danvega.posts.repository.PostRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+public class PostWriteBehindQueueTests {
+
+    private final PostRepository postRepository = mock(PostRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<List<Post>> flushed = new CopyOnWriteArrayList<>();
+    private PostWriteBehindQueue queue;
+
+    @AfterEach
+    void stop() {
+        if (queue.isRunning()) {
+            queue.stop();
+        }
+    }
+
+    @Test
+    void shouldCoalesceQueuedPostsIntoBatches() {
+        recordInserts();
+        queue = queue(100, 4, Duration.ofMillis(50));
+        queue.start();
+
+        IntStream.rangeClosed(1, 10).forEach(id -> assertThat(queue.offer(post(id))).isTrue());
+
+        await().untilAsserted(() -> assertThat(flushed.stream().mapToInt(List::size).sum()).isEqualTo(10));
+        assertThat(flushed).allSatisfy(batch -> assertThat(batch).hasSizeLessThanOrEqualTo(4));
+        assertThat(flushed.stream().flatMap(List::stream).map(Post::id)).containsExactlyElementsOf(
+                IntStream.rangeClosed(1, 10).boxed().toList());
+        assertThat(meterRegistry.get("posts.write-behind.flush").tag("outcome", "success").timer().count())
+                .isEqualTo(flushed.size());
+    }
+
+    @Test
+    void shouldRetryWhileDatabaseIsDown() {
+        when(postRepository.insertAll(anyList()))
+                .thenThrow(new CannotGetJdbcConnectionException("down"))
+                .thenThrow(new CannotGetJdbcConnectionException("still down"))
+                .thenAnswer(invocation -> created(invocation.getArgument(0)));
+        queue = queue(100, 10, Duration.ofMillis(10));
+        queue.start();
+
+        queue.offer(post(1));
+
+        await().untilAsserted(() -> verify(postRepository, times(3)).insertAll(List.of(post(1))));
+        assertThat(meterRegistry.get("posts.write-behind.retries").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldDropOnlyTheRowsThatFail() {
+        when(postRepository.insertAll(anyList())).thenAnswer(invocation -> {
+            List<Post> batch = List.copyOf(invocation.getArgument(0));
+            if (batch.stream().anyMatch(post -> post.id() == 3)) {
+                throw new DataIntegrityViolationException("value too long for title");
+            }
+            flushed.add(batch);
+            return created(batch);
+        });
+        queue = queue(100, 8, Duration.ofMillis(50));
+        queue.start();
+
+        IntStream.rangeClosed(1, 8).forEach(id -> queue.offer(post(id)));
+
+        await().untilAsserted(() -> assertThat(flushed.stream().flatMap(List::stream).map(Post::id))
+                .containsExactly(1, 2, 4, 5, 6, 7, 8));
+        assertThat(meterRegistry.get("posts.write-behind.dropped").tag("reason", "error").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void shouldRefuseWhenFullAndDrainOnStop() {
+        recordInserts();
+        queue = queue(2, 10, Duration.ofMillis(10));
+
+        // not started: nothing is accepted before the flusher runs
+        assertThat(queue.offer(post(1))).isFalse();
+
+        queue.start();
+        doAnswer(invocation -> {
+            Thread.sleep(200);
+            return created(invocation.getArgument(0));
+        }).when(postRepository).insertAll(anyList());
+        queue.offer(post(1));
+        await().until(() -> queue.size() == 0);
+        assertThat(queue.offer(post(2))).isTrue();
+        assertThat(queue.offer(post(3))).isTrue();
+        assertThat(queue.offer(post(4))).isFalse();
+
+        queue.stop();
+
+        assertThat(queue.size()).isZero();
+        assertThat(meterRegistry.get("posts.write-behind.rejected").counter().count()).isEqualTo(2);
+    }
+
+    private PostWriteBehindQueue queue(int capacity, int batchSize, Duration flushInterval) {
+        return new PostWriteBehindQueue(postRepository, meterRegistry, capacity, batchSize, flushInterval,
+                Duration.ofMillis(10), Duration.ofMillis(50), Duration.ofSeconds(5));
+    }
+
+    private void recordInserts() {
+        when(postRepository.insertAll(anyList())).thenAnswer(invocation -> {
+            List<Post> batch = List.copyOf(invocation.getArgument(0));
+            flushed.add(batch);
+            return created(batch);
+        });
+    }
+
+    private static List<BatchItemResult> created(List<Post> batch) {
+        return IntStream.range(0, batch.size())
+                .mapToObj(i -> BatchItemResult.of(i, batch.get(i).id(), BatchItemStatus.CREATED, 0))
+                .toList();
+    }
+
+    private static Post post(int id) {
+        return new Post(id, 1, "title " + id, "body " + id, null);
+    }
+}
@@ -0,0 +1,94 @@
+package dev.danvega.posts.load;
+
+import dev.danvega.posts.Application;
+import dev.danvega.posts.data.PostCursor;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * One client floods the API with back-to-back requests on many connections while another sends a
+ * steady trickle, with and without admission control. Logs what the steady client sees in both runs:
+ * with the flood throttled to its own rate limit, its p99 should stay close to an idle server's.
+ * Runs on embedded H2 with {@code -Pload-test}.
+ */
+@Tag("load")
+public class AdmissionLoadTests {
+
+    private static final Logger log = LoggerFactory.getLogger(AdmissionLoadTests.class);
+
+    private static final int FLOOD_CLIENTS = 400;
+    private static final int STEADY_CLIENTS = 4;
+    private static final Duration STEADY_PAUSE = Duration.ofMillis(50);
+    private static final Duration WARMUP = Duration.ofSeconds(5);
+    private static final Duration DURATION = Duration.ofSeconds(20);
+
+    record Run(LoadGenerator.Result flood, LoadGenerator.Result steady) {
+    }
+
+    @Test
+    void shouldProtectWellBehavedClientFromFlood() throws Exception {
+        Run unprotected = measure(false);
+        Run protectedRun = measure(true);
+
+        log.info("without admission control: flood {}", unprotected.flood());
+        log.info("without admission control: steady {}", unprotected.steady());
+        log.info("with admission control:    flood {}", protectedRun.flood());
+        log.info("with admission control:    steady {}", protectedRun.steady());
+        assertThat(protectedRun.steady().rejected()).isZero();
+        assertThat(protectedRun.steady().errors()).isZero();
+        assertThat(protectedRun.flood().rejected()).isPositive();
+        assertThat(protectedRun.steady().p99Micros()).isLessThan(unprotected.steady().p99Micros());
+    }
+
+    private Run measure(boolean admissionControl) throws Exception {
+        try (ConfigurableApplicationContext context = SpringApplication.run(Application.class,
+                "--server.port=0",
+                "--spring.docker.compose.enabled=false",
+                "--posts.rate-limit.enabled=" + admissionControl,
+                "--posts.rate-limit.client-header=X-Client-Id",
+                "--posts.rate-limit.read.rate=100",
+                "--posts.rate-limit.read.burst=100",
+                "--posts.load-shedding.max-concurrent=" + (admissionControl ? 64 : 0))) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            String baseUrl = "http://localhost:" + port;
+            run(baseUrl, WARMUP);
+            return run(baseUrl, DURATION);
+        }
+    }
+
+    private Run run(String baseUrl, Duration duration) throws Exception {
+        CompletableFuture<LoadGenerator.Result> flood = CompletableFuture.supplyAsync(() -> generate(baseUrl,
+                FLOOD_CLIENTS, duration, Duration.ZERO, "flood"));
+        LoadGenerator.Result steady = generate(baseUrl, STEADY_CLIENTS, duration, STEADY_PAUSE, "steady");
+        return new Run(flood.get(), steady);
+    }
+
+    private static LoadGenerator.Result generate(String baseUrl, int clients, Duration duration, Duration pause,
+                                                 String clientId) {
+        try {
+            return new LoadGenerator().run(baseUrl, clients, duration, pause, Map.of("X-Client-Id", clientId),
+                    AdmissionLoadTests::randomPage);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // keyset pages bypass the findById cache, so every request does JDBC work
+    private static String randomPage(int sequence) {
+        int afterId = ThreadLocalRandom.current().nextInt(0, 90);
+        return "/api/posts/page?size=10&cursor=" + new PostCursor(afterId).encode();
+    }
+}
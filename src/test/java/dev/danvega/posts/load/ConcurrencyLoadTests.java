@@ -0,0 +1,70 @@
+package dev.danvega.posts.load;
+
+import com.zaxxer.hikari.HikariDataSource;
+import dev.danvega.posts.Application;
+import dev.danvega.posts.data.PostCursor;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Many concurrent clients, each on its own keep-alive connection and reading a keyset page every five
+ * seconds, against the blocking stack. Logs throughput, latency and peak platform threads, heap and
+ * pool connections in use; the reactive build ({@code reactive/}) has the same test for comparison.
+ * Set the client count with {@code -Dload.clients} (default 10000; every client costs two file
+ * descriptors in this JVM). Runs on embedded H2 with {@code -Pload-test}.
+ */
+@Tag("load")
+public class ConcurrencyLoadTests {
+
+    private static final Logger log = LoggerFactory.getLogger(ConcurrencyLoadTests.class);
+
+    private static final int CLIENTS = Integer.getInteger("load.clients", 10_000);
+    private static final Duration PAUSE = Duration.ofSeconds(5);
+    private static final Duration WARMUP = Duration.ofSeconds(5);
+    private static final Duration DURATION = Duration.ofSeconds(20);
+
+    @Test
+    void measureResourcesUnderConcurrentClients() throws Exception {
+        try (ConfigurableApplicationContext context = SpringApplication.run(Application.class,
+                "--server.port=0",
+                "--spring.docker.compose.enabled=false",
+                // all clients share one address; measure the server, not admission control
+                "--posts.rate-limit.enabled=false",
+                "--posts.load-shedding.max-concurrent=0",
+                "--posts.coalescing.enabled=false",
+                "--server.tomcat.max-connections=" + (CLIENTS + 100))) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            String baseUrl = "http://localhost:" + port;
+            HikariDataSource pool = context.getBean(DataSource.class).unwrap(HikariDataSource.class);
+            LoadGenerator generator = new LoadGenerator();
+            generator.run(baseUrl, CLIENTS, WARMUP, PAUSE, Map.of(), ConcurrencyLoadTests::randomPage);
+            LoadGenerator.Result result;
+            ResourceSampler.Peaks peaks;
+            try (ResourceSampler sampler = new ResourceSampler(() -> pool.getHikariPoolMXBean().getActiveConnections())) {
+                result = generator.run(baseUrl, CLIENTS, DURATION, PAUSE, Map.of(), ConcurrencyLoadTests::randomPage);
+                peaks = sampler.peaks();
+            }
+
+            log.info("blocking, {} clients: {}", CLIENTS, result);
+            log.info("blocking, {} clients: {}", CLIENTS, peaks);
+            assertThat(result.errors()).isZero();
+        }
+    }
+
+    private static String randomPage(int sequence) {
+        int afterId = ThreadLocalRandom.current().nextInt(0, 90);
+        return "/api/posts/page?size=10&cursor=" + new PostCursor(afterId).encode();
+    }
+}
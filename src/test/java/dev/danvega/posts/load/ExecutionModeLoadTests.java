@@ -0,0 +1,64 @@
+package dev.danvega.posts.load;
+
+import dev.danvega.posts.data.PostCursor;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import dev.danvega.posts.Application;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives the same DB-bound workload against the app on platform threads and on virtual threads
+ * and logs throughput and p99 latency of both. Runs on embedded H2 with {@code -Pload-test}.
+ */
+@Tag("load")
+public class ExecutionModeLoadTests {
+
+    private static final Logger log = LoggerFactory.getLogger(ExecutionModeLoadTests.class);
+
+    private static final int CLIENTS = 400;
+    private static final Duration WARMUP = Duration.ofSeconds(5);
+    private static final Duration DURATION = Duration.ofSeconds(20);
+
+    @Test
+    void compareThroughputAndLatencyOfExecutionModes() throws Exception {
+        LoadGenerator.Result platform = measure(false);
+        LoadGenerator.Result virtual = measure(true);
+
+        log.info("platform threads: {}", platform);
+        log.info("virtual threads:  {}", virtual);
+        assertThat(platform.errors()).isZero();
+        assertThat(virtual.errors()).isZero();
+    }
+
+    private LoadGenerator.Result measure(boolean virtualThreads) throws InterruptedException {
+        try (ConfigurableApplicationContext context = SpringApplication.run(Application.class,
+                "--server.port=0",
+                "--spring.docker.compose.enabled=false",
+                // all clients share one address; measure the server, not admission control
+                "--posts.rate-limit.enabled=false",
+                "--posts.load-shedding.max-concurrent=0",
+                "--spring.threads.virtual.enabled=" + virtualThreads)) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            String baseUrl = "http://localhost:" + port;
+            LoadGenerator generator = new LoadGenerator();
+            generator.run(baseUrl, CLIENTS, WARMUP, ExecutionModeLoadTests::randomPage);
+            return generator.run(baseUrl, CLIENTS, DURATION, ExecutionModeLoadTests::randomPage);
+        }
+    }
+
+    // keyset pages bypass the findById cache, so every request does JDBC work
+    private static String randomPage(int sequence) {
+        int afterId = ThreadLocalRandom.current().nextInt(0, 90);
+        return "/api/posts/page?size=10&cursor=" + new PostCursor(afterId).encode();
+    }
+}
@@ -0,0 +1,27 @@
+package dev.danvega.posts.load;
+
+import java.util.List;
+
+/**
+ * {@link RegressionLoadTests} against embedded H2, as the application runs without a database configured.
+ */
+public class H2RegressionLoadTests extends RegressionLoadTests {
+
+    @Override
+    String database() {
+        return "h2";
+    }
+
+    @Override
+    List<String> datasourceArguments() {
+        return List.of();
+    }
+
+    @Override
+    String seedSql() {
+        return """
+                INSERT INTO Post (id, userId, title, body, version)
+                SELECT X, MOD(X, 1000) + 1, 'title ' || X, REPEAT('body of post ' || X || '. ', 5), 0
+                FROM SYSTEM_RANGE(?, ?)""";
+    }
+}
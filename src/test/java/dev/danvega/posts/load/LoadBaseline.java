@@ -0,0 +1,110 @@
+package dev.danvega.posts.load;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Recorded results of a {@link RateLoadGenerator} run that later runs must not fall behind: overall
+ * throughput and, per operation, p50 and p99 latency in microseconds, kept as a properties file next
+ * to the settings it was recorded with. A run regresses when its throughput drops, or a latency grows,
+ * by more than {@code tolerance} of the recorded value; latencies also get {@code slackMicros} on
+ * top, so single-millisecond percentiles do not fail on scheduling noise.
+ * <p>
+ * The core count and JVM it was recorded on are kept too: numbers from another machine say nothing
+ * about this one, so {@link #machineMismatches} should be checked before comparing.
+ */
+class LoadBaseline {
+
+    private static final List<String> SETTINGS = List.of("posts", "rate", "duration");
+    private static final List<String> MACHINE = List.of("cores", "jvm");
+
+    private final Properties values;
+
+    private LoadBaseline(Properties values) {
+        this.values = values;
+    }
+
+    static LoadBaseline of(RateLoadGenerator.Result result, long posts, int rate, String duration) {
+        Properties values = new Properties();
+        values.setProperty("posts", String.valueOf(posts));
+        values.setProperty("rate", String.valueOf(rate));
+        values.setProperty("duration", duration);
+        values.setProperty("cores", String.valueOf(Runtime.getRuntime().availableProcessors()));
+        values.setProperty("jvm", System.getProperty("java.vm.name") + " " + Runtime.version().feature());
+        values.setProperty("throughput", String.valueOf(Math.round(result.throughput())));
+        result.operations().values().forEach(operation -> {
+            values.setProperty(operation.name() + ".p50", String.valueOf(operation.percentileMicros(50)));
+            values.setProperty(operation.name() + ".p99", String.valueOf(operation.percentileMicros(99)));
+        });
+        return new LoadBaseline(values);
+    }
+
+    static LoadBaseline read(Path file) throws IOException {
+        Properties values = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            values.load(reader);
+        }
+        return new LoadBaseline(values);
+    }
+
+    void write(Path file, String comment) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            values.store(writer, comment);
+        }
+    }
+
+    /**
+     * How the machine {@code current} ran on differs from the one this baseline was recorded on, one
+     * line each; empty when they match. A baseline from before these were recorded never matches.
+     */
+    List<String> machineMismatches(LoadBaseline current) {
+        return mismatches(MACHINE, current);
+    }
+
+    /**
+     * What {@code current} falls short of this baseline by, one line each; empty when it does not.
+     */
+    List<String> regressions(LoadBaseline current, double tolerance, long slackMicros) {
+        List<String> regressions = mismatches(SETTINGS, current);
+        if (!regressions.isEmpty()) {
+            return regressions;
+        }
+        long throughput = value("throughput");
+        if (current.value("throughput") < throughput * (1 - tolerance)) {
+            regressions.add("throughput %d req/s, baseline %d".formatted(current.value("throughput"), throughput));
+        }
+        for (String key : values.stringPropertyNames()) {
+            if (key.endsWith(".p50") || key.endsWith(".p99")) {
+                long allowed = Math.round(value(key) * (1 + tolerance)) + slackMicros;
+                long measured = current.value(key);
+                if (measured > allowed) {
+                    regressions.add("%s %d us, baseline %d us (allowed %d us)".formatted(key, measured, value(key), allowed));
+                }
+            }
+        }
+        return regressions;
+    }
+
+    private List<String> mismatches(List<String> settings, LoadBaseline current) {
+        List<String> mismatches = new ArrayList<>();
+        for (String setting : settings) {
+            if (!current.values.getProperty(setting).equals(values.getProperty(setting))) {
+                mismatches.add("baseline was recorded with %s=%s, this run used %s"
+                        .formatted(setting, values.getProperty(setting), current.values.getProperty(setting)));
+            }
+        }
+        return mismatches;
+    }
+
+    private long value(String key) {
+        String value = values.getProperty(key);
+        return value == null ? 0 : Long.parseLong(value);
+    }
+}
@@ -0,0 +1,89 @@
+package dev.danvega.posts.load;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * Closed-model load: {@code clients} virtual threads each send requests back to back (or with a
+ * fixed pause in between) for the given duration and record the latency of every response.
+ */
+class LoadGenerator {
+
+    record Result(long requests, long rejected, long errors, double throughput, long p50Micros, long p99Micros) {
+
+        @Override
+        public String toString() {
+            return "%d requests (%d rejected, %d errors), %.0f req/s, p50 %d us, p99 %d us"
+                    .formatted(requests, rejected, errors, throughput, p50Micros, p99Micros);
+        }
+    }
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    Result run(String baseUrl, int clients, Duration duration, IntFunction<String> pathForRequest) throws InterruptedException {
+        return run(baseUrl, clients, duration, Duration.ZERO, Map.of(), pathForRequest);
+    }
+
+    Result run(String baseUrl, int clients, Duration duration, Duration pause, Map<String, String> headers,
+               IntFunction<String> pathForRequest) throws InterruptedException {
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        AtomicLong rejected = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        long deadline = System.nanoTime() + duration.toNanos();
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int client = 0; client < clients; client++) {
+                executor.submit(() -> {
+                    int sequence = 0;
+                    while (System.nanoTime() < deadline) {
+                        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + pathForRequest.apply(sequence++)))
+                                .timeout(Duration.ofSeconds(30));
+                        headers.forEach(builder::header);
+                        HttpRequest request = builder.build();
+                        long sent = System.nanoTime();
+                        try {
+                            int status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                            latencies.add((System.nanoTime() - sent) / 1_000);
+                            if (status == 429 || status == 503) {
+                                rejected.incrementAndGet();
+                            } else if (status >= 400) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        if (pause.isPositive()) {
+                            Thread.sleep(pause);
+                        }
+                    }
+                    return null;
+                });
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        return new Result(sorted.size(), rejected.get(), errors.get(), sorted.size() / seconds,
+                percentile(sorted, 0.50), percentile(sorted, 0.99));
+    }
+
+    private static long percentile(List<Long> sorted, double quantile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        return sorted.get((int) Math.min(sorted.size() - 1, Math.ceil(quantile * sorted.size()) - 1));
+    }
+}
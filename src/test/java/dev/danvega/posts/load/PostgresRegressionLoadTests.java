@@ -0,0 +1,49 @@
+package dev.danvega.posts.load;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+/**
+ * {@link RegressionLoadTests} against PostgreSQL in a container, the same image as the integration
+ * tests. Skipped where Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+public class PostgresRegressionLoadTests extends RegressionLoadTests {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16.0")
+            .withDatabaseName("blog")
+            .withUsername("blog")
+            .withPassword("secret_password");
+
+    @Override
+    String database() {
+        return "postgresql";
+    }
+
+    @Override
+    List<String> datasourceArguments() {
+        return List.of(
+                "--spring.datasource.url=" + postgres.getJdbcUrl(),
+                "--spring.datasource.username=" + postgres.getUsername(),
+                "--spring.datasource.password=" + postgres.getPassword());
+    }
+
+    @Override
+    String seedSql() {
+        return """
+                INSERT INTO Post (id, userId, title, body, version)
+                SELECT g, g % 1000 + 1, 'title ' || g, repeat('body of post ' || g || '. ', 5), 0
+                FROM generate_series(?::bigint, ?::bigint) AS g""";
+    }
+
+    // planner statistics for the seeded rows, rather than waiting for autovacuum to notice them
+    @Override
+    void afterSeed(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute("ANALYZE Post");
+    }
+}
@@ -0,0 +1,140 @@
+package dev.danvega.posts.load;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Open-model load: requests are started at a fixed rate whatever the server does, each picking one of
+ * the weighted operations, and every latency is measured from when its request was due rather than
+ * when it went out. Unlike {@link LoadGenerator}, a slow server does not slow the clients down and
+ * hide its stalls from the percentiles (coordinated omission).
+ * <p>
+ * Latencies are recorded per operation in HdrHistograms (microseconds, three significant digits).
+ * Requests that find {@code maxInFlight} already outstanding are not sent and count as dropped.
+ */
+class RateLoadGenerator {
+
+    record Operation(String name, int weight, Supplier<HttpRequest> request) {
+    }
+
+    record OperationResult(String name, long errors, Histogram latencies) {
+
+        long requests() {
+            return latencies.getTotalCount();
+        }
+
+        long percentileMicros(double percentile) {
+            return latencies.getValueAtPercentile(percentile);
+        }
+    }
+
+    record Result(double throughput, long dropped, Map<String, OperationResult> operations) {
+
+        long errors() {
+            return operations.values().stream().mapToLong(OperationResult::errors).sum();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder table = new StringBuilder("%.0f req/s, %d dropped%n".formatted(throughput, dropped));
+            table.append("%-8s %9s %7s %9s %9s %9s %9s %9s%n"
+                    .formatted("", "requests", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+            operations.values().forEach(operation -> table.append("%-8s %9d %7d %9.2f %9.2f %9.2f %9.2f %9.2f%n"
+                    .formatted(operation.name(), operation.requests(), operation.errors(),
+                            operation.percentileMicros(50) / 1000.0, operation.percentileMicros(90) / 1000.0,
+                            operation.percentileMicros(99) / 1000.0, operation.percentileMicros(99.9) / 1000.0,
+                            operation.latencies().getMaxValue() / 1000.0)));
+            return table.toString();
+        }
+    }
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    private final int maxInFlight;
+
+    RateLoadGenerator(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    Result run(int rate, Duration duration, List<Operation> operations) {
+        int[] cumulativeWeights = new int[operations.size()];
+        Map<String, Recorder> recorders = new LinkedHashMap<>();
+        Map<String, AtomicLong> errors = new LinkedHashMap<>();
+        int total = 0;
+        for (int i = 0; i < operations.size(); i++) {
+            total += operations.get(i).weight();
+            cumulativeWeights[i] = total;
+            recorders.put(operations.get(i).name(), new Recorder(3));
+            errors.put(operations.get(i).name(), new AtomicLong());
+        }
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        long dropped = 0;
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long requests = duration.toNanos() / interval;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long sequence = 0; sequence < requests; sequence++) {
+                long due = start + sequence * interval;
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                if (!inFlight.tryAcquire()) {
+                    dropped++;
+                    continue;
+                }
+                Operation operation = pick(operations, cumulativeWeights, total);
+                HttpRequest request = operation.request().get();
+                executor.execute(() -> {
+                    try {
+                        int status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                        if (status >= 400) {
+                            errors.get(operation.name()).incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errors.get(operation.name()).incrementAndGet();
+                    } finally {
+                        recorders.get(operation.name()).recordValue((System.nanoTime() - due) / 1_000);
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Map<String, OperationResult> results = new LinkedHashMap<>();
+        long completed = 0;
+        for (Operation operation : operations) {
+            Histogram latencies = recorders.get(operation.name()).getIntervalHistogram();
+            completed += latencies.getTotalCount();
+            results.put(operation.name(), new OperationResult(operation.name(), errors.get(operation.name()).get(), latencies));
+        }
+        return new Result(completed / seconds, dropped, results);
+    }
+
+    private static Operation pick(List<Operation> operations, int[] cumulativeWeights, int total) {
+        int ticket = ThreadLocalRandom.current().nextInt(total);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (ticket < cumulativeWeights[i]) {
+                return operations.get(i);
+            }
+        }
+        return operations.getLast();
+    }
+}
@@ -0,0 +1,190 @@
+package dev.danvega.posts.load;
+
+import dev.danvega.posts.Application;
+import dev.danvega.posts.data.PostCursor;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Performance regression suite: seeds {@code -Dload.posts} posts (default one million), drives a mixed
+ * workload at {@code -Dload.rate} requests per second (default 200) for {@code -Dload.duration}
+ * (default 30s, after a 10s warmup) and compares throughput and per-operation p50/p99 with
+ * {@code src/test/resources/load/baseline-<database>.properties}. The mix is 70% reads by id, 15%
+ * keyset pages, 10% full updates and 5% inserts of new posts.
+ * <p>
+ * Any error or dropped request fails the run, as does falling behind the baseline by more than
+ * {@code -Dload.tolerance} (default 0.25) of it, plus {@code -Dload.slack} (default 2ms) on latencies.
+ * Baselines only hold for the machine they were recorded on, so none is committed: record one with
+ * {@code -Dload.update-baseline=true}. A baseline recorded with a different core count or JVM is not
+ * compared against; the run passes with a warning. Without a baseline the run passes and leaves one
+ * to copy in {@code target/load}, along with HdrHistogram percentile distributions of every operation.
+ * <p>
+ * Runs with {@code -Pload-test}, which gives the JVM a fixed-size G1 heap; the server runs with its
+ * default settings, except that rate limiting is off as every request comes from one address.
+ */
+@Tag("load")
+abstract class RegressionLoadTests {
+
+    private static final Logger log = LoggerFactory.getLogger(RegressionLoadTests.class);
+
+    private static final long POSTS = Long.getLong("load.posts", 1_000_000);
+    private static final int RATE = Integer.getInteger("load.rate", 200);
+    private static final String DURATION = System.getProperty("load.duration", "30s");
+    private static final Duration WARMUP = Duration.ofSeconds(10);
+    private static final double TOLERANCE = Double.parseDouble(System.getProperty("load.tolerance", "0.25"));
+    private static final Duration SLACK = Duration.ofMillis(Long.getLong("load.slack", 2));
+    private static final boolean UPDATE_BASELINE = Boolean.getBoolean("load.update-baseline");
+    private static final int MAX_IN_FLIGHT = 1000;
+    private static final int SEED_CHUNK = 100_000;
+
+    abstract String database();
+
+    abstract List<String> datasourceArguments();
+
+    abstract String seedSql();
+
+    void afterSeed(JdbcTemplate jdbcTemplate) {
+    }
+
+    @Test
+    void shouldKeepUpWithBaseline() throws IOException {
+        List<String> arguments = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.docker.compose.enabled=false",
+                "--spring.sql.init.mode=always",
+                "--posts.loader.enabled=false",
+                "--posts.rate-limit.enabled=false",
+                "--logging.level.root=WARN",
+                "--logging.level.dev.danvega.posts.load=INFO"));
+        arguments.addAll(datasourceArguments());
+        try (ConfigurableApplicationContext context = SpringApplication.run(Application.class, arguments.toArray(String[]::new))) {
+            seed(context.getBean(JdbcTemplate.class));
+            String baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+            List<RateLoadGenerator.Operation> workload = workload(baseUrl);
+            RateLoadGenerator generator = new RateLoadGenerator(MAX_IN_FLIGHT);
+            generator.run(RATE, WARMUP, workload);
+            long gcBefore = gcMillis();
+            RateLoadGenerator.Result result = generator.run(RATE, parse(DURATION), workload);
+
+            // server and clients share this JVM: its collections are part of every latency
+            log.info("{}, {} posts, {} req/s for {}, {} ms in GC:\n{}", database(), POSTS, RATE, DURATION,
+                    gcMillis() - gcBefore, result);
+            report(result);
+            assertThat(result.errors()).as("errors").isZero();
+            assertThat(result.dropped()).as("requests dropped at %d in flight", MAX_IN_FLIGHT).isZero();
+            check(LoadBaseline.of(result, POSTS, RATE, DURATION));
+        }
+    }
+
+    private void seed(JdbcTemplate jdbcTemplate) {
+        long start = System.nanoTime();
+        for (long from = 1; from <= POSTS; from += SEED_CHUNK) {
+            jdbcTemplate.update(seedSql(), from, Math.min(from + SEED_CHUNK - 1, POSTS));
+        }
+        afterSeed(jdbcTemplate);
+        log.info("{}: seeded {} posts in {} s", database(), POSTS, (System.nanoTime() - start) / 1_000_000_000);
+    }
+
+    private static List<RateLoadGenerator.Operation> workload(String baseUrl) {
+        AtomicLong nextId = new AtomicLong(POSTS + 1);
+        return List.of(
+                new RateLoadGenerator.Operation("read", 70, () ->
+                        get(baseUrl + "/api/posts/" + randomId())),
+                new RateLoadGenerator.Operation("page", 15, () ->
+                        get(baseUrl + "/api/posts/page?size=20&cursor=" + new PostCursor((int) randomId()).encode())),
+                new RateLoadGenerator.Operation("update", 10, () -> {
+                    long id = randomId();
+                    return json(baseUrl + "/api/posts/" + id, "PUT", id);
+                }),
+                new RateLoadGenerator.Operation("create", 5, () ->
+                        json(baseUrl + "/api/posts", "POST", nextId.getAndIncrement())));
+    }
+
+    private static long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, POSTS + 1);
+    }
+
+    private static HttpRequest get(String uri) {
+        return HttpRequest.newBuilder(URI.create(uri)).timeout(Duration.ofSeconds(30)).build();
+    }
+
+    private static HttpRequest json(String uri, String method, long id) {
+        String body = """
+                {"id":%d,"userid":%d,"title":"load test %d","body":"written by the load test at %d"}"""
+                .formatted(id, id % 1000 + 1, id, System.currentTimeMillis());
+        return HttpRequest.newBuilder(URI.create(uri))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private void report(RateLoadGenerator.Result result) throws IOException {
+        Path directory = Path.of("target", "load");
+        Files.createDirectories(directory);
+        for (RateLoadGenerator.OperationResult operation : result.operations().values()) {
+            try (PrintStream out = new PrintStream(Files.newOutputStream(
+                    directory.resolve(database() + "-" + operation.name() + ".hgrm")))) {
+                // values in microseconds, reported in milliseconds
+                operation.latencies().outputPercentileDistribution(out, 1000.0);
+            }
+        }
+    }
+
+    private void check(LoadBaseline current) throws IOException {
+        Path baselineFile = Path.of("src", "test", "resources", "load", "baseline-" + database() + ".properties");
+        String comment = "%s, %d cores".formatted(database(), Runtime.getRuntime().availableProcessors());
+        if (UPDATE_BASELINE) {
+            current.write(baselineFile, comment);
+            log.info("Recorded baseline {}", baselineFile);
+            return;
+        }
+        if (!Files.exists(baselineFile)) {
+            Path candidate = Path.of("target", "load", baselineFile.getFileName().toString());
+            current.write(candidate, comment);
+            log.warn("No baseline {} to compare with; this run's results are in {}", baselineFile, candidate);
+            return;
+        }
+        LoadBaseline baseline = LoadBaseline.read(baselineFile);
+        List<String> mismatches = baseline.machineMismatches(current);
+        if (!mismatches.isEmpty()) {
+            log.warn("Not comparing with {}, it was recorded on another machine: {}; record a new one with "
+                    + "-Dload.update-baseline=true", baselineFile, mismatches);
+            return;
+        }
+        List<String> regressions = baseline.regressions(current, TOLERANCE, SLACK.toNanos() / 1000);
+        assertThat(regressions).as("regressions against %s", baselineFile).isEmpty();
+    }
+
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime)
+                .sum();
+    }
+
+    private static Duration parse(String duration) {
+        return Duration.parse("PT" + duration.toUpperCase());
+    }
+}
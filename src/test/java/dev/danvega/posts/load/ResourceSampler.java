@@ -0,0 +1,62 @@
+package dev.danvega.posts.load;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+/**
+ * Samples this JVM every few milliseconds while a load run is in progress and keeps the peaks: live
+ * platform threads, used heap and database connections in use, the latter read from whatever pool
+ * the caller hands in. The load generator runs in the same JVM, so thread and heap figures include
+ * its share; compare runs with each other, not with a production server.
+ */
+class ResourceSampler implements AutoCloseable {
+
+    record Peaks(int platformThreads, long heapBytes, int connectionsInUse) {
+
+        @Override
+        public String toString() {
+            return "peak %d platform threads, %d MiB heap, %d DB connections in use"
+                    .formatted(platformThreads, heapBytes >> 20, connectionsInUse);
+        }
+    }
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final IntSupplier connectionsInUse;
+    private final AtomicLong peakHeap = new AtomicLong();
+    private final AtomicInteger peakConnections = new AtomicInteger();
+    private final Thread sampler;
+
+    ResourceSampler(IntSupplier connectionsInUse) {
+        this.connectionsInUse = connectionsInUse;
+        threads.resetPeakThreadCount();
+        this.sampler = Thread.ofPlatform().daemon().name("resource-sampler").start(this::sample);
+    }
+
+    private void sample() {
+        while (!Thread.currentThread().isInterrupted()) {
+            peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+            peakConnections.accumulateAndGet(connectionsInUse.getAsInt(), Math::max);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    Peaks peaks() {
+        // ThreadMXBean counts platform threads only; virtual threads never show up here
+        return new Peaks(threads.getPeakThreadCount(), peakHeap.get(), peakConnections.get());
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        sampler.interrupt();
+        sampler.join();
+    }
+}
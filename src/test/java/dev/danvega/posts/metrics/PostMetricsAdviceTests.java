@@ -0,0 +1,44 @@
+package dev.danvega.posts.metrics;
+
+import dev.danvega.posts.controller.UserPostController;
+import dev.danvega.posts.data.PostSummary;
+import dev.danvega.posts.data.PostSummaryPage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PostMetricsAdviceTests {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldRecordResultSizeOfSummaryPages() throws Exception {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("meterRegistry", meterRegistry);
+        PostMetricsAdvice advice = new PostMetricsAdvice(beans.getBeanProvider(MeterRegistry.class));
+        MethodParameter returnType = new MethodParameter(UserPostController.class.getMethod(
+                "findSummaryPage", Integer.class, String.class, Integer.class), -1);
+
+        advice.beforeBodyWrite(new PostSummaryPage(List.of(new PostSummary(1, "one"), new PostSummary(4, "four")), null),
+                returnType, MediaType.APPLICATION_JSON, MappingJackson2HttpMessageConverter.class,
+                new ServletServerHttpRequest(new MockHttpServletRequest("GET", "/api/users/1/posts/summaries")),
+                new ServletServerHttpResponse(new MockHttpServletResponse()));
+
+        var summary = meterRegistry.get("posts.result.size")
+                .tag("endpoint", "UserPostController.findSummaryPage").summary();
+        assertThat(summary.count()).isEqualTo(1);
+        assertThat(summary.totalAmount()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,147 @@
+package dev.danvega.posts.repository;
+
+import dev.danvega.posts.data.BatchItemResult;
+import dev.danvega.posts.data.BatchItemStatus;
+import dev.danvega.posts.data.Post;
+import dev.danvega.posts.event.PostChangedEvent;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@Import(PostBatchRepositoryImpl.class)
+public class PostBatchRepositoryTests {
+
+    private static final Logger log = LoggerFactory.getLogger(PostBatchRepositoryTests.class);
+
+    @Autowired
+    PostBatchRepositoryImpl batchRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    void shouldReportCreatedAndConflictingInserts() {
+        List<BatchItemResult> results = batchRepository.insertAll(List.of(
+                new Post(1, 1, "title", "body", null),
+                new Post(1, 1, "duplicate", "body", null),
+                new Post(2, 1, "title", "body", null)));
+
+        assertThat(results).extracting(BatchItemResult::status)
+                .containsExactly(BatchItemStatus.CREATED, BatchItemStatus.CONFLICT, BatchItemStatus.CREATED);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM Post", Integer.class)).isEqualTo(2);
+    }
+
+    @Test
+    void shouldDetectVersionConflictsAndMissingPostsOnUpdate() {
+        batchRepository.insertAll(List.of(new Post(1, 1, "title", "body", null)));
+
+        List<BatchItemResult> results = batchRepository.updateAll(List.of(
+                new Post(1, 1, "new title", "body", 0),
+                new Post(1, 1, "stale title", "body", 0),
+                new Post(9, 1, "title", "body", 0)));
+
+        assertThat(results).extracting(BatchItemResult::status)
+                .containsExactly(BatchItemStatus.UPDATED, BatchItemStatus.CONFLICT, BatchItemStatus.NOT_FOUND);
+        assertThat(results.getFirst().version()).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT title FROM Post WHERE id = 1", String.class))
+                .isEqualTo("new title");
+    }
+
+    @Test
+    void shouldDeleteExistingPosts() {
+        batchRepository.insertAll(List.of(new Post(1, 1, "title", "body", null)));
+
+        List<BatchItemResult> results = batchRepository.deleteAllByIds(List.of(1, 2));
+
+        assertThat(results).extracting(BatchItemResult::status)
+                .containsExactly(BatchItemStatus.DELETED, BatchItemStatus.NOT_FOUND);
+    }
+
+    @Test
+    void shouldReadBackUpdatesAndDeletesWhenDriverReportsNoRowCounts() {
+        List<Object> events = new ArrayList<>();
+        PostBatchRepositoryImpl noInfoRepository = new PostBatchRepositoryImpl(
+                new NoRowCountJdbcTemplate(jdbcTemplate), transactionManager, events::add, 500);
+        batchRepository.insertAll(List.of(new Post(1, 1, "title", "body", null), new Post(2, 1, "title", "body", null)));
+
+        List<BatchItemResult> updates = noInfoRepository.updateAll(List.of(
+                new Post(1, 1, "new title", "body", 0),
+                new Post(2, 1, "stale title", "body", 5),
+                new Post(9, 1, "title", "body", 0)));
+        List<BatchItemResult> deletes = noInfoRepository.deleteAllByIds(List.of(2, 2, 9));
+
+        assertThat(updates).extracting(BatchItemResult::status)
+                .containsExactly(BatchItemStatus.UPDATED, BatchItemStatus.CONFLICT, BatchItemStatus.NOT_FOUND);
+        assertThat(deletes).extracting(BatchItemResult::status)
+                .containsExactly(BatchItemStatus.DELETED, BatchItemStatus.NOT_FOUND, BatchItemStatus.NOT_FOUND);
+        assertThat(events).containsExactly(
+                PostChangedEvent.updated(new Post(1, 1, "new title", "body", 1)),
+                PostChangedEvent.deleted(2));
+    }
+
+    @Test
+    void shouldMeasureBatchInsertsAgainstSingleRowInserts() {
+        int rows = 5_000;
+        List<Post> single = posts(1, rows);
+        List<Post> batched = posts(rows + 1, rows);
+
+        long start = System.nanoTime();
+        single.forEach(post -> jdbcTemplate.update(
+                "INSERT INTO Post (id, userid, title, body, version) VALUES (?, ?, ?, ?, 0)",
+                post.id(), post.userid(), post.title(), post.body()));
+        long singleNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        batchRepository.insertAll(batched);
+        long batchNanos = System.nanoTime() - start;
+
+        log.info("Inserted {} posts: single-row {} rows/s, batched {} rows/s",
+                rows, rows * 1_000_000_000L / singleNanos, rows * 1_000_000_000L / batchNanos);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM Post", Integer.class)).isEqualTo(2 * rows);
+    }
+
+    private static List<Post> posts(int firstId, int count) {
+        return IntStream.range(firstId, firstId + count)
+                .mapToObj(id -> new Post(id, id % 10, "title " + id, "body " + id, null))
+                .toList();
+    }
+
+    /**
+     * Runs batches like a driver that reports {@code SUCCESS_NO_INFO} instead of row counts.
+     */
+    private static class NoRowCountJdbcTemplate extends JdbcTemplate {
+
+        NoRowCountJdbcTemplate(JdbcTemplate jdbcTemplate) {
+            super(jdbcTemplate.getDataSource());
+        }
+
+        @Override
+        public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                       ParameterizedPreparedStatementSetter<T> pss) {
+            int[][] counts = super.batchUpdate(sql, batchArgs, batchSize, pss);
+            for (int[] chunk : counts) {
+                Arrays.fill(chunk, Statement.SUCCESS_NO_INFO);
+            }
+            return counts;
+        }
+    }
+}
@@ -5,16 +5,22 @@ import com.github.dockerjava.api.model.HostConfig;
 import com.github.dockerjava.api.model.PortBinding;
 import com.github.dockerjava.api.model.Ports;
 import dev.danvega.posts.data.Post;
+import dev.danvega.posts.data.PostPatch;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.containers.wait.strategy.Wait;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -44,6 +50,9 @@ public class PostRepositoryIntgTests {
     @Autowired
     PostRepository postRepository;
 
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
     @Test
     void dbConnectionEstablished() {
         assertThat(postgres.isCreated()).isTrue();
@@ -56,4 +65,38 @@ public class PostRepositoryIntgTests {
         assertThat(posts).isNotNull();
         assertThat(posts.size()).isEqualTo(100);
     }
+
+    @Test
+    void shouldUseUserIdIndexForPerUserPages() {
+        // with only the seed rows a sequential scan is cheapest, so take it off the table for
+        // this session to see whether the planner can use the index at all
+        String plan = jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET enable_seqscan = off");
+                List<String> lines = new ArrayList<>();
+                try (ResultSet rs = statement.executeQuery(
+                        "EXPLAIN SELECT id, title FROM Post WHERE userid = 2 AND id > 0 ORDER BY id LIMIT 20")) {
+                    while (rs.next()) {
+                        lines.add(rs.getString(1));
+                    }
+                }
+                statement.execute("RESET enable_seqscan");
+                return String.join("\n", lines);
+            }
+        });
+
+        assertThat(plan).contains("post_userid_id_idx");
+        assertThat(postRepository.findSummaryPageByUserAfter(2, 0, 20)).isNotEmpty();
+    }
+
+    @Test
+    void shouldReturnPatchedRowFromUpdateStatement() {
+        Post current = postRepository.findById(100).orElseThrow();
+
+        Post patched = postRepository.patch(100, current.version(), new PostPatch(null, "patched title", null, null))
+                .orElseThrow();
+
+        assertThat(patched).isEqualTo(new Post(100, current.userid(), "patched title", current.body(),
+                current.version() + 1));
+    }
 }
@@ -0,0 +1,114 @@
+package dev.danvega.posts.repository;
+
+import dev.danvega.posts.data.Post;
+import dev.danvega.posts.data.PostPatch;
+import dev.danvega.posts.data.PostSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.jdbc.DataJdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJdbcTest
+@Import(PostChangeCounter.class)
+public class PostRepositoryTests {
+
+    @Autowired
+    PostRepository postRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setup() {
+        // ids 1..30, written round-robin by users 1..3
+        postRepository.insertAll(IntStream.rangeClosed(1, 30)
+                .mapToObj(id -> new Post(id, id % 3 + 1, "title " + id, "body " + id, null))
+                .toList());
+    }
+
+    @Test
+    void shouldChangeWatermarkWhenChangesCancelOut() {
+        String before = postRepository.findWatermark();
+
+        // same row count and the same id and version sums as before
+        postRepository.deleteAllByIds(List.of(1, 30));
+        postRepository.insertAll(List.of(new Post(0, 1, "title 0", "body 0", null),
+                new Post(31, 1, "title 31", "body 31", null)));
+        // the test transaction is rolled back, so run what its commit would
+        TransactionSynchronizationUtils.triggerBeforeCommit(false);
+
+        // raised once for the whole transaction, not once per row
+        assertThat(Long.parseLong(postRepository.findWatermark())).isEqualTo(Long.parseLong(before) + 1);
+    }
+
+    @Test
+    void shouldPageThroughOneUsersPostsInIdOrder() {
+        List<Post> first = postRepository.findPageByUserAfter(2, 0, 4);
+        List<Post> second = postRepository.findPageByUserAfter(2, first.getLast().id(), 4);
+
+        assertThat(first).extracting(Post::id).containsExactly(1, 4, 7, 10);
+        assertThat(second).extracting(Post::id).containsExactly(13, 16, 19, 22);
+        assertThat(second).extracting(Post::userid).containsOnly(2);
+    }
+
+    @Test
+    void shouldProjectSummariesWithoutBody() {
+        List<PostSummary> summaries = postRepository.findSummaryPageByUserAfter(3, 20, 10);
+
+        assertThat(summaries).containsExactly(
+                new PostSummary(23, "title 23"),
+                new PostSummary(26, "title 26"),
+                new PostSummary(29, "title 29"));
+    }
+
+    @Test
+    void shouldStreamRangeOfOneUserInIdOrder() {
+        List<Post> streamed = new ArrayList<>();
+
+        postRepository.streamRange(2, 4, 19, streamed::add);
+
+        assertThat(streamed).extracting(Post::id).containsExactly(7, 10, 13, 16, 19);
+    }
+
+    @Test
+    void shouldPatchOnlyGivenColumnsAndReturnNewVersion() {
+        Optional<Post> patched = postRepository.patch(5, 0, new PostPatch(null, "new title", null, null));
+
+        assertThat(patched).contains(new Post(5, 3, "new title", "body 5", 1));
+        assertThat(postRepository.findById(5)).contains(new Post(5, 3, "new title", "body 5", 1));
+    }
+
+    @Test
+    void shouldRejectPatchOfStaleVersion() {
+        postRepository.patch(5, 0, new PostPatch(null, "first", null, null));
+
+        assertThatThrownBy(() -> postRepository.patch(5, 0, new PostPatch(null, null, "second", null)))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(postRepository.findById(5).map(Post::body)).contains("body 5");
+    }
+
+    @Test
+    void shouldReturnEmptyWhenPatchingMissingPost() {
+        assertThat(postRepository.patch(1000, 0, new PostPatch(null, "title", null, null))).isEmpty();
+    }
+
+    @Test
+    void shouldUseUserIdIndexForPerUserPages() {
+        String plan = jdbcTemplate.queryForObject(
+                "EXPLAIN SELECT id, title FROM Post WHERE userid = 2 AND id > 0 ORDER BY id LIMIT 20", String.class);
+
+        assertThat(plan).containsIgnoringCase("POST_USERID_ID_IDX");
+    }
+}
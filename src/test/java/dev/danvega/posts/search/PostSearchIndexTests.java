@@ -0,0 +1,97 @@
+package dev.danvega.posts.search;
+
+import dev.danvega.posts.data.Post;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PostSearchIndexTests {
+
+    private PostSearchIndex index;
+
+    @BeforeEach
+    void setup() {
+        index = new PostSearchIndex();
+        index.index(new Post(1, 1, "Spring Boot caching", "How to cache repository reads.", 0));
+        index.index(new Post(2, 1, "Virtual threads", "Blocking JDBC calls on virtual threads with Spring.", 0));
+        index.index(new Post(3, 2, "Cooking pasta", "Boil water, add salt and pasta.", 0));
+    }
+
+    @Test
+    void shouldRankTitleMatchesFirst() {
+        assertThat(index.search("spring", 10))
+                .extracting(PostSearchIndex.Hit::id)
+                .containsExactly(1, 2);
+    }
+
+    @Test
+    void shouldIgnoreCaseAndStopWords() {
+        assertThat(index.search("The PASTA", 10))
+                .extracting(PostSearchIndex.Hit::id)
+                .containsExactly(3);
+    }
+
+    @Test
+    void shouldLimitResults() {
+        assertThat(index.search("spring threads pasta", 2)).hasSize(2);
+    }
+
+    @Test
+    void shouldReplaceUpdatedPosts() {
+        index.index(new Post(3, 2, "Baking bread", "Flour, water and yeast.", 1));
+
+        assertThat(index.search("pasta", 10)).isEmpty();
+        assertThat(index.search("bread", 10))
+                .extracting(PostSearchIndex.Hit::id)
+                .containsExactly(3);
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldForgetDeletedPosts() {
+        index.remove(1);
+
+        assertThat(index.search("caching", 10)).isEmpty();
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldNotLetScanReAddPostDeletedDuringIt() {
+        index.startLoad();
+        index.remove(1);
+        // read by the scan just before the delete committed
+        index.load(new Post(1, 1, "Caching in Spring", "Cache posts in memory.", 0));
+        index.finishLoad();
+
+        assertThat(index.search("caching", 10)).isEmpty();
+
+        index.load(new Post(1, 1, "Caching in Spring", "Cache posts in memory.", 0));
+        assertThat(index.search("caching", 10)).hasSize(1);
+    }
+
+    @Test
+    void shouldIgnoreStaleVersions() {
+        index.index(new Post(3, 2, "Baking bread", "Flour, water and yeast.", 2));
+        index.index(new Post(3, 2, "Cooking pasta", "Boil water, add salt and pasta.", 1));
+
+        assertThat(index.search("bread", 10))
+                .extracting(PostSearchIndex.Hit::id)
+                .containsExactly(3);
+    }
+
+    @Test
+    void shouldKeepResultsAfterCompaction() {
+        for (int version = 1; version <= 10; version++) {
+            index.index(new Post(2, 1, "Virtual threads " + version, "Blocking JDBC calls on virtual threads.", version));
+        }
+
+        assertThat(index.search("threads", 10))
+                .extracting(PostSearchIndex.Hit::id)
+                .containsExactly(2);
+        assertThat(index.search("spring", 10))
+                .extracting(PostSearchIndex.Hit::id)
+                .containsExactly(1);
+        assertThat(index.size()).isEqualTo(3);
+    }
+}
@@ -0,0 +1,104 @@
+package dev.danvega.posts.snapshot;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.danvega.posts.data.Post;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PostSnapshotFilterTests {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @TempDir
+    Path directory;
+
+    private PostSnapshot snapshot;
+    private PostSnapshotFilter filter;
+
+    @BeforeEach
+    void setup() throws IOException {
+        snapshot = new PostSnapshot(objectMapper, new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class),
+                directory.toString(), 1000, DataSize.ofKilobytes(64));
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("meterRegistry", meterRegistry);
+        filter = new PostSnapshotFilter(snapshot, beanFactory.getBeanProvider(MeterRegistry.class));
+        snapshot.put(new Post(1, 1, "Hello, World!", "This is my first post.", 2));
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        snapshot.destroy();
+    }
+
+    @Test
+    void shouldAnswerFromSnapshotWithoutCallingController() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(get("/api/posts/1"), response, chain);
+
+        assertThat(chain.getRequest()).isNull();
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader("ETag")).isEqualTo("\"2\"");
+        assertThat(response.getContentType()).isEqualTo("application/json");
+        assertThat(objectMapper.readValue(response.getContentAsByteArray(), Post.class))
+                .isEqualTo(new Post(1, 1, "Hello, World!", "This is my first post.", 2));
+        assertThat(meterRegistry.get("posts.snapshot.lookups").tag("result", "hit").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldAnswerNotModifiedForCurrentVersion() throws Exception {
+        MockHttpServletRequest request = get("/api/posts/1");
+        request.addHeader("If-None-Match", "W/\"2\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, new MockFilterChain());
+
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getContentLength()).isZero();
+    }
+
+    @Test
+    void shouldPassMissesAndOtherRequestsToController() throws Exception {
+        assertPassedOn(get("/api/posts/2"));
+        assertPassedOn(get("/api/posts/page"));
+        assertPassedOn(new MockHttpServletRequest("DELETE", "/api/posts/1"));
+        MockHttpServletRequest smile = get("/api/posts/1");
+        smile.addHeader("Accept", "application/x-jackson-smile");
+        assertPassedOn(smile);
+        assertThat(meterRegistry.get("posts.snapshot.lookups").tag("result", "miss").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldStopServingDeletedPost() throws Exception {
+        snapshot.remove(1);
+
+        assertPassedOn(get("/api/posts/1"));
+    }
+
+    private void assertPassedOn(MockHttpServletRequest request) throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        assertThat(chain.getRequest()).isSameAs(request);
+    }
+
+    private static MockHttpServletRequest get(String uri) {
+        return new MockHttpServletRequest("GET", uri);
+    }
+}
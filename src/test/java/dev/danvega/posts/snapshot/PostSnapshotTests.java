@@ -0,0 +1,136 @@
+package dev.danvega.posts.snapshot;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.danvega.posts.data.Post;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PostSnapshotTests {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @TempDir
+    Path directory;
+
+    private PostSnapshot snapshot;
+
+    @AfterEach
+    void cleanup() throws IOException {
+        snapshot.destroy();
+    }
+
+    @Test
+    void shouldServeStoredPostAsJson() throws IOException {
+        snapshot = snapshot(1000, DataSize.ofKilobytes(4));
+        Post post = new Post(7, 1, "Grüße", "body with \"quotes\"", 3);
+
+        snapshot.put(post);
+
+        assertThat(json(7)).isEqualTo(objectMapper.writeValueAsString(post));
+        assertThat(snapshot.view().version(snapshot.view().find(7))).isEqualTo(3);
+        assertThat(snapshot.view().find(8)).isEqualTo(PostSnapshot.ABSENT);
+    }
+
+    @Test
+    void shouldKeepNewestVersion() throws IOException {
+        snapshot = snapshot(1000, DataSize.ofKilobytes(4));
+
+        snapshot.put(new Post(7, 1, "second", "body", 2));
+        snapshot.put(new Post(7, 1, "first", "body", 1));
+
+        assertThat(json(7)).contains("second");
+        assertThat(snapshot.size()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotLetScanResurrectDeletedPost() {
+        snapshot = snapshot(1000, DataSize.ofKilobytes(4));
+        snapshot.put(new Post(7, 1, "title", "body", 0));
+
+        snapshot.remove(7);
+        snapshot.load(new Post(7, 1, "title", "body", 0));
+
+        assertThat(snapshot.view().find(7)).isEqualTo(PostSnapshot.ABSENT);
+        snapshot.create(new Post(7, 1, "created again", "body", 0));
+        assertThat(snapshot.view().find(7)).isNotEqualTo(PostSnapshot.ABSENT);
+    }
+
+    @Test
+    void shouldNotLetLateUpdateResurrectDeletedPost() {
+        snapshot = snapshot(1000, DataSize.ofKilobytes(4));
+        snapshot.create(new Post(7, 1, "title", "body", 0));
+
+        // the delete's listener ran before that of the update it followed
+        snapshot.remove(7);
+        snapshot.put(new Post(7, 1, "updated", "body", 1));
+
+        assertThat(snapshot.view().find(7)).isEqualTo(PostSnapshot.ABSENT);
+    }
+
+    @Test
+    void shouldGrowFilesAndCompactSupersededRecords() throws IOException {
+        snapshot = snapshot(1_000_000, DataSize.ofKilobytes(4));
+        String body = "x".repeat(1000);
+
+        for (int version = 0; version < 3000; version++) {
+            snapshot.put(new Post(100_000, 1, "title", body, version));
+            snapshot.put(new Post(version, 1, "title " + version, "body", 0));
+        }
+
+        assertThat(snapshot.size()).isEqualTo(3001);
+        assertThat(snapshot.view().version(snapshot.view().find(100_000))).isEqualTo(2999);
+        assertThat(json(2500)).contains("title 2500");
+        // 3000 superseded copies of the large post would take 3 MB without compaction
+        try (var files = Files.list(directory)) {
+            assertThat(files.mapToLong(PostSnapshotTests::size).sum()).isLessThan(DataSize.ofMegabytes(2).toBytes());
+        }
+    }
+
+    @Test
+    void shouldIgnoreIdsAboveMaxId() {
+        snapshot = snapshot(1000, DataSize.ofKilobytes(4));
+
+        snapshot.put(new Post(1001, 1, "title", "body", 0));
+
+        assertThat(snapshot.view().find(1001)).isEqualTo(PostSnapshot.ABSENT);
+    }
+
+    private String json(int id) throws IOException {
+        PostSnapshot.View view = snapshot.view();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // a buffer smaller than the post exercises the chunked copy
+        view.writeJson(view.find(id), out, new byte[16]);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private PostSnapshot snapshot(int maxId, DataSize initialSize) {
+        try {
+            return new PostSnapshot(objectMapper, new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class),
+                    directory.toString(), maxId, initialSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package dev.danvega.posts.tracing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+public class TracingDataSourceTests {
+
+    private final List<Observation.Context> observed = new CopyOnWriteArrayList<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private SlowQueryLog slowQueryLog;
+    private JdbcTemplate jdbcTemplate;
+    private JdbcTemplate untraced;
+
+    @BeforeEach
+    void setup() {
+        ObservationRegistry observationRegistry = ObservationRegistry.create();
+        observationRegistry.observationConfig().observationHandler(new ObservationHandler<>() {
+            @Override
+            public void onStop(Observation.Context context) {
+                observed.add(context);
+            }
+
+            @Override
+            public boolean supportsContext(Observation.Context context) {
+                return true;
+            }
+        });
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("meterRegistry", meterRegistry);
+        // every statement counts as slow
+        slowQueryLog = new SlowQueryLog(beans.getBeanProvider(Tracer.class), beans.getBeanProvider(MeterRegistry.class),
+                Duration.ofNanos(1), true, true, Duration.ofMinutes(1), 10);
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:tracing;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(new TracingDataSource(dataSource, () -> observationRegistry, () -> slowQueryLog));
+        untraced = new JdbcTemplate(dataSource);
+        untraced.execute("CREATE TABLE Post (id INT PRIMARY KEY, userid INT, title VARCHAR(250), body TEXT, version INT)");
+        untraced.update("INSERT INTO Post VALUES (1, 1, 'first', 'body', 0), (2, 1, 'second', 'body', 0)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        untraced.execute("DROP TABLE Post");
+        slowQueryLog.destroy();
+    }
+
+    @Test
+    void shouldObserveConnectionCheckoutApartFromStatement() {
+        jdbcTemplate.queryForObject("SELECT title FROM Post WHERE id = ?", String.class, 2);
+
+        assertThat(observed).extracting(Observation.Context::getName)
+                .containsExactly("posts.jdbc.connection", "posts.jdbc.statement");
+        Observation.Context statement = observed.get(1);
+        assertThat(statement.getLowCardinalityKeyValue("operation").getValue()).isEqualTo("select");
+        assertThat(statement.getHighCardinalityKeyValue("sql").getValue()).isEqualTo("SELECT title FROM Post WHERE id = ?");
+        assertThat(statement.getHighCardinalityKeyValue("slow").getValue()).isEqualTo("true");
+    }
+
+    @Test
+    void shouldCaptureSlowStatementWithParametersAndPlan() {
+        jdbcTemplate.queryForObject("SELECT title FROM Post WHERE id = ?", String.class, 2);
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> !slowQueryLog.recent().isEmpty());
+        SlowQuery slow = slowQueryLog.recent().getFirst();
+        assertThat(slow.sql()).isEqualTo("SELECT title FROM Post WHERE id = ?");
+        assertThat(slow.parameters()).containsExactly("2");
+        assertThat(slow.plan()).containsIgnoringCase("PRIMARY_KEY");
+        assertThat(meterRegistry.counter("posts.jdbc.slow", "operation", "select").count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldKeepSlowBatchWithoutParametersOrPlan() {
+        jdbcTemplate.batchUpdate("INSERT INTO Post VALUES (?, 1, 'title', 'body', 0)",
+                List.of(new Object[]{3}, new Object[]{4}, new Object[]{5}));
+
+        SlowQuery slow = slowQueryLog.recent().getFirst();
+        assertThat(slow.batchSize()).isEqualTo(3);
+        assertThat(slow.parameters()).isEmpty();
+        assertThat(slow.plan()).isNull();
+        assertThat(observed.getLast().getHighCardinalityKeyValue("batch.size").getValue()).isEqualTo("3");
+    }
+}
@@ -0,0 +1,146 @@
+package dev.danvega.posts.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.danvega.posts.event.PostsLoadedEvent;
+import dev.danvega.posts.repository.PostRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.jdbc.DataJdbcTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+@DataJdbcTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class PostDataLoaderTests {
+
+    private static final String LOCATION = "classpath:/data/posts.json";
+
+    @Autowired
+    PostRepository postRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    private final List<Object> events = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void clean() {
+        jdbcTemplate.update("DELETE FROM Post");
+        jdbcTemplate.update("DELETE FROM post_load");
+    }
+
+    @Test
+    void shouldLoadAllPostsInParallelBatches() throws Exception {
+        loader(7, 3).run();
+
+        assertThat(postRepository.count()).isEqualTo(100);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT completed FROM post_load WHERE source = ?", Boolean.class, LOCATION)).isTrue();
+    }
+
+    @Test
+    void shouldResumeFromLastCheckpoint() throws Exception {
+        jdbcTemplate.update("INSERT INTO post_load (source, loaded, completed) VALUES (?, 60, FALSE)", LOCATION);
+
+        loader(25, 2).run();
+
+        assertThat(postRepository.count()).isEqualTo(40);
+        assertThat(jdbcTemplate.queryForObject("SELECT MIN(id) FROM Post", Integer.class)).isEqualTo(61);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT loaded FROM post_load WHERE source = ?", Long.class, LOCATION)).isEqualTo(100);
+    }
+
+    @Test
+    void shouldKeepRowsAlreadyWrittenWhenResuming() throws Exception {
+        jdbcTemplate.update("INSERT INTO post_load (source, loaded, completed) VALUES (?, 50, FALSE)", LOCATION);
+        jdbcTemplate.update("INSERT INTO Post (id, userid, title, body, version) VALUES (60, 1, 'edited', 'edited', 3)");
+
+        loader(25, 1).run();
+
+        assertThat(postRepository.count()).isEqualTo(50);
+        assertThat(jdbcTemplate.queryForObject("SELECT title FROM Post WHERE id = 60", String.class)).isEqualTo("edited");
+        assertThat(jdbcTemplate.queryForObject("SELECT version FROM Post WHERE id = 60", Integer.class)).isEqualTo(3);
+    }
+
+    @Test
+    void shouldSkipCompletedLoad() throws Exception {
+        jdbcTemplate.update("INSERT INTO post_load (source, loaded, completed) VALUES (?, 100, TRUE)", LOCATION);
+
+        loader(25, 1).run();
+
+        assertThat(postRepository.count()).isZero();
+    }
+
+    @Test
+    void shouldLoadInBackgroundWithoutHoldingUpStartup() {
+        CountDownLatch release = new CountDownLatch(1);
+
+        loader(25, 1, true, gatedBy(release)).run();
+
+        assertThat(postRepository.count()).isZero();
+        assertThat(events).isEmpty();
+        release.countDown();
+        await().untilAsserted(() -> assertThat(jdbcTemplate.queryForObject(
+                "SELECT completed FROM post_load WHERE source = ?", Boolean.class, LOCATION)).isTrue());
+        assertThat(postRepository.count()).isEqualTo(100);
+        await().untilAsserted(() -> assertThat(events).containsExactly(new PostsLoadedEvent(LOCATION, 100)));
+    }
+
+    @Test
+    void shouldNotAnnounceForegroundLoad() throws Exception {
+        loader(25, 1).run();
+
+        assertThat(events).isEmpty();
+    }
+
+    private PostDataLoader loader(int batchSize, int writerThreads) {
+        return loader(batchSize, writerThreads, false, new DefaultResourceLoader());
+    }
+
+    private PostDataLoader loader(int batchSize, int writerThreads, boolean background, ResourceLoader resourceLoader) {
+        return new PostDataLoader(new ObjectMapper(), postRepository, resourceLoader, jdbcTemplate,
+                transactionManager, events::add, true, LOCATION, batchSize, writerThreads, 50, background);
+    }
+
+    /**
+     * Holds back the data file until {@code release} opens, so the test controls when the load can finish.
+     */
+    private static ResourceLoader gatedBy(CountDownLatch release) {
+        return new DefaultResourceLoader() {
+            @Override
+            public Resource getResource(String location) {
+                return new ClassPathResource("data/posts.json") {
+                    @Override
+                    public InputStream getInputStream() throws IOException {
+                        try {
+                            release.await(10, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return super.getInputStream();
+                    }
+                };
+            }
+        };
+    }
+}